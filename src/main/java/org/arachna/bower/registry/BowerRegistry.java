@@ -25,9 +25,23 @@ public interface BowerRegistry {
      *            the package to register with this repository.
      * @throws IllegalArgumentException
      *             when the given package tried to register repeatedly.
+     * @throws IllegalStateException
+     *             when a persistent repository could not store the package.
      */
     void register(BowerPackage bowerPackage) throws IllegalArgumentException;
 
+    /**
+     * Register many bower packages with this repository at once. Persistent repositories store the packages together.
+     *
+     * @param bowerPackages
+     *            the packages to register with this repository.
+     * @throws IllegalArgumentException
+     *             when one of the given packages tried to register repeatedly.
+     * @throws IllegalStateException
+     *             when a persistent repository could not store the packages.
+     */
+    void registerAll(Collection<BowerPackage> bowerPackages) throws IllegalArgumentException;
+
     /**
      * Looks up the package by name.
      *
@@ -37,6 +51,15 @@ public interface BowerRegistry {
      */
     BowerPackage getPackage(String packageName);
 
+    /**
+     * Looks up many packages by name at once.
+     *
+     * @param packageNames
+     *            names of packages to look up.
+     * @return the {@link BowerPackage}s found for the given names. Names no package could be found for are left out.
+     */
+    Collection<BowerPackage> getPackages(Collection<String> packageNames);
+
     /**
      * Search registry for bower packages by name.
      *
@@ -46,4 +69,25 @@ public interface BowerRegistry {
      *         the regular expression <code>.*?packageName.*?</code> otherwise.
      */
     Collection<BowerPackage> search(String packageName);
+
+    /**
+     * Search registry for one page of bower packages by name. Pages are ordered by package name.
+     *
+     * @param packageName
+     *            name of bower package to search for. Can be empty or <code>null</code> to list all packages.
+     * @param cursor
+     *            name of the last package of the previous page, empty or <code>null</code> for the first page.
+     * @param limit
+     *            maximum number of packages to return.
+     * @return at most <code>limit</code> packages matching the given name whose names follow the cursor, ordered by name.
+     */
+    Collection<BowerPackage> search(String packageName, String cursor, int limit);
+
+    /**
+     * Get the version of the packages known to this registry. The version increases whenever packages are registered or changed. It is
+     * the time in microseconds of the last change.
+     *
+     * @return the version of the packages known to this registry or a negative value when changes cannot be tracked.
+     */
+    long getVersion();
 }
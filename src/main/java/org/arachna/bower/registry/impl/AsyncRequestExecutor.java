@@ -0,0 +1,119 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.Closeable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Executes suspended requests to the REST service on a bounded pool of threads so container threads are released while registries wait
+ * for remote bower registries.
+ *
+ * Requests not answered within the timeout of their endpoint are answered with {@link Status#GATEWAY_TIMEOUT}. Requests that cannot be
+ * queued because too many requests are pending are answered with {@link Status#SERVICE_UNAVAILABLE}.
+ *
+ * @author Dirk Weigenand
+ */
+public class AsyncRequestExecutor implements Closeable {
+    /**
+     * seconds a client should wait before retrying a rejected request.
+     */
+    private static final int RETRY_AFTER = 1;
+
+    /**
+     * settings for executing requests.
+     */
+    private final RequestSettings settings;
+
+    /**
+     * executor running the requests.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Create an executor for requests using the given settings.
+     *
+     * @param settings
+     *            settings for executing requests.
+     */
+    public AsyncRequestExecutor(final RequestSettings settings) {
+        if (settings.getThreads() < 1) {
+            throw new IllegalArgumentException("number of threads executing requests must be positive!");
+        }
+
+        this.settings = settings;
+        executor =
+            new ThreadPoolExecutor(settings.getThreads(), settings.getThreads(), 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(
+                Math.max(1, settings.getMaxPending())), new FanOutExecutor.DaemonThreadFactory("bower-registry-request"));
+        executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Execute the given request and resume the suspended response with its result.
+     *
+     * @param asyncResponse
+     *            the suspended response.
+     * @param endpoint
+     *            the endpoint the request was sent to, used for determining the timeout.
+     * @param request
+     *            the request to execute.
+     */
+    public void execute(final AsyncResponse asyncResponse, final String endpoint, final Callable<Response> request) {
+        final AtomicReference<Future<?>> execution = new AtomicReference<Future<?>>();
+        final long timeout = settings.getTimeout(endpoint);
+
+        if (timeout > 0) {
+            asyncResponse.setTimeoutHandler(new TimeoutHandler() {
+                @Override
+                public void handleTimeout(final AsyncResponse response) {
+                    final Future<?> future = execution.get();
+
+                    if (future != null) {
+                        future.cancel(true);
+                    }
+
+                    response.resume(Response.status(Status.GATEWAY_TIMEOUT).build());
+                }
+            });
+            asyncResponse.setTimeout(timeout, TimeUnit.MILLISECONDS);
+        }
+
+        try {
+            execution.set(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        asyncResponse.resume(request.call());
+                    }
+                    catch (final Exception e) {
+                        asyncResponse.resume(e);
+                    }
+                }
+            }));
+        }
+        catch (final RejectedExecutionException e) {
+            asyncResponse.resume(Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER).build());
+        }
+    }
+
+    /**
+     * Stop executing requests.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
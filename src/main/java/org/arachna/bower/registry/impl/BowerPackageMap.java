@@ -3,11 +3,13 @@
  */
 package org.arachna.bower.registry.impl;
 
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.LinkedList;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 import org.apache.commons.lang3.StringUtils;
 import org.arachna.bower.registry.BowerPackage;
@@ -18,12 +20,21 @@ import org.arachna.bower.registry.BowerRegistry;
  *
  * @author Dirk Weigenand
  */
-public class BowerPackageMap implements BowerRegistry {
+public class BowerPackageMap implements PackageStore {
     /**
-     * Map of registered bower packages.
+     * Map of registered bower packages ordered by name.
      */
-    // FIXME: use ehcache
-    private final ConcurrentMap<String, BowerPackage> packages = new ConcurrentHashMap<String, BowerPackage>();
+    private final ConcurrentNavigableMap<String, BowerPackage> packages = new ConcurrentSkipListMap<String, BowerPackage>();
+
+    /**
+     * Index of the names of registered bower packages used for searching.
+     */
+    private final TrigramIndex index = new TrigramIndex();
+
+    /**
+     * version of the registered packages.
+     */
+    private volatile long version = RegistryVersion.next();
 
     @Override
     public Collection<BowerPackage> getAllPackages() {
@@ -32,17 +43,70 @@ public class BowerPackageMap implements BowerRegistry {
 
     @Override
     public void register(final BowerPackage bowerPackage) {
-        packages.put(bowerPackage.getName(), bowerPackage);
+        if (packages.put(bowerPackage.getName(), bowerPackage) == null) {
+            index.add(bowerPackage.getName());
+        }
+
+        version = RegistryVersion.next();
+
         // if (packages.putIfAbsent(bowerPackage.getName(), bowerPackage) != null) {
         // throw new IllegalArgumentException(String.format("package '%s' was already registered.", bowerPackage.getName()));
         // }
     }
 
+    @Override
+    public void registerAll(final Collection<BowerPackage> bowerPackages) {
+        for (final BowerPackage bowerPackage : bowerPackages) {
+            if (packages.put(bowerPackage.getName(), bowerPackage) == null) {
+                index.add(bowerPackage.getName());
+            }
+        }
+
+        version = RegistryVersion.next();
+    }
+
+    @Override
+    public BowerPackage unregister(final String packageName) {
+        final BowerPackage bowerPackage = packages.remove(packageName);
+
+        if (bowerPackage != null) {
+            index.remove(packageName);
+            version = RegistryVersion.next();
+        }
+
+        return bowerPackage;
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        return packages.size();
+    }
+
     @Override
     public BowerPackage getPackage(final String packageName) {
         return packages.get(packageName);
     }
 
+    @Override
+    public Collection<BowerPackage> getPackages(final Collection<String> packageNames) {
+        final Collection<BowerPackage> found = new ArrayList<BowerPackage>(packageNames.size());
+
+        for (final String packageName : packageNames) {
+            final BowerPackage bowerPackage = packages.get(packageName);
+
+            if (bowerPackage != null) {
+                found.add(bowerPackage);
+            }
+        }
+
+        return found;
+    }
+
     @Override
     public Collection<BowerPackage> search(final String packageName) {
         final Collection<BowerPackage> allPackages = getAllPackages();
@@ -54,12 +118,46 @@ public class BowerPackageMap implements BowerRegistry {
         final StringContainedInPackageNameFilter filter = new StringContainedInPackageNameFilter(packageName);
         final Collection<BowerPackage> matches = new LinkedList<BowerPackage>();
 
-        for (final BowerPackage bowerPackage : allPackages) {
-            if (filter.accept(bowerPackage)) {
-                matches.add(bowerPackage);
+        if (index.canLookUp(packageName)) {
+            for (final String candidate : index.candidates(packageName)) {
+                final BowerPackage bowerPackage = packages.get(candidate);
+
+                if (filter.accept(bowerPackage)) {
+                    matches.add(bowerPackage);
+                }
+            }
+        }
+        else {
+            for (final BowerPackage bowerPackage : allPackages) {
+                if (filter.accept(bowerPackage)) {
+                    matches.add(bowerPackage);
+                }
             }
         }
 
         return matches;
     }
+
+    @Override
+    public Collection<BowerPackage> search(final String packageName, final String cursor, final int limit) {
+        if (StringUtils.isNotEmpty(packageName) && index.canLookUp(packageName)) {
+            return PackagePages.page(search(packageName), cursor, limit);
+        }
+
+        final Collection<BowerPackage> page = new ArrayList<BowerPackage>();
+        final Collection<BowerPackage> candidates =
+            StringUtils.isEmpty(cursor) ? packages.values() : packages.tailMap(cursor, false).values();
+        final StringContainedInPackageNameFilter filter =
+            StringUtils.isEmpty(packageName) ? null : new StringContainedInPackageNameFilter(packageName);
+
+        for (final Iterator<BowerPackage> iterator = candidates.iterator(); iterator.hasNext() && page.size() < limit;) {
+            final BowerPackage bowerPackage = iterator.next();
+
+            if (filter == null || filter.accept(bowerPackage)) {
+                page.add(bowerPackage);
+            }
+        }
+
+        return page;
+    }
 }
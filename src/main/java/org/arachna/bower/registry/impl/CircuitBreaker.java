@@ -0,0 +1,314 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+/**
+ * Circuit breaker protecting callers from a remote bower registry that fails or answers slowly.
+ *
+ * The outcome of the most recent calls is recorded. When the rate of failed or slow calls reaches its threshold the circuit opens and
+ * calls are rejected. After the open duration one probing call is permitted. When it succeeds the circuit closes, otherwise the circuit
+ * opens again for twice the previous duration, up to the maximum open duration.
+ *
+ * @author Dirk Weigenand
+ */
+public class CircuitBreaker implements CircuitBreakerMBean {
+    /**
+     * States of a circuit breaker.
+     *
+     * @author Dirk Weigenand
+     */
+    public enum State {
+        /**
+         * calls are permitted and their outcome is recorded.
+         */
+        CLOSED,
+
+        /**
+         * calls are rejected.
+         */
+        OPEN,
+
+        /**
+         * one probing call is permitted to determine whether the circuit can be closed.
+         */
+        HALF_OPEN
+    }
+
+    /**
+     * failed calls recorded, in the order of the ring buffer.
+     */
+    private final boolean[] failures;
+
+    /**
+     * slow calls recorded, in the order of the ring buffer.
+     */
+    private final boolean[] slowCalls;
+
+    /**
+     * number of calls to record before rates are evaluated.
+     */
+    private final int minimumCalls;
+
+    /**
+     * percentage of failed calls opening the circuit.
+     */
+    private final int failureRateThreshold;
+
+    /**
+     * time in milliseconds after which calls are considered slow.
+     */
+    private final long slowCallDuration;
+
+    /**
+     * percentage of slow calls opening the circuit.
+     */
+    private final int slowCallRateThreshold;
+
+    /**
+     * time in milliseconds the circuit stays open after it has been opened from the closed state.
+     */
+    private final long initialOpenDuration;
+
+    /**
+     * maximum time in milliseconds the circuit stays open.
+     */
+    private final long maxOpenDuration;
+
+    /**
+     * the current state.
+     */
+    private State state = State.CLOSED;
+
+    /**
+     * index of the next call in the ring buffer.
+     */
+    private int position;
+
+    /**
+     * number of recorded calls.
+     */
+    private int recordedCalls;
+
+    /**
+     * number of recorded failed calls.
+     */
+    private int failedCalls;
+
+    /**
+     * number of recorded slow calls.
+     */
+    private int slowCallCount;
+
+    /**
+     * time in milliseconds the circuit has been opened or the probing call has been permitted.
+     */
+    private long since;
+
+    /**
+     * time in milliseconds the circuit stays open.
+     */
+    private long openDuration;
+
+    /**
+     * indicates that a probing call is running.
+     */
+    private boolean probing;
+
+    /**
+     * number of calls rejected.
+     */
+    private long rejectedCalls;
+
+    /**
+     * number of times the circuit has been opened.
+     */
+    private long timesOpened;
+
+    /**
+     * Create a circuit breaker.
+     *
+     * @param windowSize
+     *            number of most recent calls to record.
+     * @param failureRateThreshold
+     *            percentage of failed calls opening the circuit.
+     * @param slowCallDuration
+     *            time in milliseconds after which calls are considered slow.
+     * @param slowCallRateThreshold
+     *            percentage of slow calls opening the circuit.
+     * @param openDuration
+     *            time in milliseconds the circuit stays open before a probing call is permitted.
+     * @param maxOpenDuration
+     *            maximum time in milliseconds the circuit stays open after repeatedly failing probing calls.
+     */
+    public CircuitBreaker(final int windowSize, final int failureRateThreshold, final long slowCallDuration,
+        final int slowCallRateThreshold, final long openDuration, final long maxOpenDuration) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("window size must be positive!");
+        }
+
+        failures = new boolean[windowSize];
+        slowCalls = new boolean[windowSize];
+        minimumCalls = Math.max(1, windowSize / 2);
+        this.failureRateThreshold = failureRateThreshold;
+        this.slowCallDuration = slowCallDuration;
+        this.slowCallRateThreshold = slowCallRateThreshold;
+        initialOpenDuration = openDuration;
+        this.maxOpenDuration = Math.max(openDuration, maxOpenDuration);
+        this.openDuration = openDuration;
+    }
+
+    /**
+     * Determine whether a call is permitted. Every permitted call must be followed by {@link #onSuccess(long)} or
+     * {@link #onFailure(long)}.
+     *
+     * @return <code>true</code> when the call is permitted, <code>false</code> when the circuit is open.
+     */
+    public synchronized boolean tryAcquire() {
+        final long now = System.currentTimeMillis();
+
+        if (state == State.OPEN && now - since >= openDuration) {
+            state = State.HALF_OPEN;
+            probing = false;
+        }
+
+        if (state == State.CLOSED) {
+            return true;
+        }
+
+        // permit another probing call when the last one never reported back
+        if (state == State.HALF_OPEN && (!probing || now - since >= openDuration)) {
+            probing = true;
+            since = now;
+
+            return true;
+        }
+
+        rejectedCalls++;
+
+        return false;
+    }
+
+    /**
+     * Determine whether a call would be permitted without acquiring it, e.g. for skipping calls while the circuit is open.
+     *
+     * @return <code>true</code> when {@link #tryAcquire()} would permit a call, <code>false</code> when the circuit is open.
+     */
+    public synchronized boolean isCallPermitted() {
+        final long now = System.currentTimeMillis();
+
+        return state == State.CLOSED || state == State.OPEN && now - since >= openDuration
+            || state == State.HALF_OPEN && (!probing || now - since >= openDuration);
+    }
+
+    /**
+     * Record a successful call.
+     *
+     * @param duration
+     *            duration of the call in milliseconds.
+     */
+    public synchronized void onSuccess(final long duration) {
+        record(false, duration >= slowCallDuration);
+    }
+
+    /**
+     * Record a failed call.
+     *
+     * @param duration
+     *            duration of the call in milliseconds.
+     */
+    public synchronized void onFailure(final long duration) {
+        record(true, duration >= slowCallDuration);
+    }
+
+    private void record(final boolean failure, final boolean slow) {
+        if (state == State.HALF_OPEN) {
+            probing = false;
+
+            if (failure || slow) {
+                open(Math.min(openDuration * 2, maxOpenDuration));
+            }
+            else {
+                close();
+            }
+        }
+        else if (state == State.CLOSED) {
+            if (recordedCalls == failures.length) {
+                failedCalls -= failures[position] ? 1 : 0;
+                slowCallCount -= slowCalls[position] ? 1 : 0;
+            }
+            else {
+                recordedCalls++;
+            }
+
+            failures[position] = failure;
+            slowCalls[position] = slow;
+            failedCalls += failure ? 1 : 0;
+            slowCallCount += slow ? 1 : 0;
+            position = (position + 1) % failures.length;
+
+            if (recordedCalls >= minimumCalls
+                && (getFailureRate() >= failureRateThreshold || getSlowCallRate() >= slowCallRateThreshold)) {
+                open(initialOpenDuration);
+            }
+        }
+    }
+
+    private void open(final long duration) {
+        state = State.OPEN;
+        since = System.currentTimeMillis();
+        openDuration = duration;
+        timesOpened++;
+    }
+
+    private void close() {
+        state = State.CLOSED;
+        openDuration = initialOpenDuration;
+        position = 0;
+        recordedCalls = 0;
+        failedCalls = 0;
+        slowCallCount = 0;
+    }
+
+    /**
+     * @return the current state of the circuit.
+     */
+    public synchronized State getCurrentState() {
+        return state;
+    }
+
+    @Override
+    public synchronized String getState() {
+        return state.name();
+    }
+
+    @Override
+    public synchronized float getFailureRate() {
+        return recordedCalls == 0 ? 0 : failedCalls * 100f / recordedCalls;
+    }
+
+    @Override
+    public synchronized float getSlowCallRate() {
+        return recordedCalls == 0 ? 0 : slowCallCount * 100f / recordedCalls;
+    }
+
+    @Override
+    public synchronized int getRecordedCalls() {
+        return recordedCalls;
+    }
+
+    @Override
+    public synchronized long getRejectedCalls() {
+        return rejectedCalls;
+    }
+
+    @Override
+    public synchronized long getTimesOpened() {
+        return timesOpened;
+    }
+
+    @Override
+    public synchronized long getOpenDuration() {
+        return openDuration;
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+/**
+ * Management interface exposing the state of a {@link CircuitBreaker} via JMX.
+ *
+ * @author Dirk Weigenand
+ */
+public interface CircuitBreakerMBean {
+    /**
+     * Get the state of the circuit.
+     *
+     * @return one of <code>CLOSED</code>, <code>OPEN</code> or <code>HALF_OPEN</code>.
+     */
+    String getState();
+
+    /**
+     * Get the percentage of failed calls among the recorded calls.
+     *
+     * @return percentage of failed calls among the recorded calls.
+     */
+    float getFailureRate();
+
+    /**
+     * Get the percentage of slow calls among the recorded calls.
+     *
+     * @return percentage of slow calls among the recorded calls.
+     */
+    float getSlowCallRate();
+
+    /**
+     * Get the number of calls recorded for calculating the failure and slow call rates.
+     *
+     * @return number of recorded calls.
+     */
+    int getRecordedCalls();
+
+    /**
+     * Get the number of calls rejected because the circuit was open.
+     *
+     * @return number of calls rejected because the circuit was open.
+     */
+    long getRejectedCalls();
+
+    /**
+     * Get the number of times the circuit has been opened.
+     *
+     * @return number of times the circuit has been opened.
+     */
+    long getTimesOpened();
+
+    /**
+     * Get the time in milliseconds the circuit stays open before a probing call is permitted.
+     *
+     * @return time in milliseconds the circuit stays open before a probing call is permitted.
+     */
+    long getOpenDuration();
+}
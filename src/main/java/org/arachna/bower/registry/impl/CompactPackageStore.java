@@ -0,0 +1,794 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.nio.charset.Charset;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.apache.commons.lang3.StringUtils;
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+
+/**
+ * A memory efficient {@link BowerRegistry} for large package indexes like mirrors of remote bower registries.
+ *
+ * Packages are not held as objects. Names and URLs are stored as UTF-8 encoded records in a single byte array. The scheme and host part
+ * of the URLs (e.g. <code>git://github.com/</code>) is stored once in a prefix table and referenced by number. Records are never
+ * changed once written: registering a package again appends a new record, the space of replaced and removed records is reclaimed by
+ * compacting the records when it makes up half of the array. Packages are looked up by name using an open addressing hash table of record
+ * numbers. Searching uses an index of the trigrams of the UTF-8 encoded names pointing to record numbers, like the {@link TrigramIndex}
+ * of {@link BowerPackageMap} but without holding the names as strings.
+ *
+ * Packages returned by this registry are views decoding the record they were created from on access. They are not affected by later
+ * changes to the registry.
+ *
+ * @author Dirk Weigenand
+ */
+public class CompactPackageStore implements PackageStore {
+    /**
+     * encoding of names and URLs.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * initial size of the record array.
+     */
+    private static final int INITIAL_CAPACITY = 16 * 1024;
+
+    /**
+     * marker for a hash table entry of a removed record.
+     */
+    private static final int REMOVED = -1;
+
+    /**
+     * lock guarding the records, readers never block each other.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * the encoded records.
+     */
+    private byte[] data = new byte[INITIAL_CAPACITY];
+
+    /**
+     * number of bytes of the record array in use.
+     */
+    private int size;
+
+    /**
+     * number of bytes in use by replaced or removed records.
+     */
+    private int garbage;
+
+    /**
+     * offsets of the records by record number, <code>-1</code> for removed records.
+     */
+    private int[] offsets = new int[1024];
+
+    /**
+     * number of record numbers in use.
+     */
+    private int records;
+
+    /**
+     * number of packages registered.
+     */
+    private int count;
+
+    /**
+     * hash table of record numbers plus one, <code>0</code> for empty entries.
+     */
+    private int[] table = new int[2048];
+
+    /**
+     * number of used or removed entries of the hash table.
+     */
+    private int tableEntries;
+
+    /**
+     * record numbers of the records whose names contain a trigram of UTF-8 encoded bytes, by trigram. Removed records are left in the
+     * index until the records are compacted.
+     */
+    private Map<Integer, Postings> trigrams = new HashMap<Integer, Postings>();
+
+    /**
+     * URL prefixes by number.
+     */
+    private final List<String> prefixes = new ArrayList<String>();
+
+    /**
+     * numbers of URL prefixes.
+     */
+    private final Map<String, Integer> prefixNumbers = new HashMap<String, Integer>();
+
+    /**
+     * version of the registered packages.
+     */
+    private volatile long version = RegistryVersion.next();
+
+    @Override
+    public Collection<BowerPackage> getAllPackages() {
+        lock.readLock().lock();
+
+        try {
+            return new Snapshot(data, Arrays.copyOf(offsets, records), prefixes.toArray(new String[prefixes.size()]), count);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void register(final BowerPackage bowerPackage) {
+        lock.writeLock().lock();
+
+        try {
+            put(bowerPackage);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        version = RegistryVersion.next();
+    }
+
+    @Override
+    public void registerAll(final Collection<BowerPackage> bowerPackages) {
+        lock.writeLock().lock();
+
+        try {
+            for (final BowerPackage bowerPackage : bowerPackages) {
+                put(bowerPackage);
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        version = RegistryVersion.next();
+    }
+
+    @Override
+    public BowerPackage unregister(final String packageName) {
+        final byte[] name = packageName.getBytes(UTF8);
+        BowerPackage bowerPackage = null;
+
+        lock.writeLock().lock();
+
+        try {
+            final int entry = find(name, hash(name));
+
+            if (entry >= 0) {
+                final int record = table[entry] - 1;
+                bowerPackage = view(record);
+                garbage += length(offsets[record]);
+                offsets[record] = -1;
+                table[entry] = REMOVED;
+                count--;
+                compactIfNecessary();
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        if (bowerPackage != null) {
+            version = RegistryVersion.next();
+        }
+
+        return bowerPackage;
+    }
+
+    @Override
+    public BowerPackage getPackage(final String packageName) {
+        final byte[] name = packageName.getBytes(UTF8);
+
+        lock.readLock().lock();
+
+        try {
+            final int entry = find(name, hash(name));
+
+            return entry < 0 ? null : view(table[entry] - 1);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<BowerPackage> getPackages(final Collection<String> packageNames) {
+        final Collection<BowerPackage> found = new ArrayList<BowerPackage>(packageNames.size());
+
+        for (final String packageName : packageNames) {
+            final BowerPackage bowerPackage = getPackage(packageName);
+
+            if (bowerPackage != null) {
+                found.add(bowerPackage);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Search the names of the packages. Search strings of at least three bytes are looked up in the trigram index, only the records
+     * containing all trigrams of the search string are checked. The names are compared as UTF-8 encoded bytes, so no strings are created
+     * for packages not matching.
+     */
+    @Override
+    public Collection<BowerPackage> search(final String packageName) {
+        if (StringUtils.isEmpty(packageName)) {
+            return getAllPackages();
+        }
+
+        final byte[] pattern = packageName.getBytes(UTF8);
+        final Collection<BowerPackage> matches = new ArrayList<BowerPackage>();
+
+        lock.readLock().lock();
+
+        try {
+            if (pattern.length >= TrigramIndex.GRAM_LENGTH) {
+                final Postings candidates = getCandidates(pattern);
+
+                for (int i = 0; candidates != null && i < candidates.size; i++) {
+                    addIfMatching(matches, candidates.records[i], pattern);
+                }
+            }
+            else {
+                for (int record = 0; record < records; record++) {
+                    addIfMatching(matches, record, pattern);
+                }
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        return matches;
+    }
+
+    private void addIfMatching(final Collection<BowerPackage> matches, final int record, final byte[] pattern) {
+        final int offset = offsets[record];
+
+        if (offset >= 0 && contains(offset, pattern)) {
+            matches.add(view(record));
+        }
+    }
+
+    /**
+     * Get the shortest list of records containing one of the trigrams of the given search string.
+     *
+     * @return the records to check or <code>null</code> when no record contains all trigrams of the search string.
+     */
+    private Postings getCandidates(final byte[] pattern) {
+        Postings smallest = null;
+
+        for (int i = 0; i + TrigramIndex.GRAM_LENGTH <= pattern.length; i++) {
+            final Postings postings = trigrams.get(trigram(pattern, i));
+
+            if (postings == null) {
+                return null;
+            }
+
+            if (smallest == null || postings.size < smallest.size) {
+                smallest = postings;
+            }
+        }
+
+        return smallest;
+    }
+
+    /**
+     * Add the trigrams of the name of the given record to the trigram index.
+     */
+    private void index(final int record, final byte[] bytes, final int from, final int length) {
+        for (int i = from; i + TrigramIndex.GRAM_LENGTH <= from + length; i++) {
+            final Integer trigram = trigram(bytes, i);
+            Postings postings = trigrams.get(trigram);
+
+            if (postings == null) {
+                postings = new Postings();
+                trigrams.put(trigram, postings);
+            }
+
+            postings.add(record);
+        }
+    }
+
+    private static int trigram(final byte[] bytes, final int from) {
+        return (bytes[from] & 0xFF) << 16 | (bytes[from + 1] & 0xFF) << 8 | bytes[from + 2] & 0xFF;
+    }
+
+    @Override
+    public Collection<BowerPackage> search(final String packageName, final String cursor, final int limit) {
+        return PackagePages.page(search(packageName), cursor, limit);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+
+        try {
+            return count;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void put(final BowerPackage bowerPackage) {
+        final byte[] name = bowerPackage.getName().getBytes(UTF8);
+        final String url = StringUtils.defaultString(bowerPackage.getUrl());
+        final String prefix = getPrefix(url);
+        final byte[] suffix = url.substring(prefix.length()).getBytes(UTF8);
+        final int hash = hash(name);
+        final int entry = find(name, hash);
+
+        if (entry >= 0) {
+            final int record = table[entry] - 1;
+            garbage += length(offsets[record]);
+            offsets[record] = append(name, getPrefixNumber(prefix), suffix);
+            compactIfNecessary();
+
+            return;
+        }
+
+        if (records == offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+
+        offsets[records] = append(name, getPrefixNumber(prefix), suffix);
+        index(records, name, 0, name.length);
+        records++;
+        count++;
+
+        if ((tableEntries + 1) * 2 > table.length) {
+            rebuildTable(count * 4);
+        }
+
+        insert(records - 1, hash);
+    }
+
+    /**
+     * Get the prefix of the given URL stored in the prefix table, i.e. scheme and host.
+     *
+     * @param url
+     *            the URL to get the prefix of.
+     * @return the prefix of the URL up to and including the slash following the host or an empty string.
+     */
+    static String getPrefix(final String url) {
+        final int scheme = url.indexOf("://");
+
+        if (scheme < 0) {
+            final int host = url.indexOf(':');
+
+            // scp like git URLs, e.g. git@github.com:user/package.git
+            return host > 0 && url.indexOf('@') > 0 ? url.substring(0, host + 1) : "";
+        }
+
+        final int path = url.indexOf('/', scheme + 3);
+
+        return path < 0 ? "" : url.substring(0, path + 1);
+    }
+
+    private int getPrefixNumber(final String prefix) {
+        Integer number = prefixNumbers.get(prefix);
+
+        if (number == null) {
+            number = prefixes.size();
+            prefixes.add(prefix);
+            prefixNumbers.put(prefix, number);
+        }
+
+        return number;
+    }
+
+    /**
+     * Append a record to the record array. A record consists of the length of the name, the name, the number of the URL prefix, the
+     * length of the URL suffix and the URL suffix. Numbers are written as variable length integers.
+     *
+     * @return the offset of the appended record.
+     */
+    private int append(final byte[] name, final int prefix, final byte[] suffix) {
+        ensureCapacity(15 + name.length + suffix.length);
+        final int offset = size;
+
+        writeNumber(name.length);
+        System.arraycopy(name, 0, data, size, name.length);
+        size += name.length;
+        writeNumber(prefix);
+        writeNumber(suffix.length);
+        System.arraycopy(suffix, 0, data, size, suffix.length);
+        size += suffix.length;
+
+        return offset;
+    }
+
+    /**
+     * Grow the record array. The array is replaced by a copy, so views still referencing the old array remain valid.
+     */
+    private void ensureCapacity(final int length) {
+        if (size + length > data.length) {
+            data = Arrays.copyOf(data, Math.max(data.length * 2, size + length));
+        }
+    }
+
+    private void writeNumber(final int value) {
+        int remaining = value;
+
+        while ((remaining & ~0x7F) != 0) {
+            data[size++] = (byte)((remaining & 0x7F) | 0x80);
+            remaining >>>= 7;
+        }
+
+        data[size++] = (byte)remaining;
+    }
+
+    /**
+     * Read a variable length integer.
+     *
+     * @param data
+     *            array to read from.
+     * @param position
+     *            array holding the position to read from, updated to the position following the integer.
+     * @return the integer read.
+     */
+    static int readNumber(final byte[] data, final int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte current;
+
+        do {
+            current = data[position[0]++];
+            value |= (current & 0x7F) << shift;
+            shift += 7;
+        }
+        while ((current & 0x80) != 0);
+
+        return value;
+    }
+
+    private int length(final int offset) {
+        final int[] position = { offset };
+        final int nameLength = readNumber(data, position);
+        position[0] += nameLength;
+        readNumber(data, position);
+        final int suffixLength = readNumber(data, position);
+        position[0] += suffixLength;
+
+        return position[0] - offset;
+    }
+
+    private boolean contains(final int offset, final byte[] pattern) {
+        final int[] position = { offset };
+        final int length = readNumber(data, position);
+        final int start = position[0];
+
+        for (int i = start; i <= start + length - pattern.length; i++) {
+            int j = 0;
+
+            while (j < pattern.length && data[i + j] == pattern[j]) {
+                j++;
+            }
+
+            if (j == pattern.length) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static int hash(final byte[] name) {
+        return hash(name, 0, name.length);
+    }
+
+    private static int hash(final byte[] bytes, final int from, final int length) {
+        int hash = 0;
+
+        for (int i = from; i < from + length; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+
+        // spread the bits of the hash so power of two tables are used evenly
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Find the hash table entry of the record with the given name.
+     *
+     * @return index of the hash table entry or <code>-1</code> when no record with the given name exists.
+     */
+    private int find(final byte[] name, final int hash) {
+        final int mask = table.length - 1;
+
+        for (int entry = hash & mask;; entry = (entry + 1) & mask) {
+            final int value = table[entry];
+
+            if (value == 0) {
+                return -1;
+            }
+
+            if (value != REMOVED && hasName(offsets[value - 1], name)) {
+                return entry;
+            }
+        }
+    }
+
+    private boolean hasName(final int offset, final byte[] name) {
+        final int[] position = { offset };
+
+        if (readNumber(data, position) != name.length) {
+            return false;
+        }
+
+        for (int i = 0; i < name.length; i++) {
+            if (data[position[0] + i] != name[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    private void insert(final int record, final int hash) {
+        final int mask = table.length - 1;
+        int entry = hash & mask;
+
+        while (table[entry] != 0) {
+            entry = (entry + 1) & mask;
+        }
+
+        table[entry] = record + 1;
+        tableEntries++;
+    }
+
+    private void rebuildTable(final int minimumSize) {
+        int tableSize = 16;
+
+        while (tableSize < minimumSize) {
+            tableSize <<= 1;
+        }
+
+        table = new int[tableSize];
+        tableEntries = 0;
+
+        for (int record = 0; record < records; record++) {
+            if (offsets[record] >= 0) {
+                final int[] position = { offsets[record] };
+                final int length = readNumber(data, position);
+                insert(record, hash(data, position[0], length));
+            }
+        }
+    }
+
+    /**
+     * Copy the live records into a new array when replaced and removed records take up half of the record array.
+     */
+    private void compactIfNecessary() {
+        if (garbage < INITIAL_CAPACITY || garbage * 2 < size) {
+            return;
+        }
+
+        final byte[] compacted = new byte[Math.max(INITIAL_CAPACITY, (size - garbage) * 3 / 2)];
+        final int[] compactedOffsets = new int[Math.max(1024, count * 3 / 2)];
+        int compactedSize = 0;
+        int compactedRecords = 0;
+
+        for (int record = 0; record < records; record++) {
+            final int offset = offsets[record];
+
+            if (offset >= 0) {
+                final int length = length(offset);
+                System.arraycopy(data, offset, compacted, compactedSize, length);
+                compactedOffsets[compactedRecords++] = compactedSize;
+                compactedSize += length;
+            }
+        }
+
+        data = compacted;
+        size = compactedSize;
+        garbage = 0;
+        offsets = compactedOffsets;
+        records = compactedRecords;
+        rebuildTable(count * 4);
+        trigrams = new HashMap<Integer, Postings>();
+
+        for (int record = 0; record < records; record++) {
+            final int[] position = { offsets[record] };
+            final int length = readNumber(data, position);
+            index(record, data, position[0], length);
+        }
+    }
+
+    private BowerPackage view(final int record) {
+        return new PackageView(data, offsets[record], prefixes.get(prefixNumber(data, offsets[record])));
+    }
+
+    private static int prefixNumber(final byte[] data, final int offset) {
+        final int[] position = { offset };
+        final int nameLength = readNumber(data, position);
+        position[0] += nameLength;
+
+        return readNumber(data, position);
+    }
+
+    /**
+     * A bower package decoding its name and URL from a record.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class PackageView implements BowerPackage {
+        /**
+         * the record array the record was read from.
+         */
+        private final byte[] data;
+
+        /**
+         * offset of the record.
+         */
+        private final int offset;
+
+        /**
+         * the URL prefix of the package.
+         */
+        private final String prefix;
+
+        PackageView(final byte[] data, final int offset, final String prefix) {
+            this.data = data;
+            this.offset = offset;
+            this.prefix = prefix;
+        }
+
+        @Override
+        public String getName() {
+            final int[] position = { offset };
+            final int length = readNumber(data, position);
+
+            return new String(data, position[0], length, UTF8);
+        }
+
+        @Override
+        public String getUrl() {
+            final int[] position = { offset };
+            final int nameLength = readNumber(data, position);
+            position[0] += nameLength;
+            readNumber(data, position);
+            final int length = readNumber(data, position);
+
+            return prefix + new String(data, position[0], length, UTF8);
+        }
+
+        @Override
+        public String toString() {
+            return getName() + "=" + getUrl();
+        }
+    }
+
+    /**
+     * Record numbers in ascending order.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Postings {
+        /**
+         * the record numbers.
+         */
+        private int[] records = new int[4];
+
+        /**
+         * number of record numbers in use.
+         */
+        private int size;
+
+        /**
+         * Add the given record number. Record numbers are added in ascending order, so a name containing a trigram more than once is
+         * added only once.
+         */
+        void add(final int record) {
+            if (size > 0 && records[size - 1] == record) {
+                return;
+            }
+
+            if (size == records.length) {
+                records = Arrays.copyOf(records, size * 2);
+            }
+
+            records[size++] = record;
+        }
+    }
+
+    /**
+     * Packages registered at the time the snapshot was taken.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Snapshot extends AbstractCollection<BowerPackage> {
+        /**
+         * the record array.
+         */
+        private final byte[] data;
+
+        /**
+         * offsets of the records, <code>-1</code> for removed records.
+         */
+        private final int[] offsets;
+
+        /**
+         * URL prefixes by number.
+         */
+        private final String[] prefixes;
+
+        /**
+         * number of packages.
+         */
+        private final int count;
+
+        Snapshot(final byte[] data, final int[] offsets, final String[] prefixes, final int count) {
+            this.data = data;
+            this.offsets = offsets;
+            this.prefixes = prefixes;
+            this.count = count;
+        }
+
+        @Override
+        public Iterator<BowerPackage> iterator() {
+            return new Iterator<BowerPackage>() {
+                private int record = advance(0);
+
+                @Override
+                public boolean hasNext() {
+                    return record < offsets.length;
+                }
+
+                @Override
+                public BowerPackage next() {
+                    if (!hasNext()) {
+                        throw new NoSuchElementException();
+                    }
+
+                    final int offset = offsets[record];
+                    record = advance(record + 1);
+
+                    return new PackageView(data, offset, prefixes[prefixNumber(data, offset)]);
+                }
+
+                @Override
+                public void remove() {
+                    throw new UnsupportedOperationException();
+                }
+
+                private int advance(final int from) {
+                    int next = from;
+
+                    while (next < offsets.length && offsets[next] < 0) {
+                        next++;
+                    }
+
+                    return next;
+                }
+            };
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
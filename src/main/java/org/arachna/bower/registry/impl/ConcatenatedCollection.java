@@ -0,0 +1,97 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Read only view of several collections as one collection. The elements are not copied, iterating the view iterates the underlying
+ * collections in order.
+ *
+ * @param <E>
+ *            type of the elements.
+ * @author Dirk Weigenand
+ */
+public class ConcatenatedCollection<E> extends AbstractCollection<E> {
+    /**
+     * the underlying collections.
+     */
+    private final List<Collection<? extends E>> collections = new ArrayList<Collection<? extends E>>();
+
+    /**
+     * Create an empty view.
+     */
+    public ConcatenatedCollection() {
+    }
+
+    /**
+     * Append the given collection to this view.
+     *
+     * @param collection
+     *            collection to append.
+     * @return this view.
+     */
+    public ConcatenatedCollection<E> append(final Collection<? extends E> collection) {
+        collections.add(collection);
+
+        return this;
+    }
+
+    /**
+     * Get the underlying collections.
+     *
+     * @return the underlying collections in order.
+     */
+    public List<Collection<? extends E>> getCollections() {
+        return Collections.unmodifiableList(collections);
+    }
+
+    @Override
+    public int size() {
+        int size = 0;
+
+        for (final Collection<? extends E> collection : collections) {
+            size += collection.size();
+        }
+
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        return new Iterator<E>() {
+            private final Iterator<Collection<? extends E>> outer = collections.iterator();
+            private Iterator<? extends E> inner = Collections.<E> emptyList().iterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!inner.hasNext() && outer.hasNext()) {
+                    inner = outer.next().iterator();
+                }
+
+                return inner.hasNext();
+            }
+
+            @Override
+            public E next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+
+                return inner.next();
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,387 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executes queries against several bower registries in parallel and collects the answers that arrived before a deadline.
+ *
+ * @author Dirk Weigenand
+ */
+public class FanOutExecutor {
+    /**
+     * default time in milliseconds to wait for answers of remote registries.
+     */
+    public static final long DEFAULT_TIMEOUT = 5000;
+
+    /**
+     * default number of threads used for querying remote registries.
+     */
+    public static final int DEFAULT_THREADS = 16;
+
+    /**
+     * default minimum time in milliseconds to wait for an answer before a hedged query is sent to the next registry.
+     */
+    public static final long DEFAULT_HEDGE_MIN_DELAY = 50;
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    /**
+     * executor running the queries.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * time in milliseconds to wait for answers.
+     */
+    private final long timeout;
+
+    /**
+     * percentile of the recorded latencies to wait for an answer before a hedged query is sent to the next registry. A value less or
+     * equal to zero disables hedging.
+     */
+    private final int hedgePercentile;
+
+    /**
+     * minimum time in milliseconds to wait for an answer before a hedged query is sent to the next registry.
+     */
+    private final long hedgeMinDelay;
+
+    /**
+     * Create an executor using the given number of threads and deadline.
+     *
+     * @param threads
+     *            number of threads used for running queries.
+     * @param timeout
+     *            time in milliseconds to wait for answers.
+     */
+    public FanOutExecutor(final int threads, final long timeout) {
+        this(Executors.newFixedThreadPool(threads, new DaemonThreadFactory("bower-registry-fan-out")), timeout);
+    }
+
+    /**
+     * Create an executor running queries using the given executor service.
+     *
+     * @param executor
+     *            executor service running the queries.
+     * @param timeout
+     *            time in milliseconds to wait for answers.
+     */
+    public FanOutExecutor(final ExecutorService executor, final long timeout) {
+        this(executor, timeout, 0, DEFAULT_HEDGE_MIN_DELAY);
+    }
+
+    /**
+     * Create an executor using the given number of threads and deadline sending hedged queries.
+     *
+     * @param threads
+     *            number of threads used for running queries.
+     * @param timeout
+     *            time in milliseconds to wait for answers.
+     * @param hedgePercentile
+     *            percentile of the recorded latencies to wait for an answer before a hedged query is sent to the next registry. A value
+     *            less or equal to zero disables hedging.
+     * @param hedgeMinDelay
+     *            minimum time in milliseconds to wait for an answer before a hedged query is sent to the next registry.
+     */
+    public FanOutExecutor(final int threads, final long timeout, final int hedgePercentile, final long hedgeMinDelay) {
+        this(Executors.newFixedThreadPool(threads, new DaemonThreadFactory("bower-registry-fan-out")), timeout, hedgePercentile,
+            hedgeMinDelay);
+    }
+
+    /**
+     * Create an executor running queries using the given executor service sending hedged queries.
+     *
+     * @param executor
+     *            executor service running the queries.
+     * @param timeout
+     *            time in milliseconds to wait for answers.
+     * @param hedgePercentile
+     *            percentile of the recorded latencies to wait for an answer before a hedged query is sent to the next registry. A value
+     *            less or equal to zero disables hedging.
+     * @param hedgeMinDelay
+     *            minimum time in milliseconds to wait for an answer before a hedged query is sent to the next registry.
+     */
+    public FanOutExecutor(final ExecutorService executor, final long timeout, final int hedgePercentile, final long hedgeMinDelay) {
+        this.executor = executor;
+        this.timeout = timeout;
+        this.hedgePercentile = Math.min(100, hedgePercentile);
+        this.hedgeMinDelay = Math.max(0, hedgeMinDelay);
+    }
+
+    /**
+     * @return <code>true</code> when queries for redundant registries should be sent using {@link #invokeHedged(List, List)},
+     *         <code>false</code> otherwise.
+     */
+    public boolean isHedging() {
+        return hedgePercentile > 0;
+    }
+
+    /**
+     * Execute all given queries in parallel and return the answers that arrived before the deadline.
+     *
+     * @param queries
+     *            queries to execute.
+     * @return the answers that arrived before the deadline in the order of the queries. Queries that failed or did not answer in time
+     *         are left out.
+     */
+    public <T> List<T> invokeAll(final Collection<? extends Callable<T>> queries) {
+        final List<T> answers = new ArrayList<T>();
+
+        if (queries.isEmpty()) {
+            return answers;
+        }
+
+        try {
+            for (final Future<T> future : executor.invokeAll(queries, timeout, TimeUnit.MILLISECONDS)) {
+                final T answer = getAnswer(future);
+
+                if (answer != null) {
+                    answers.add(answer);
+                }
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        return answers;
+    }
+
+    /**
+     * Execute all given queries in parallel and return the first non <code>null</code> answer in the order of the queries. Returns as soon
+     * as all queries preceding the first query having an answer returned <code>null</code>. When the deadline passes the first non
+     * <code>null</code> answer that arrived in time is returned.
+     *
+     * @param queries
+     *            queries to execute ordered by priority.
+     * @return the first non <code>null</code> answer or <code>null</code> when no query had an answer.
+     */
+    public <T> T invokeInOrder(final List<? extends Callable<T>> queries) {
+        final List<Future<T>> futures = new ArrayList<Future<T>>();
+
+        for (final Callable<T> query : queries) {
+            futures.add(executor.submit(query));
+        }
+
+        final long deadline = System.currentTimeMillis() + timeout;
+        T answer = null;
+
+        try {
+            for (final Future<T> future : futures) {
+                final long remaining = deadline - System.currentTimeMillis();
+
+                try {
+                    answer = getAnswer(future, Math.max(0, remaining));
+                }
+                catch (final TimeoutException e) {
+                    answer = firstArrivedAnswer(futures);
+                    break;
+                }
+
+                if (answer != null) {
+                    break;
+                }
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            cancel(futures);
+        }
+
+        return answer;
+    }
+
+    /**
+     * Execute the given queries against redundant registries one after another and return the first non <code>null</code> answer.
+     *
+     * The next query is sent when the last query sent did not answer within the configured percentile of the latencies recorded for its
+     * registry or as soon as a query failed or returned <code>null</code>. The first non <code>null</code> answer wins, all other queries
+     * are cancelled. Thus in the normal case only one registry is queried while slow registries do not delay the answer beyond their
+     * usual latency.
+     *
+     * @param queries
+     *            queries to execute ordered by priority.
+     * @param latencies
+     *            latencies of the calls to the registries queried, in the order of the queries. Registries without recorded latencies
+     *            (<code>null</code> elements or missing trailing elements) are given the configured minimum delay.
+     * @return the first non <code>null</code> answer or <code>null</code> when no query had an answer before the deadline.
+     */
+    public <T> T invokeHedged(final List<? extends Callable<T>> queries, final List<LatencyTracker> latencies) {
+        final CompletionService<T> completionService = new ExecutorCompletionService<T>(executor);
+        final List<Future<T>> futures = new ArrayList<Future<T>>();
+        final long deadline = System.currentTimeMillis() + timeout;
+        int running = 0;
+
+        try {
+            while (running > 0 || futures.size() < queries.size()) {
+                if (running == 0) {
+                    futures.add(completionService.submit(queries.get(futures.size())));
+                    running++;
+                }
+
+                final long remaining = deadline - System.currentTimeMillis();
+
+                if (remaining <= 0) {
+                    break;
+                }
+
+                final boolean canHedge = futures.size() < queries.size();
+                final long hedgeDelay = getHedgeDelay(futures.size() <= latencies.size() ? latencies.get(futures.size() - 1) : null);
+                final Future<T> future =
+                    completionService.poll(canHedge ? Math.min(remaining, hedgeDelay) : remaining, TimeUnit.MILLISECONDS);
+
+                if (future == null) {
+                    if (canHedge) {
+                        futures.add(completionService.submit(queries.get(futures.size())));
+                        running++;
+                    }
+                }
+                else {
+                    running--;
+                    final T answer = getAnswer(future);
+
+                    if (answer != null) {
+                        return answer;
+                    }
+
+                    if (canHedge) {
+                        futures.add(completionService.submit(queries.get(futures.size())));
+                        running++;
+                    }
+                }
+            }
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        finally {
+            cancel(futures);
+        }
+
+        return null;
+    }
+
+    /**
+     * Stop the executor.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Determine the time in milliseconds to wait for an answer of a registry before a hedged query is sent to the next registry.
+     *
+     * @param latencies
+     *            latencies of the calls to the registry, may be <code>null</code>.
+     * @return the configured percentile of the recorded latencies but not less than the configured minimum delay.
+     */
+    long getHedgeDelay(final LatencyTracker latencies) {
+        return latencies == null ? hedgeMinDelay : Math.max(hedgeMinDelay, latencies.getPercentile(hedgePercentile));
+    }
+
+    private <T> T firstArrivedAnswer(final List<Future<T>> futures) {
+        for (final Future<T> future : futures) {
+            if (future.isDone()) {
+                final T answer = getAnswer(future);
+
+                if (answer != null) {
+                    return answer;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    private <T> T getAnswer(final Future<T> future) {
+        try {
+            return getAnswer(future, 0);
+        }
+        catch (final TimeoutException e) {
+            return null;
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private <T> T getAnswer(final Future<T> future, final long wait) throws TimeoutException, InterruptedException {
+        try {
+            return future.get(wait, TimeUnit.MILLISECONDS);
+        }
+        catch (final CancellationException e) {
+            logger.fine("A query has been cancelled because its deadline passed.");
+        }
+        catch (final ExecutionException e) {
+            logger.log(Level.WARNING, "An error occured querying a bower registry.", e.getCause());
+        }
+
+        return null;
+    }
+
+    private <T> void cancel(final Collection<Future<T>> futures) {
+        for (final Future<T> future : futures) {
+            future.cancel(true);
+        }
+    }
+
+    /**
+     * Factory for daemon threads so running queries do not prevent shutting down the application.
+     *
+     * @author Dirk Weigenand
+     */
+    static class DaemonThreadFactory implements ThreadFactory {
+        /**
+         * prefix of thread names.
+         */
+        private final String prefix;
+
+        /**
+         * number of created threads.
+         */
+        private final AtomicInteger count = new AtomicInteger();
+
+        /**
+         * Create a thread factory using the given prefix for thread names.
+         *
+         * @param prefix
+         *            prefix of thread names.
+         */
+        DaemonThreadFactory(final String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public Thread newThread(final Runnable runnable) {
+            final Thread thread = new Thread(runnable, prefix + "-" + count.incrementAndGet());
+            thread.setDaemon(true);
+
+            return thread;
+        }
+    }
+}
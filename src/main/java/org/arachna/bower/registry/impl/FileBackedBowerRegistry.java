@@ -3,33 +3,47 @@
  */
 package org.arachna.bower.registry.impl;
 
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.Reader;
-import java.io.Writer;
 import java.util.Collection;
-import java.util.Map.Entry;
-import java.util.Properties;
+import java.util.Collections;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.arachna.bower.registry.BowerPackage;
 import org.arachna.bower.registry.BowerRegistry;
-import org.arachna.bower.registry.model.BowerPackageDescriptor;
 
 /**
- * A bower registry that persists the registry to a file on calls to {@see #register(BowerPackage)}.
+ * A bower registry that persists the registry to a file on calls to {@see #register(BowerPackage)}. Registrations are appended to a
+ * journal which is compacted into a binary snapshot when it grows beyond a configurable number of entries. Concurrent registrations are
+ * written to the journal together, every call to {@see #register(BowerPackage)} returns after its registration has been written.
+ * 
+ * When the registry delegates to a {@link MappedPackageStore} the store is written together with the snapshot and records the
+ * generation of the snapshot. On startup only the journal is replayed as long as the store contains the packages of the current snapshot.
  * 
  * @author Dirk Weigenand
  */
-public class FileBackedBowerRegistry implements BowerRegistry {
+public class FileBackedBowerRegistry implements BowerRegistry, Closeable {
     /**
-     * file name where package definitions should be stored.
+     * file name of package definitions in {@link java.util.Properties} format, imported on startup when no snapshot exists.
      */
     public static final String BOWER_PACKAGES = "bowerPackages.properties";
 
+    /**
+     * file name where the snapshot of package definitions should be stored.
+     */
+    public static final String BOWER_PACKAGES_SNAPSHOT = "bowerPackages.snapshot";
+
+    /**
+     * default number of journal entries that trigger a compaction of the journal into the snapshot.
+     */
+    public static final int DEFAULT_COMPACTION_THRESHOLD = 1000;
+
     /**
      * registry to delegate to.
      */
@@ -40,6 +54,21 @@ public class FileBackedBowerRegistry implements BowerRegistry {
      */
     private final File baseDir;
 
+    /**
+     * journal registrations are appended to.
+     */
+    private final PackageJournal journal;
+
+    /**
+     * number of journal entries that trigger a compaction of the journal into the snapshot.
+     */
+    private final int compactionThreshold;
+
+    /**
+     * queue collecting concurrent registrations into batches written to the journal at once.
+     */
+    private final GroupCommitQueue commitQueue;
+
     /**
      * Create an instance of a {@link BowerRegistry} that persists its registered {@link BowerPackages} to a file in the given directory.
      * The registry parameter is used to delegate all operations to.
@@ -50,8 +79,32 @@ public class FileBackedBowerRegistry implements BowerRegistry {
      *            folder to use when persisting registered packages.
      */
     public FileBackedBowerRegistry(BowerRegistry delegate, File baseDir) {
+        this(delegate, baseDir, DEFAULT_COMPACTION_THRESHOLD, GroupCommitQueue.DEFAULT_MAX_DELAY,
+            GroupCommitQueue.DEFAULT_MAX_BATCH_SIZE);
+    }
+
+    /**
+     * Create an instance of a {@link BowerRegistry} that persists its registered {@link BowerPackages} to a file in the given directory.
+     * The registry parameter is used to delegate all operations to.
+     * 
+     * @param delegate
+     *            bower registry to delegate to.
+     * @param baseDir
+     *            folder to use when persisting registered packages.
+     * @param compactionThreshold
+     *            number of journal entries that trigger a compaction of the journal into the snapshot.
+     * @param groupCommitDelay
+     *            maximum time in milliseconds a registration waits for concurrent registrations to be written together.
+     * @param groupCommitBatchSize
+     *            maximum number of registrations written together.
+     */
+    public FileBackedBowerRegistry(BowerRegistry delegate, File baseDir, int compactionThreshold, long groupCommitDelay,
+        int groupCommitBatchSize) {
         this.delegate = delegate;
         this.baseDir = baseDir;
+        this.compactionThreshold = compactionThreshold;
+        journal = new PackageJournal(baseDir, BOWER_PACKAGES_SNAPSHOT);
+        commitQueue = new GroupCommitQueue(journal, groupCommitDelay, groupCommitBatchSize);
     }
 
     @Override
@@ -59,35 +112,77 @@ public class FileBackedBowerRegistry implements BowerRegistry {
         return delegate.getAllPackages();
     }
 
+    /**
+     * Register the given package and return after it has been written to the journal.
+     *
+     * @throws IllegalStateException
+     *             when the package could not be written to the journal.
+     */
     @Override
     public void register(BowerPackage bowerPackage) throws IllegalArgumentException {
         delegate.register(bowerPackage);
-
-        savePackagesToFile();
+        persist(Collections.singleton(bowerPackage));
     }
 
-    private void savePackagesToFile() {
-        File oldPackageStore = new File(baseDir, BOWER_PACKAGES);
+    /**
+     * Register the given packages and write them to the journal with a single write.
+     *
+     * @throws IllegalStateException
+     *             when the packages could not be written to the journal.
+     */
+    @Override
+    public void registerAll(Collection<BowerPackage> bowerPackages) throws IllegalArgumentException {
+        delegate.registerAll(bowerPackages);
+        persist(bowerPackages);
+    }
 
+    /**
+     * Write the given packages to the journal and compact it if necessary.
+     *
+     * @param bowerPackages
+     *            the packages to write.
+     * @throws IllegalStateException
+     *             when the packages could not be written to the journal.
+     */
+    private void persist(Collection<BowerPackage> bowerPackages) {
         try {
-            File newPackageStore = File.createTempFile(BOWER_PACKAGES, "", baseDir);
-            Writer storeWriter = new FileWriter(newPackageStore);
+            commitQueue.commit(bowerPackages);
+        }
+        catch (IOException e) {
+            String message =
+                String.format("An error occured persisting registered bower packages to '%s'.", baseDir.getAbsolutePath());
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, message, e);
 
-            for (BowerPackage bowerPackage : delegate.getAllPackages()) {
-                storeWriter.append(bowerPackage.getName()).append("=").append(bowerPackage.getUrl()).append("\n");
-            }
+            throw new IllegalStateException(message, e);
+        }
 
-            storeWriter.close();
+        compactIfNecessary();
+    }
 
-            if (oldPackageStore.exists()) {
-                oldPackageStore.delete();
-            }
+    /**
+     * Compact the journal when it reached the configured number of entries.
+     */
+    private synchronized void compactIfNecessary() {
+        if (journal.size() >= compactionThreshold) {
+            compact();
+        }
+    }
+
+    /**
+     * Write all registered packages into a new snapshot and truncate the journal.
+     */
+    void compact() {
+        try {
+            long generation = journal.compact(delegate);
 
-            newPackageStore.renameTo(oldPackageStore);
+            if (delegate instanceof MappedPackageStore) {
+                ((MappedPackageStore)delegate).setSnapshotGeneration(generation);
+            }
         }
         catch (IOException e) {
             Logger.getLogger(getClass().getName()).log(Level.SEVERE,
-                String.format("An error occured persisting registered bower packages to '%s'.", oldPackageStore.getAbsolutePath()), e);
+                String.format("An error occured persisting registered bower packages to '%s'.",
+                    new File(baseDir, BOWER_PACKAGES_SNAPSHOT).getAbsolutePath()), e);
         }
     }
 
@@ -96,11 +191,26 @@ public class FileBackedBowerRegistry implements BowerRegistry {
         return delegate.getPackage(packageName);
     }
 
+    @Override
+    public Collection<BowerPackage> getPackages(Collection<String> packageNames) {
+        return delegate.getPackages(packageNames);
+    }
+
     @Override
     public Collection<BowerPackage> search(String packageName) {
         return delegate.search(packageName);
     }
 
+    @Override
+    public Collection<BowerPackage> search(String packageName, String cursor, int limit) {
+        return delegate.search(packageName, cursor, limit);
+    }
+
+    @Override
+    public long getVersion() {
+        return delegate.getVersion();
+    }
+
     /**
      * Load package descriptors from properties given in the <code>packages</code> argument.
      * 
@@ -110,35 +220,103 @@ public class FileBackedBowerRegistry implements BowerRegistry {
      *             when reading packages from the reader fails.
      */
     public void load(Reader packages) throws IOException {
-        Properties properties = new Properties();
-        properties.load(packages);
-
-        for (Entry<Object, Object> entry : properties.entrySet()) {
-            BowerPackage bowerPackage = new BowerPackageDescriptor((String)entry.getKey(), (String)entry.getValue());
-            this.delegate.register(bowerPackage);
-        }
-
-        packages.close();
+        PackageJournal.load(packages, delegate);
     }
 
     /**
-     * Factory method for a {@see FileBackedBowerRegistry}.
+     * Write all registered packages in {@link java.util.Properties} format to the given stream.
      * 
-     * @param registryBaseDir
-     * @return
+     * @param output
+     *            stream to write the package definitions to in pairs: <code>package name=package url</code>.
+     * @throws IOException
+     *             when writing the packages fails.
      */
-    static BowerRegistry create(File registryBaseDir, BowerRegistry delegate) {
-        File packages = new File(registryBaseDir, BOWER_PACKAGES);
-        FileBackedBowerRegistry bowerRegistry = new FileBackedBowerRegistry(delegate, registryBaseDir);
+    public void export(OutputStream output) throws IOException {
+        PackageJournal.export(delegate.getAllPackages(), output);
+    }
 
-        if (packages.exists()) {
+    /**
+     * Write pending registrations, close the journal and the registry delegated to.
+     */
+    @Override
+    public void close() {
+        commitQueue.close();
+        journal.close();
+
+        if (delegate instanceof Closeable) {
             try {
-                bowerRegistry.load(new FileReader(packages));
+                ((Closeable)delegate).close();
             }
             catch (IOException e) {
-                Logger.getLogger(FileBackedBowerRegistry.class.getName()).log(Level.SEVERE,
-                    String.format("An error occured reading packages from '%s'.", packages.getAbsolutePath()), e);
+                Logger.getLogger(getClass().getName()).log(Level.SEVERE,
+                    String.format("An error occured persisting registered bower packages to '%s'.", baseDir.getAbsolutePath()), e);
+            }
+        }
+    }
+
+    /**
+     * Factory method for a {@see FileBackedBowerRegistry}. Replays the persisted packages and compacts the journal if it is not empty.
+     * Packages in {@link java.util.Properties} format are imported when no snapshot exists yet. The snapshot is skipped when the given
+     * delegate is a {@link MappedPackageStore} recording the generation of the snapshot.
+     *
+     * When the persisted packages cannot be read the registry is not created, so an incomplete registry never compacts over a snapshot
+     * that is damaged or could not be read temporarily.
+     * 
+     * @param registryBaseDir
+     *            folder containing the persisted packages.
+     * @param delegate
+     *            bower registry to delegate to.
+     * @param compactionThreshold
+     *            number of journal entries that trigger a compaction of the journal into the snapshot.
+     * @param groupCommitDelay
+     *            maximum time in milliseconds a registration waits for concurrent registrations to be written together.
+     * @param groupCommitBatchSize
+     *            maximum number of registrations written together.
+     * @return the file backed registry.
+     * @throws IllegalStateException
+     *             when the persisted packages could not be read.
+     */
+    static BowerRegistry create(File registryBaseDir, BowerRegistry delegate, int compactionThreshold, long groupCommitDelay,
+        int groupCommitBatchSize) {
+        FileBackedBowerRegistry bowerRegistry =
+            new FileBackedBowerRegistry(delegate, registryBaseDir, compactionThreshold, groupCommitDelay, groupCommitBatchSize);
+        File snapshot = new File(registryBaseDir, BOWER_PACKAGES_SNAPSHOT);
+        File properties = new File(registryBaseDir, BOWER_PACKAGES);
+        boolean imported = false;
+
+        try {
+            if (!snapshot.exists() && properties.exists()) {
+                Logger.getLogger(FileBackedBowerRegistry.class.getName()).info(
+                    String.format("Importing packages from '%s'.", properties.getAbsolutePath()));
+                Reader reader = new InputStreamReader(new FileInputStream(properties), "ISO-8859-1");
+
+                try {
+                    bowerRegistry.load(reader);
+                }
+                finally {
+                    reader.close();
+                }
+
+                imported = true;
             }
+
+            // a mapped store written at the last compaction already contains the packages of the snapshot
+            long generation = bowerRegistry.journal.getGeneration();
+            bowerRegistry.journal.replay(delegate, generation == 0 || !(delegate instanceof MappedPackageStore)
+                || ((MappedPackageStore)delegate).getSnapshotGeneration() != generation);
+        }
+        catch (IOException e) {
+            // do not close the delegate, it would persist the packages read so far
+            bowerRegistry.commitQueue.close();
+            bowerRegistry.journal.close();
+
+            throw new IllegalStateException(String.format(
+                "An error occured reading packages from '%s'. Restore or remove the damaged files before restarting the registry.",
+                registryBaseDir.getAbsolutePath()), e);
+        }
+
+        if (imported || bowerRegistry.journal.size() > 0) {
+            bowerRegistry.compact();
         }
 
         return bowerRegistry;
@@ -0,0 +1,288 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.logging.Logger;
+
+import org.arachna.bower.registry.BowerPackage;
+
+/**
+ * Queue of registrations waiting to be appended to a {@link PackageJournal}. Registrations arriving concurrently are collected for at
+ * most a configurable delay or until a configurable number of registrations is reached and then appended to the journal with one single
+ * write to disk.
+ *
+ * @author Dirk Weigenand
+ */
+public class GroupCommitQueue implements Closeable {
+    /**
+     * default maximum time in milliseconds a registration waits for other registrations to join its batch.
+     */
+    public static final long DEFAULT_MAX_DELAY = 2;
+
+    /**
+     * default maximum number of registrations written in one batch.
+     */
+    public static final int DEFAULT_MAX_BATCH_SIZE = 256;
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    /**
+     * the journal to append registrations to.
+     */
+    private final PackageJournal journal;
+
+    /**
+     * maximum time in milliseconds a registration waits for other registrations to join its batch.
+     */
+    private final long maxDelay;
+
+    /**
+     * maximum number of registrations written in one batch.
+     */
+    private final int maxBatchSize;
+
+    /**
+     * registrations waiting to be written.
+     */
+    private final LinkedList<PendingRegistration> pending = new LinkedList<PendingRegistration>();
+
+    /**
+     * thread writing batches of registrations to the journal.
+     */
+    private final Thread writer;
+
+    /**
+     * indicates that this queue does not accept registrations any more.
+     */
+    private boolean closed;
+
+    /**
+     * Create a queue appending registrations to the given journal.
+     *
+     * @param journal
+     *            the journal to append registrations to.
+     * @param maxDelay
+     *            maximum time in milliseconds a registration waits for other registrations to join its batch.
+     * @param maxBatchSize
+     *            maximum number of registrations written in one batch.
+     */
+    public GroupCommitQueue(final PackageJournal journal, final long maxDelay, final int maxBatchSize) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("maximum batch size must be positive!");
+        }
+
+        this.journal = journal;
+        this.maxDelay = Math.max(0, maxDelay);
+        this.maxBatchSize = maxBatchSize;
+
+        writer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeBatches();
+            }
+        }, "bower-registry-group-commit");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Append the given packages to the journal. Returns after the batch containing the packages has been written to disk.
+     *
+     * @param bowerPackages
+     *            packages to append to the journal.
+     * @throws IOException
+     *             when writing the batch fails or the queue has been closed.
+     */
+    public void commit(final Collection<BowerPackage> bowerPackages) throws IOException {
+        final PendingRegistration registration = new PendingRegistration(bowerPackages);
+
+        synchronized (pending) {
+            if (closed) {
+                throw new IOException("The journal has already been closed.");
+            }
+
+            pending.add(registration);
+            pending.notifyAll();
+        }
+
+        registration.await();
+    }
+
+    /**
+     * Write the pending registrations and stop the writer thread.
+     */
+    @Override
+    public void close() {
+        synchronized (pending) {
+            closed = true;
+            pending.notifyAll();
+        }
+
+        try {
+            writer.join();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return the thread writing batches of registrations to the journal.
+     */
+    Thread getWriter() {
+        return writer;
+    }
+
+    /**
+     * Write batches until the queue has been closed. When the writer stops for any other reason, e.g. because it has been interrupted,
+     * the queue is closed and pending registrations fail, so no caller of {@link #commit(Collection)} waits forever.
+     */
+    private void writeBatches() {
+        try {
+            writeBatchesUntilClosed();
+        }
+        finally {
+            final List<PendingRegistration> failed;
+
+            synchronized (pending) {
+                closed = true;
+                failed = new ArrayList<PendingRegistration>(pending);
+                pending.clear();
+            }
+
+            for (final PendingRegistration registration : failed) {
+                registration.done(new IOException("The journal writer has stopped."));
+            }
+        }
+    }
+
+    private void writeBatchesUntilClosed() {
+        List<PendingRegistration> batch = nextBatch();
+
+        while (batch != null) {
+            final Collection<BowerPackage> packages = new ArrayList<BowerPackage>();
+
+            for (final PendingRegistration registration : batch) {
+                packages.addAll(registration.packages);
+            }
+
+            IOException failure = null;
+
+            try {
+                journal.append(packages);
+            }
+            catch (final IOException e) {
+                failure = e;
+            }
+            catch (final RuntimeException e) {
+                failure = new IOException(e);
+            }
+
+            for (final PendingRegistration registration : batch) {
+                registration.done(failure);
+            }
+
+            batch = nextBatch();
+        }
+
+        logger.fine("Group commit writer stopped.");
+    }
+
+    /**
+     * Wait for pending registrations and collect them into a batch.
+     *
+     * @return the next batch of registrations or <code>null</code> when the queue has been closed and all registrations were written.
+     */
+    private List<PendingRegistration> nextBatch() {
+        synchronized (pending) {
+            try {
+                while (pending.isEmpty() && !closed) {
+                    pending.wait();
+                }
+
+                final long deadline = System.currentTimeMillis() + maxDelay;
+                long remaining = maxDelay;
+
+                while (pending.size() < maxBatchSize && !closed && remaining > 0) {
+                    pending.wait(remaining);
+                    remaining = deadline - System.currentTimeMillis();
+                }
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                logger.warning("Group commit writer has been interrupted.");
+
+                return null;
+            }
+
+            if (pending.isEmpty()) {
+                return null;
+            }
+
+            final List<PendingRegistration> batch = new ArrayList<PendingRegistration>();
+
+            while (!pending.isEmpty() && batch.size() < maxBatchSize) {
+                batch.add(pending.removeFirst());
+            }
+
+            return batch;
+        }
+    }
+
+    /**
+     * A registration waiting to be written to the journal.
+     *
+     * @author Dirk Weigenand
+     */
+    private static class PendingRegistration {
+        /**
+         * the packages to append to the journal.
+         */
+        private final Collection<BowerPackage> packages;
+
+        /**
+         * signals that the batch containing this registration has been written.
+         */
+        private final CountDownLatch written = new CountDownLatch(1);
+
+        /**
+         * the exception that occured writing the batch containing this registration.
+         */
+        private volatile IOException failure;
+
+        PendingRegistration(final Collection<BowerPackage> packages) {
+            this.packages = packages;
+        }
+
+        void done(final IOException failure) {
+            this.failure = failure;
+            written.countDown();
+        }
+
+        void await() throws IOException {
+            try {
+                written.await();
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for the journal to be written.");
+            }
+
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.Arrays;
+
+/**
+ * Records the latencies of the most recent calls and calculates percentiles over them.
+ *
+ * @author Dirk Weigenand
+ */
+public class LatencyTracker {
+    /**
+     * default number of most recent latencies recorded.
+     */
+    public static final int DEFAULT_WINDOW_SIZE = 128;
+
+    /**
+     * default number of latencies needed before percentiles are calculated.
+     */
+    public static final int DEFAULT_MINIMUM_SAMPLES = 20;
+
+    /**
+     * most recent latencies in milliseconds used as a ring buffer.
+     */
+    private final long[] latencies;
+
+    /**
+     * number of latencies needed before percentiles are calculated.
+     */
+    private final int minimumSamples;
+
+    /**
+     * number of latencies recorded so far.
+     */
+    private long recorded;
+
+    /**
+     * Create a tracker recording the default number of latencies.
+     */
+    public LatencyTracker() {
+        this(DEFAULT_WINDOW_SIZE, DEFAULT_MINIMUM_SAMPLES);
+    }
+
+    /**
+     * Create a tracker recording the given number of latencies.
+     *
+     * @param windowSize
+     *            number of most recent latencies recorded.
+     * @param minimumSamples
+     *            number of latencies needed before percentiles are calculated.
+     */
+    public LatencyTracker(final int windowSize, final int minimumSamples) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("window size must be positive!");
+        }
+
+        latencies = new long[windowSize];
+        this.minimumSamples = Math.max(1, Math.min(windowSize, minimumSamples));
+    }
+
+    /**
+     * Record the latency of a call.
+     *
+     * @param latency
+     *            latency of the call in milliseconds.
+     */
+    public synchronized void record(final long latency) {
+        latencies[(int)(recorded % latencies.length)] = latency;
+        recorded++;
+    }
+
+    /**
+     * @return the number of latencies recorded so far.
+     */
+    public synchronized long getCount() {
+        return recorded;
+    }
+
+    /**
+     * Calculate the given percentile of the recorded latencies.
+     *
+     * @param percentile
+     *            the percentile to calculate (1 - 100).
+     * @return the latency in milliseconds the given percentage of recorded calls did not exceed or <code>-1</code> when not enough
+     *         latencies have been recorded yet.
+     */
+    public long getPercentile(final int percentile) {
+        final long[] samples;
+
+        synchronized (this) {
+            if (recorded < minimumSamples) {
+                return -1;
+            }
+
+            samples = Arrays.copyOf(latencies, (int)Math.min(recorded, latencies.length));
+        }
+
+        Arrays.sort(samples);
+        final int rank = (int)Math.ceil(Math.max(1, Math.min(100, percentile)) / 100d * samples.length);
+
+        return samples[Math.max(0, rank - 1)];
+    }
+}
@@ -0,0 +1,1005 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.arachna.bower.registry.BowerPackage;
+
+/**
+ * A {@link PackageStore} keeping its packages in a memory mapped file outside of the heap.
+ *
+ * The file contains a table of package names and URLs sorted by name, an index of the table rows and a hash table of row numbers. Look
+ * ups use the hash table, listing and paging read the sorted rows starting at the row found by binary search. Nothing is deserialized
+ * when the file is opened, so a large store is available immediately after a restart. Listing all packages returns a view iterating
+ * over the rows, searches match the UTF-8 encoded names in the file and decode only the names of matching rows.
+ *
+ * A file is never changed once written. Changes are kept in memory and merged into a new file when {@link #flush()} is called or the
+ * number of changes exceeds a threshold. Each file is named after the store followed by a generation number incremented with every
+ * write. The header is written last, so on startup the valid file with the highest generation is mapped. Files of older generations are
+ * deleted after the new file has been mapped. Some platforms refuse to delete a file still mapped, deleting it is retried with the next
+ * write then.
+ *
+ * The header records the generation of the {@link PackageSnapshot} the store contains the packages of, so a
+ * {@link FileBackedBowerRegistry} needs to replay only its journal on startup.
+ *
+ * File layout (all numbers are big endian 32 bit integers unless noted otherwise):
+ * <ul>
+ * <li>header: magic number, format version, number of rows, number of hash table slots, offset of the row index, offset of the hash
+ * table, generation of the snapshot as 64 bit integer</li>
+ * <li>rows sorted by name: length of the name, UTF-8 encoded name, length of the URL, UTF-8 encoded URL</li>
+ * <li>row index: offsets of the rows</li>
+ * <li>hash table: number of row plus one, <code>0</code> for empty slots</li>
+ * </ul>
+ *
+ * @author Dirk Weigenand
+ */
+public class MappedPackageStore implements PackageStore, Flushable, Closeable {
+    /**
+     * default number of changes kept in memory before they are written to the file.
+     */
+    public static final int DEFAULT_FLUSH_THRESHOLD = 10000;
+
+    /**
+     * magic number identifying package store files.
+     */
+    static final int MAGIC = 0x42525053;
+
+    /**
+     * version of the file format.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * size of the file header in bytes.
+     */
+    private static final int HEADER_SIZE = 32;
+
+    /**
+     * encoding of names and URLs.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * generation numbers following the name of the store in the names of its files.
+     */
+    private static final Pattern GENERATION = Pattern.compile("[0-9]{1,18}");
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    /**
+     * the store file, the generation number is appended to its name.
+     */
+    private final File file;
+
+    /**
+     * number of changes kept in memory before they are written to the file.
+     */
+    private final int flushThreshold;
+
+    /**
+     * lock guarding table and changes.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * the mapped file, <code>null</code> when no file has been written yet.
+     */
+    private Table table;
+
+    /**
+     * generation of the mapped file, <code>-1</code> when no file has been written yet.
+     */
+    private long generation = -1;
+
+    /**
+     * packages registered since the file has been written.
+     */
+    private final TreeMap<String, BowerPackage> added = new TreeMap<String, BowerPackage>();
+
+    /**
+     * names of packages contained in the file that were removed since the file has been written.
+     */
+    private final Set<String> removed = new HashSet<String>();
+
+    /**
+     * rows of the file whose packages were removed since the file has been written.
+     */
+    private final BitSet removedRows = new BitSet();
+
+    /**
+     * number of registered packages.
+     */
+    private int count;
+
+    /**
+     * version of the registered packages.
+     */
+    private volatile long version = RegistryVersion.next();
+
+    /**
+     * Create a store using the given file. The newest valid generation of the file is mapped, invalid files are ignored and replaced
+     * with the next flush.
+     *
+     * @param file
+     *            the store file, the generation number is appended to its name.
+     */
+    public MappedPackageStore(final File file) {
+        this(file, DEFAULT_FLUSH_THRESHOLD);
+    }
+
+    /**
+     * Create a store using the given file. The newest valid generation of the file is mapped, invalid files are ignored and replaced
+     * with the next flush.
+     *
+     * @param file
+     *            the store file, the generation number is appended to its name.
+     * @param flushThreshold
+     *            number of changes kept in memory before they are written to the file.
+     */
+    public MappedPackageStore(final File file, final int flushThreshold) {
+        this.file = file;
+        this.flushThreshold = Math.max(1, flushThreshold);
+
+        for (final Map.Entry<Long, File> candidate : getGenerations().entrySet()) {
+            try {
+                table = Table.map(candidate.getValue());
+                generation = candidate.getKey();
+                count = table.rows;
+                break;
+            }
+            catch (final IOException e) {
+                logger.log(Level.WARNING,
+                    String.format("Ignoring invalid package store '%s'.", candidate.getValue().getAbsolutePath()), e);
+            }
+        }
+
+        deleteOldGenerations();
+    }
+
+    /**
+     * @return the generation of the {@link PackageSnapshot} recorded in the mapped file, <code>0</code> when none has been recorded.
+     */
+    public long getSnapshotGeneration() {
+        lock.readLock().lock();
+
+        try {
+            return table == null ? 0 : table.snapshotGeneration;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Write all packages into a new file recording the generation of the {@link PackageSnapshot} they have been written to.
+     *
+     * @param snapshotGeneration
+     *            generation of the snapshot containing the packages registered with this store.
+     * @throws IOException
+     *             when the file could not be written.
+     */
+    public void setSnapshotGeneration(final long snapshotGeneration) throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            write(snapshotGeneration);
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns a view iterating over the rows of the mapped file merged with the changes kept in memory. Only the changes are copied, so
+     * the view is not affected by later changes.
+     */
+    @Override
+    public Collection<BowerPackage> getAllPackages() {
+        lock.readLock().lock();
+
+        try {
+            return new Snapshot(table, new TreeMap<String, BowerPackage>(added), (BitSet)removedRows.clone(), count);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void register(final BowerPackage bowerPackage) {
+        registerAll(Collections.singleton(bowerPackage));
+    }
+
+    @Override
+    public void registerAll(final Collection<BowerPackage> bowerPackages) {
+        lock.writeLock().lock();
+
+        try {
+            for (final BowerPackage bowerPackage : bowerPackages) {
+                final String name = bowerPackage.getName();
+
+                final boolean wasRemoved = removed.remove(name);
+
+                if (added.put(name, bowerPackage) == null && (wasRemoved || !isInTable(name))) {
+                    count++;
+                }
+            }
+
+            flushIfNecessary();
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        version = RegistryVersion.next();
+    }
+
+    @Override
+    public BowerPackage unregister(final String packageName) {
+        BowerPackage bowerPackage;
+
+        lock.writeLock().lock();
+
+        try {
+            bowerPackage = added.remove(packageName);
+
+            if (!removed.contains(packageName) && table != null) {
+                final int row = table.find(packageName);
+
+                if (row >= 0) {
+                    removed.add(packageName);
+                    removedRows.set(row);
+
+                    if (bowerPackage == null) {
+                        bowerPackage = table.getPackage(row);
+                    }
+                }
+            }
+
+            if (bowerPackage != null) {
+                count--;
+                flushIfNecessary();
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+
+        if (bowerPackage != null) {
+            version = RegistryVersion.next();
+        }
+
+        return bowerPackage;
+    }
+
+    @Override
+    public BowerPackage getPackage(final String packageName) {
+        lock.readLock().lock();
+
+        try {
+            final BowerPackage bowerPackage = added.get(packageName);
+
+            if (bowerPackage != null || table == null || removed.contains(packageName)) {
+                return bowerPackage;
+            }
+
+            final int row = table.find(packageName);
+
+            return row < 0 ? null : table.getPackage(row);
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Collection<BowerPackage> getPackages(final Collection<String> packageNames) {
+        final Collection<BowerPackage> found = new ArrayList<BowerPackage>(packageNames.size());
+
+        for (final String packageName : packageNames) {
+            final BowerPackage bowerPackage = getPackage(packageName);
+
+            if (bowerPackage != null) {
+                found.add(bowerPackage);
+            }
+        }
+
+        return found;
+    }
+
+    @Override
+    public Collection<BowerPackage> search(final String packageName) {
+        return select(packageName, null, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Search one page of packages. The rows of the file following the cursor are found by binary search and read in order until the
+     * page is full.
+     */
+    @Override
+    public Collection<BowerPackage> search(final String packageName, final String cursor, final int limit) {
+        return select(packageName, cursor, limit);
+    }
+
+    @Override
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int size() {
+        lock.readLock().lock();
+
+        try {
+            return count;
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Merge the changes kept in memory into a new file replacing the current one.
+     *
+     * @throws IOException
+     *             when the file could not be written.
+     */
+    @Override
+    public void flush() throws IOException {
+        lock.writeLock().lock();
+
+        try {
+            if (!added.isEmpty() || !removed.isEmpty() || table == null) {
+                write(getSnapshotGeneration());
+            }
+        }
+        finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Write pending changes to the file.
+     */
+    @Override
+    public void close() {
+        try {
+            flush();
+        }
+        catch (final IOException e) {
+            logger.log(Level.SEVERE, String.format("Could not write package store '%s'.", file.getAbsolutePath()), e);
+        }
+    }
+
+    private boolean isInTable(final String packageName) {
+        return table != null && table.find(packageName) >= 0;
+    }
+
+    private void flushIfNecessary() {
+        if (added.size() + removed.size() >= flushThreshold) {
+            try {
+                write(getSnapshotGeneration());
+            }
+            catch (final IOException e) {
+                logger.log(Level.SEVERE, String.format("Could not write package store '%s'.", file.getAbsolutePath()), e);
+            }
+        }
+    }
+
+    /**
+     * Select the packages whose names contain the given string and follow the given cursor in order of their names.
+     */
+    private List<BowerPackage> select(final String packageName, final String cursor, final int limit) {
+        final List<BowerPackage> packages = new ArrayList<BowerPackage>();
+
+        lock.readLock().lock();
+
+        try {
+            final SortedMap<String, BowerPackage> changes = StringUtils.isEmpty(cursor) ? added : added.tailMap(cursor, false);
+            final Iterator<BowerPackage> candidates =
+                new Merge(table, table == null ? 0 : table.firstRowAfter(cursor), changes, removedRows, packageName);
+
+            while (packages.size() < limit && candidates.hasNext()) {
+                packages.add(candidates.next());
+            }
+        }
+        finally {
+            lock.readLock().unlock();
+        }
+
+        return packages;
+    }
+
+    /**
+     * Write all packages into a file of the next generation, map it and forget the changes kept in memory. The mapped file is neither
+     * renamed nor overwritten. Must be called holding the write lock.
+     */
+    private void write(final long snapshotGeneration) throws IOException {
+        final List<BowerPackage> packages = select(null, null, Integer.MAX_VALUE);
+        final File directory = getDirectory();
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException(String.format("Could not create folder '%s'.", directory.getAbsolutePath()));
+        }
+
+        // a file of the next generation left by a failed write is not mapped and may be overwritten
+        final File next = new File(directory, file.getName() + "." + (generation + 1));
+        Table.write(next, packages, snapshotGeneration);
+
+        table = Table.map(next);
+        generation++;
+        count = table.rows;
+        added.clear();
+        removed.clear();
+        removedRows.clear();
+        deleteOldGenerations();
+    }
+
+    private File getDirectory() {
+        return file.getAbsoluteFile().getParentFile();
+    }
+
+    /**
+     * @return the files of this store mapped by their generation, newest first.
+     */
+    private SortedMap<Long, File> getGenerations() {
+        final SortedMap<Long, File> generations = new TreeMap<Long, File>(Collections.reverseOrder());
+        final String prefix = file.getName() + ".";
+        final File[] files = getDirectory().listFiles();
+
+        if (files != null) {
+            for (final File candidate : files) {
+                final String name = candidate.getName();
+
+                if (name.startsWith(prefix) && GENERATION.matcher(name.substring(prefix.length())).matches()) {
+                    generations.put(Long.valueOf(name.substring(prefix.length())), candidate);
+                }
+            }
+        }
+
+        return generations;
+    }
+
+    /**
+     * Delete all files of this store except the mapped one.
+     */
+    private void deleteOldGenerations() {
+        for (final Map.Entry<Long, File> old : getGenerations().entrySet()) {
+            if (old.getKey() != generation && !old.getValue().delete()) {
+                // the file may still be mapped, deleting it is retried with the next write
+                logger.fine(String.format("Could not delete package store '%s'.", old.getValue().getAbsolutePath()));
+            }
+        }
+    }
+
+    /**
+     * A mapped package store file.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class Table {
+        /**
+         * the mapped file.
+         */
+        private final ByteBuffer buffer;
+
+        /**
+         * number of rows.
+         */
+        private final int rows;
+
+        /**
+         * number of hash table slots.
+         */
+        private final int slots;
+
+        /**
+         * offset of the row index.
+         */
+        private final int indexOffset;
+
+        /**
+         * offset of the hash table.
+         */
+        private final int hashOffset;
+
+        /**
+         * generation of the snapshot containing the packages of the file.
+         */
+        private final long snapshotGeneration;
+
+        private Table(final ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+
+            if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a package store file.");
+            }
+
+            if (buffer.getInt(4) != FORMAT_VERSION) {
+                throw new IOException(String.format("Unsupported package store format %d.", buffer.getInt(4)));
+            }
+
+            rows = buffer.getInt(8);
+            slots = buffer.getInt(12);
+            indexOffset = buffer.getInt(16);
+            hashOffset = buffer.getInt(20);
+            snapshotGeneration = buffer.getLong(24);
+
+            if (rows < 0 || slots <= rows || Integer.bitCount(slots) != 1 || indexOffset < HEADER_SIZE
+                || (long)indexOffset + 4L * rows != hashOffset || (long)hashOffset + 4L * slots != buffer.capacity()) {
+                throw new IOException("The package store file is corrupt.");
+            }
+        }
+
+        /**
+         * Map the given file.
+         *
+         * @param file
+         *            the file to map.
+         * @return the mapped file.
+         * @throws IOException
+         *             when the file cannot be mapped or is not a valid package store file.
+         */
+        static Table map(final File file) throws IOException {
+            final RandomAccessFile input = new RandomAccessFile(file, "r");
+
+            try {
+                // the mapping stays valid after the file has been closed
+                return new Table(input.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, input.length()));
+            }
+            finally {
+                input.close();
+            }
+        }
+
+        /**
+         * Write the given packages into a new file.
+         *
+         * @param file
+         *            the file to write.
+         * @param packages
+         *            the packages ordered by name.
+         * @param snapshotGeneration
+         *            generation of the snapshot containing the packages.
+         * @throws IOException
+         *             when writing the file fails.
+         */
+        static void write(final File file, final List<BowerPackage> packages, final long snapshotGeneration) throws IOException {
+            int slots = 16;
+
+            while (slots < packages.size() * 2) {
+                slots <<= 1;
+            }
+
+            final int[] offsets = new int[packages.size()];
+            final int[] hashTable = new int[slots];
+            final FileOutputStream stream = new FileOutputStream(file);
+            final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+
+            try {
+                output.write(new byte[HEADER_SIZE]);
+
+                for (int row = 0; row < packages.size(); row++) {
+                    final BowerPackage bowerPackage = packages.get(row);
+                    final byte[] name = bowerPackage.getName().getBytes(UTF8);
+                    final byte[] url = StringUtils.defaultString(bowerPackage.getUrl()).getBytes(UTF8);
+
+                    offsets[row] = output.size();
+                    output.writeInt(name.length);
+                    output.write(name);
+                    output.writeInt(url.length);
+                    output.write(url);
+
+                    int slot = hash(bowerPackage.getName()) & (slots - 1);
+
+                    while (hashTable[slot] != 0) {
+                        slot = (slot + 1) & (slots - 1);
+                    }
+
+                    hashTable[slot] = row + 1;
+                }
+
+                final int indexOffset = output.size();
+
+                for (final int offset : offsets) {
+                    output.writeInt(offset);
+                }
+
+                final int hashOffset = output.size();
+
+                for (final int value : hashTable) {
+                    output.writeInt(value);
+                }
+
+                output.flush();
+                // the header must not reach the disk before the rows, it marks the file as complete
+                stream.getChannel().force(true);
+
+                final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(packages.size()).putInt(slots).putInt(indexOffset)
+                    .putInt(hashOffset).putLong(snapshotGeneration).flip();
+                stream.getChannel().write(header, 0);
+                stream.getChannel().force(true);
+            }
+            finally {
+                output.close();
+            }
+        }
+
+        private static int hash(final String packageName) {
+            final int hash = packageName.hashCode();
+
+            return hash ^ (hash >>> 16);
+        }
+
+        /**
+         * Find the row of the package with the given name.
+         *
+         * @return the row or <code>-1</code> when no package with the given name is contained.
+         */
+        int find(final String packageName) {
+            final byte[] name = packageName.getBytes(UTF8);
+
+            for (int slot = hash(packageName) & (slots - 1);; slot = (slot + 1) & (slots - 1)) {
+                final int value = buffer.getInt(hashOffset + 4 * slot);
+
+                if (value == 0) {
+                    return -1;
+                }
+
+                if (hasName(value - 1, name)) {
+                    return value - 1;
+                }
+            }
+        }
+
+        /**
+         * Find the first row whose name follows the given cursor.
+         *
+         * @param cursor
+         *            name of the last package of the previous page, may be empty.
+         * @return the first row following the cursor.
+         */
+        int firstRowAfter(final String cursor) {
+            return StringUtils.isEmpty(cursor) ? 0 : firstRow(0, cursor, true);
+        }
+
+        /**
+         * Find the first row starting at the given row whose name does not precede the given name.
+         *
+         * @param from
+         *            the first row to consider.
+         * @param packageName
+         *            the name to look for.
+         * @return the first row whose name equals or follows the given name.
+         */
+        int firstRowFrom(final int from, final String packageName) {
+            return firstRow(from, packageName, false);
+        }
+
+        private int firstRow(final int from, final String packageName, final boolean after) {
+            int low = from;
+            int high = rows;
+
+            while (low < high) {
+                final int middle = (low + high) >>> 1;
+                final int order = getName(middle).compareTo(packageName);
+
+                if (order < 0 || after && order == 0) {
+                    low = middle + 1;
+                }
+                else {
+                    high = middle;
+                }
+            }
+
+            return low;
+        }
+
+        String getName(final int row) {
+            final int offset = buffer.getInt(indexOffset + 4 * row);
+
+            return decode(offset + 4, buffer.getInt(offset));
+        }
+
+        BowerPackage getPackage(final int row) {
+            return new MappedPackage(this, buffer.getInt(indexOffset + 4 * row));
+        }
+
+        /**
+         * Determine whether the name of the given row contains the given UTF-8 encoded string without decoding the name.
+         */
+        boolean nameContains(final int row, final byte[] pattern) {
+            final int offset = buffer.getInt(indexOffset + 4 * row);
+            final int last = offset + 4 + buffer.getInt(offset) - pattern.length;
+
+            for (int start = offset + 4; start <= last; start++) {
+                int i = 0;
+
+                while (i < pattern.length && buffer.get(start + i) == pattern[i]) {
+                    i++;
+                }
+
+                if (i == pattern.length) {
+                    return true;
+                }
+            }
+
+            return false;
+        }
+
+        boolean hasName(final int row, final byte[] name) {
+            final int offset = buffer.getInt(indexOffset + 4 * row);
+
+            if (buffer.getInt(offset) != name.length) {
+                return false;
+            }
+
+            for (int i = 0; i < name.length; i++) {
+                if (buffer.get(offset + 4 + i) != name[i]) {
+                    return false;
+                }
+            }
+
+            return true;
+        }
+
+        private String decode(final int offset, final int length) {
+            final byte[] bytes = new byte[length];
+            final ByteBuffer view = buffer.duplicate();
+            view.position(offset);
+            view.get(bytes);
+
+            return new String(bytes, UTF8);
+        }
+    }
+
+    /**
+     * Iterates over the rows of a mapped file merged with the changes kept in memory in order of the package names. Removed rows and
+     * rows replaced by a change are skipped. Rows preceding the next change are found by binary search, so the names of the rows need
+     * not be decoded to merge them.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Merge implements Iterator<BowerPackage> {
+        /**
+         * the mapped file, <code>null</code> when no file has been written yet.
+         */
+        private final Table table;
+
+        /**
+         * number of rows of the mapped file.
+         */
+        private final int rows;
+
+        /**
+         * the changes ordered by name.
+         */
+        private final Iterator<BowerPackage> changes;
+
+        /**
+         * rows of the file whose packages were removed.
+         */
+        private final BitSet removedRows;
+
+        /**
+         * string the names of returned packages must contain, <code>null</code> to return all packages.
+         */
+        private final String filter;
+
+        /**
+         * UTF-8 encoded filter.
+         */
+        private final byte[] pattern;
+
+        /**
+         * the next change, <code>null</code> when all changes have been read.
+         */
+        private BowerPackage change;
+
+        /**
+         * the next row to read.
+         */
+        private int row;
+
+        /**
+         * first row whose name does not precede the name of the next change.
+         */
+        private int boundary;
+
+        /**
+         * the next package to return, <code>null</code> when all packages have been returned.
+         */
+        private BowerPackage next;
+
+        Merge(final Table table, final int row, final SortedMap<String, BowerPackage> changes, final BitSet removedRows,
+            final String filter) {
+            this.table = table;
+            this.rows = table == null ? 0 : table.rows;
+            this.row = row;
+            this.changes = changes.values().iterator();
+            this.removedRows = removedRows;
+            this.filter = StringUtils.isEmpty(filter) ? null : filter;
+            this.pattern = this.filter == null ? null : filter.getBytes(UTF8);
+            nextChange();
+            next = advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public BowerPackage next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+
+            final BowerPackage current = next;
+            next = advance();
+
+            return current;
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+
+        private BowerPackage advance() {
+            while (change != null || row < rows) {
+                BowerPackage candidate;
+
+                if (row < boundary) {
+                    candidate = getRow(row++);
+                }
+                else {
+                    if (row < rows && table.hasName(row, change.getName().getBytes(UTF8))) {
+                        // the change replaces the row
+                        row++;
+                    }
+
+                    candidate = filter == null || change.getName().contains(filter) ? change : null;
+                    nextChange();
+                }
+
+                if (candidate != null) {
+                    return candidate;
+                }
+            }
+
+            return null;
+        }
+
+        private BowerPackage getRow(final int candidate) {
+            if (removedRows.get(candidate) || pattern != null && !table.nameContains(candidate, pattern)) {
+                return null;
+            }
+
+            return table.getPackage(candidate);
+        }
+
+        private void nextChange() {
+            change = changes.hasNext() ? changes.next() : null;
+            boundary = change == null || rows == 0 ? rows : table.firstRowFrom(row, change.getName());
+        }
+    }
+
+    /**
+     * Unmodifiable view of all packages of a store.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class Snapshot extends AbstractCollection<BowerPackage> {
+        /**
+         * the mapped file, <code>null</code> when no file has been written yet.
+         */
+        private final Table table;
+
+        /**
+         * copy of the changes kept in memory.
+         */
+        private final SortedMap<String, BowerPackage> changes;
+
+        /**
+         * copy of the removed rows.
+         */
+        private final BitSet removedRows;
+
+        /**
+         * number of packages.
+         */
+        private final int count;
+
+        Snapshot(final Table table, final SortedMap<String, BowerPackage> changes, final BitSet removedRows, final int count) {
+            this.table = table;
+            this.changes = changes;
+            this.removedRows = removedRows;
+            this.count = count;
+        }
+
+        @Override
+        public Iterator<BowerPackage> iterator() {
+            return new Merge(table, 0, changes, removedRows, null);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    /**
+     * A bower package reading its name and URL from a row of a mapped file.
+     *
+     * @author Dirk Weigenand
+     */
+    static final class MappedPackage implements BowerPackage {
+        /**
+         * the mapped file.
+         */
+        private final Table table;
+
+        /**
+         * offset of the row.
+         */
+        private final int offset;
+
+        MappedPackage(final Table table, final int offset) {
+            this.table = table;
+            this.offset = offset;
+        }
+
+        @Override
+        public String getName() {
+            return table.decode(offset + 4, table.buffer.getInt(offset));
+        }
+
+        @Override
+        public String getUrl() {
+            final int urlOffset = offset + 4 + table.buffer.getInt(offset);
+
+            return table.decode(urlOffset + 4, table.buffer.getInt(urlOffset));
+        }
+
+        @Override
+        public String toString() {
+            return getName() + "=" + getUrl();
+        }
+    }
+}
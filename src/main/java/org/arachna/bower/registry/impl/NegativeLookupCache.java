@@ -0,0 +1,120 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Cache of package names no bower registry could resolve. Lookups of these names are answered locally until the cached entry expires.
+ *
+ * @author Dirk Weigenand
+ */
+public class NegativeLookupCache {
+    /**
+     * default time in milliseconds a failed lookup is remembered.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 30000;
+
+    /**
+     * default maximum number of remembered package names.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    /**
+     * time in milliseconds a failed lookup is remembered.
+     */
+    private final long timeToLive;
+
+    /**
+     * maximum number of remembered package names.
+     */
+    private final int maxSize;
+
+    /**
+     * package names mapped to the time their entry expires.
+     */
+    private final ConcurrentMap<String, Long> missingPackages = new ConcurrentHashMap<String, Long>();
+
+    /**
+     * Create a cache remembering failed lookups for the given time.
+     *
+     * @param timeToLive
+     *            time in milliseconds a failed lookup is remembered. A value less or equal to zero disables the cache.
+     * @param maxSize
+     *            maximum number of remembered package names.
+     */
+    public NegativeLookupCache(final long timeToLive, final int maxSize) {
+        this.timeToLive = timeToLive;
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Determine whether a lookup of the given package name failed recently.
+     *
+     * @param packageName
+     *            name of package to look up.
+     * @return <code>true</code> when a lookup of the package failed within the time to live, <code>false</code> otherwise.
+     */
+    public boolean isMissing(final String packageName) {
+        final Long expires = missingPackages.get(packageName);
+
+        if (expires == null) {
+            return false;
+        }
+
+        if (expires.longValue() <= System.currentTimeMillis()) {
+            missingPackages.remove(packageName, expires);
+
+            return false;
+        }
+
+        return true;
+    }
+
+    /**
+     * Remember that no bower registry could resolve the given package name.
+     *
+     * @param packageName
+     *            name of package that could not be resolved.
+     */
+    public void add(final String packageName) {
+        if (timeToLive <= 0 || packageName == null) {
+            return;
+        }
+
+        final long now = System.currentTimeMillis();
+
+        if (missingPackages.size() >= maxSize) {
+            removeExpired(now);
+
+            if (missingPackages.size() >= maxSize) {
+                return;
+            }
+        }
+
+        missingPackages.put(packageName, Long.valueOf(now + timeToLive));
+    }
+
+    /**
+     * Forget a failed lookup of the given package name, e.g. because it has been registered.
+     *
+     * @param packageName
+     *            name of package to forget.
+     */
+    public void invalidate(final String packageName) {
+        if (packageName != null) {
+            missingPackages.remove(packageName);
+        }
+    }
+
+    private void removeExpired(final long now) {
+        for (final Iterator<Long> iterator = missingPackages.values().iterator(); iterator.hasNext();) {
+            if (iterator.next().longValue() <= now) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,513 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+import org.apache.commons.lang3.StringUtils;
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+
+/**
+ * Size bounded cache of bower packages with a time to live. When the cache is full the least recently used package is evicted.
+ *
+ * Packages whose time to live expired are considered stale. Stale packages are still returned by {@link #lookup(String)} until their
+ * hard expiry is reached so they can be served while they are being revalidated.
+ *
+ * The cached packages can be written to a file together with the times they have been fetched and read back after a restart. Packages
+ * read from a file are considered stale on their first lookup, so they are served immediately and revalidated in the background.
+ *
+ * @author Dirk Weigenand
+ */
+public class PackageCache implements PackageCacheMBean {
+    /**
+     * default maximum number of cached packages.
+     */
+    public static final int DEFAULT_MAX_SIZE = 10000;
+
+    /**
+     * default time to live of cached packages in milliseconds.
+     */
+    public static final long DEFAULT_TIME_TO_LIVE = 60L * 60L * 1000L;
+
+    /**
+     * magic number identifying cache files.
+     */
+    static final int MAGIC = 0x42504331;
+
+    /**
+     * version of the file format.
+     */
+    static final int FORMAT_VERSION = 1;
+
+    /**
+     * encoding of names and URLs.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    /**
+     * maximum number of cached packages.
+     */
+    private final int maxSize;
+
+    /**
+     * time to live of cached packages in milliseconds.
+     */
+    private final long timeToLive;
+
+    /**
+     * time in milliseconds after which cached packages are removed even when they could not be revalidated.
+     */
+    private final long hardExpiry;
+
+    /**
+     * cached packages in order of access, least recently used first.
+     */
+    private final Map<String, CachedPackage> entries;
+
+    /**
+     * number of lookups answered from the cache.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * number of lookups not answered from the cache.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * number of packages evicted because the cache was full.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * number of packages removed because their hard expiry was reached.
+     */
+    private final AtomicLong expirations = new AtomicLong();
+
+    /**
+     * number of lookups answered with a stale package.
+     */
+    private final AtomicLong staleHits = new AtomicLong();
+
+    /**
+     * Create a cache using the given size limit and time to live. Packages are removed as soon as their time to live expired.
+     *
+     * @param maxSize
+     *            maximum number of cached packages.
+     * @param timeToLive
+     *            time to live of cached packages in milliseconds.
+     */
+    public PackageCache(final int maxSize, final long timeToLive) {
+        this(maxSize, timeToLive, timeToLive);
+    }
+
+    /**
+     * Create a cache using the given size limit, time to live and hard expiry.
+     *
+     * @param maxSize
+     *            maximum number of cached packages.
+     * @param timeToLive
+     *            time to live of cached packages in milliseconds.
+     * @param hardExpiry
+     *            time in milliseconds after which stale packages are removed. Values less than the time to live are treated as the time
+     *            to live.
+     */
+    public PackageCache(final int maxSize, final long timeToLive, final long hardExpiry) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maximum cache size must be positive!");
+        }
+
+        this.maxSize = maxSize;
+        this.timeToLive = timeToLive;
+        this.hardExpiry = Math.max(timeToLive, hardExpiry);
+        entries = new LinkedHashMap<String, CachedPackage>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CachedPackage> eldest) {
+                if (size() > PackageCache.this.maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Look up the package with the given name.
+     *
+     * @param packageName
+     *            name of package to look up.
+     * @return the cached package or <code>null</code> when the package is not cached or its time to live expired.
+     */
+    public BowerPackage get(final String packageName) {
+        final CachedPackage cachedPackage = lookup(packageName);
+
+        return cachedPackage == null || cachedPackage.isStale() ? null : cachedPackage.getBowerPackage();
+    }
+
+    /**
+     * Look up the package with the given name including stale packages.
+     *
+     * @param packageName
+     *            name of package to look up.
+     * @return the cached package or <code>null</code> when the package is not cached or its hard expiry was reached.
+     */
+    public synchronized CachedPackage lookup(final String packageName) {
+        final CachedPackage entry = entries.get(packageName);
+        final long now = System.currentTimeMillis();
+
+        if (entry != null && isExpired(entry, now)) {
+            entries.remove(packageName);
+            expirations.incrementAndGet();
+        }
+        else if (entry != null) {
+            if (now - entry.fetched >= timeToLive || entry.restored) {
+                entry.stale = true;
+                staleHits.incrementAndGet();
+            }
+            else {
+                hits.incrementAndGet();
+            }
+
+            return entry;
+        }
+
+        misses.incrementAndGet();
+
+        return null;
+    }
+
+    /**
+     * Remove the package with the given name from the cache.
+     *
+     * @param packageName
+     *            name of package to remove.
+     */
+    public synchronized void remove(final String packageName) {
+        entries.remove(packageName);
+    }
+
+    /**
+     * Add the given package to the cache.
+     *
+     * @param bowerPackage
+     *            package to cache.
+     */
+    public synchronized void put(final BowerPackage bowerPackage) {
+        entries.put(bowerPackage.getName(), new CachedPackage(bowerPackage, System.currentTimeMillis()));
+    }
+
+    /**
+     * Search the cached packages whose name contains the given string.
+     *
+     * @param packageName
+     *            (part of the) name of the packages to search for.
+     * @return the cached packages matching the given name. All cached packages when the given name is empty.
+     */
+    public synchronized Collection<BowerPackage> search(final String packageName) {
+        final Collection<BowerPackage> matches = new LinkedList<BowerPackage>();
+        final long now = System.currentTimeMillis();
+
+        for (final Iterator<CachedPackage> iterator = entries.values().iterator(); iterator.hasNext();) {
+            final CachedPackage entry = iterator.next();
+
+            if (isExpired(entry, now)) {
+                iterator.remove();
+                expirations.incrementAndGet();
+            }
+            else if (StringUtils.isEmpty(packageName) || entry.bowerPackage.getName().contains(packageName)) {
+                matches.add(entry.bowerPackage);
+            }
+        }
+
+        if (matches.isEmpty()) {
+            misses.incrementAndGet();
+        }
+        else {
+            hits.incrementAndGet();
+        }
+
+        return matches;
+    }
+
+    /**
+     * Write the cached packages together with the times they have been fetched to the given file. The file is replaced at once, so
+     * readers never see a partially written file.
+     *
+     * @param file
+     *            the file to write.
+     * @return number of packages written.
+     * @throws IOException
+     *             when writing the file fails.
+     */
+    public int write(final File file) throws IOException {
+        final List<CachedPackage> cachedPackages = new ArrayList<CachedPackage>();
+
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+
+            // least recently used first, so reading the file restores the order of access
+            for (final CachedPackage entry : entries.values()) {
+                if (!isExpired(entry, now)) {
+                    cachedPackages.add(entry);
+                }
+            }
+        }
+
+        final File directory = file.getAbsoluteFile().getParentFile();
+
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException(String.format("Could not create folder '%s'.", directory.getAbsolutePath()));
+        }
+
+        final File temporary = new File(directory, file.getName() + ".tmp");
+        final FileOutputStream stream = new FileOutputStream(temporary);
+        final CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(stream), new CRC32());
+        final DataOutputStream output = new DataOutputStream(checked);
+
+        try {
+            output.writeInt(MAGIC);
+            output.writeInt(FORMAT_VERSION);
+            output.writeInt(cachedPackages.size());
+
+            for (final CachedPackage entry : cachedPackages) {
+                writeString(output, entry.bowerPackage.getName());
+                writeString(output, entry.bowerPackage.getUrl());
+                output.writeLong(entry.fetched);
+            }
+
+            output.writeLong(checked.getChecksum().getValue());
+            output.flush();
+            stream.getFD().sync();
+        }
+        finally {
+            output.close();
+        }
+
+        if (!temporary.renameTo(file)) {
+            // renaming over an existing file is not supported on all platforms
+            if (!file.delete() || !temporary.renameTo(file)) {
+                throw new IOException(String.format("Could not replace '%s'.", file.getAbsolutePath()));
+            }
+        }
+
+        return cachedPackages.size();
+    }
+
+    /**
+     * Read packages written by {@link #write(File)} into this cache. Packages whose hard expiry has been reached are skipped, packages
+     * already cached are kept.
+     *
+     * @param file
+     *            the file to read.
+     * @return number of packages added to the cache.
+     * @throws IOException
+     *             when reading the file fails or the file is not a valid cache file. No packages are added in this case.
+     */
+    public int read(final File file) throws IOException {
+        final List<CachedPackage> cachedPackages = new ArrayList<CachedPackage>();
+        final CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(file)), new CRC32());
+        final DataInputStream input = new DataInputStream(checked);
+
+        try {
+            if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION) {
+                throw new IOException(String.format("'%s' is not a package cache file of a supported format.", file.getAbsolutePath()));
+            }
+
+            final int count = input.readInt();
+
+            for (int i = 0; i < count; i++) {
+                final String name = readString(input);
+                final String url = readString(input);
+                cachedPackages.add(new CachedPackage(new BowerPackageDescriptor(name, url), input.readLong(), true));
+            }
+
+            final long checksum = checked.getChecksum().getValue();
+
+            if (input.readLong() != checksum) {
+                throw new IOException(String.format("Checksum mismatch in package cache file '%s'.", file.getAbsolutePath()));
+            }
+        }
+        catch (final EOFException e) {
+            throw new IOException(String.format("Package cache file '%s' is truncated.", file.getAbsolutePath()), e);
+        }
+        finally {
+            input.close();
+        }
+
+        int restored = 0;
+
+        synchronized (this) {
+            final long now = System.currentTimeMillis();
+
+            for (final CachedPackage entry : cachedPackages) {
+                if (!isExpired(entry, now) && !entries.containsKey(entry.bowerPackage.getName())) {
+                    entries.put(entry.bowerPackage.getName(), entry);
+                    restored++;
+                }
+            }
+        }
+
+        return restored;
+    }
+
+    private static void writeString(final DataOutputStream output, final String value) throws IOException {
+        if (value == null) {
+            output.writeInt(-1);
+        }
+        else {
+            final byte[] bytes = value.getBytes(UTF8);
+            output.writeInt(bytes.length);
+            output.write(bytes);
+        }
+    }
+
+    private static String readString(final DataInputStream input) throws IOException {
+        final int length = input.readInt();
+
+        if (length < -1) {
+            throw new IOException("Invalid length of package name or URL.");
+        }
+
+        if (length == -1) {
+            return null;
+        }
+
+        final byte[] bytes = new byte[length];
+        input.readFully(bytes);
+
+        return new String(bytes, UTF8);
+    }
+
+    private boolean isExpired(final CachedPackage entry, final long now) {
+        return now - entry.fetched >= hardExpiry;
+    }
+
+    @Override
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Override
+    public long getMisses() {
+        return misses.get();
+    }
+
+    @Override
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public long getExpirations() {
+        return expirations.get();
+    }
+
+    @Override
+    public long getStaleHits() {
+        return staleHits.get();
+    }
+
+    @Override
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    @Override
+    public long getHardExpiry() {
+        return hardExpiry;
+    }
+
+    /**
+     * A cached package together with the time it has been fetched.
+     *
+     * @author Dirk Weigenand
+     */
+    public static class CachedPackage {
+        /**
+         * the cached package.
+         */
+        private final BowerPackage bowerPackage;
+
+        /**
+         * time in milliseconds the package has been fetched.
+         */
+        private final long fetched;
+
+        /**
+         * indicates that the package has been read from a file and has to be revalidated.
+         */
+        private final boolean restored;
+
+        /**
+         * indicates that the time to live of the package expired when it was looked up.
+         */
+        private volatile boolean stale;
+
+        CachedPackage(final BowerPackage bowerPackage, final long fetched) {
+            this(bowerPackage, fetched, false);
+        }
+
+        CachedPackage(final BowerPackage bowerPackage, final long fetched, final boolean restored) {
+            this.bowerPackage = bowerPackage;
+            this.fetched = fetched;
+            this.restored = restored;
+        }
+
+        /**
+         * @return the cached package.
+         */
+        public BowerPackage getBowerPackage() {
+            return bowerPackage;
+        }
+
+        /**
+         * @return time in milliseconds the package has been fetched.
+         */
+        public long getFetched() {
+            return fetched;
+        }
+
+        /**
+         * @return <code>true</code> when the time to live of the package expired when it was looked up, <code>false</code> otherwise.
+         */
+        public boolean isStale() {
+            return stale;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+/**
+ * Management interface exposing the statistics of a {@link PackageCache} via JMX.
+ *
+ * @author Dirk Weigenand
+ */
+public interface PackageCacheMBean {
+    /**
+     * Get the number of lookups answered from the cache.
+     *
+     * @return number of lookups answered from the cache.
+     */
+    long getHits();
+
+    /**
+     * Get the number of lookups that could not be answered from the cache.
+     *
+     * @return number of lookups that could not be answered from the cache.
+     */
+    long getMisses();
+
+    /**
+     * Get the number of lookups answered with a stale entry.
+     *
+     * @return number of lookups answered with a stale entry.
+     */
+    long getStaleHits();
+
+    /**
+     * Get the number of entries evicted because the cache was full.
+     *
+     * @return number of entries evicted because the cache was full.
+     */
+    long getEvictions();
+
+    /**
+     * Get the number of entries removed because their hard expiry was reached.
+     *
+     * @return number of entries removed because their hard expiry was reached.
+     */
+    long getExpirations();
+
+    /**
+     * Get the number of entries currently held in the cache.
+     *
+     * @return number of entries currently held in the cache.
+     */
+    int getSize();
+
+    /**
+     * Get the maximum number of entries held in the cache.
+     *
+     * @return maximum number of entries held in the cache.
+     */
+    int getMaxSize();
+
+    /**
+     * Get the time in milliseconds entries are held in the cache.
+     *
+     * @return time in milliseconds entries are held in the cache.
+     */
+    long getTimeToLive();
+
+    /**
+     * Get the time in milliseconds after which stale entries are removed.
+     *
+     * @return time in milliseconds after which stale entries are removed.
+     */
+    long getHardExpiry();
+}
@@ -0,0 +1,449 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+
+/**
+ * Append only journal of registered bower packages. Registrations are appended to a journal file which is periodically compacted into a
+ * snapshot containing all registered packages.
+ *
+ * The journal uses the format of {@link Properties}, the snapshot the binary format of {@link PackageSnapshot}. The journal is replayed on
+ * top of the snapshot by loading both files in order.
+ *
+ * @author Dirk Weigenand
+ */
+public class PackageJournal {
+    /**
+     * file name of the journal.
+     */
+    public static final String JOURNAL = "bowerPackages.journal";
+
+    /**
+     * Encoding of the journal. Non ASCII characters are escaped so the files can be read using any encoding.
+     */
+    private static final String ENCODING = "ISO-8859-1";
+
+    /**
+     * hex digits used for escaping unicode characters.
+     */
+    private static final char[] HEX_DIGITS = "0123456789ABCDEF".toCharArray();
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    /**
+     * folder containing snapshot and journal.
+     */
+    private final File baseDir;
+
+    /**
+     * the snapshot containing all packages registered at the time of the last compaction.
+     */
+    private final File snapshot;
+
+    /**
+     * the journal containing the packages registered since the last compaction.
+     */
+    private final File journal;
+
+    /**
+     * stream used to append to the journal.
+     */
+    private FileOutputStream journalStream;
+
+    /**
+     * number of entries written to the journal since the last compaction.
+     */
+    private int entries;
+
+    /**
+     * Create a journal using the given snapshot file. The journal is stored next to the snapshot.
+     *
+     * @param baseDir
+     *            folder where snapshot and journal shall be stored.
+     * @param snapshotName
+     *            file name of the snapshot.
+     */
+    public PackageJournal(final File baseDir, final String snapshotName) {
+        this.baseDir = baseDir;
+        snapshot = new File(baseDir, snapshotName);
+        journal = new File(baseDir, JOURNAL);
+    }
+
+    /**
+     * Register the packages contained in snapshot and journal with the given registry. An incompletely written entry at the end of the
+     * journal (as left by a crash) is discarded.
+     *
+     * @param registry
+     *            registry to register the persisted packages with.
+     * @throws IOException
+     *             when reading snapshot or journal fails.
+     */
+    public void replay(final BowerRegistry registry) throws IOException {
+        replay(registry, true);
+    }
+
+    /**
+     * Register the packages contained in the journal and optionally the snapshot with the given registry. An incompletely written entry
+     * at the end of the journal (as left by a crash) is discarded.
+     *
+     * @param registry
+     *            registry to register the persisted packages with.
+     * @param includeSnapshot
+     *            <code>false</code> when the registry already contains the packages of the snapshot.
+     * @throws IOException
+     *             when reading snapshot or journal fails.
+     */
+    public synchronized void replay(final BowerRegistry registry, final boolean includeSnapshot) throws IOException {
+        if (includeSnapshot && snapshot.exists()) {
+            PackageSnapshot.read(snapshot, registry);
+        }
+        else if (includeSnapshot && getBackup().exists()) {
+            logger.warning(String.format("Snapshot '%s' is missing, reading backup '%s'.", snapshot.getAbsolutePath(),
+                getBackup().getAbsolutePath()));
+            PackageSnapshot.read(getBackup(), registry);
+        }
+
+        if (journal.exists()) {
+            final byte[] content = readCompleteEntries();
+            load(new InputStreamReader(new ByteArrayInputStream(content), ENCODING), registry);
+            entries = countLines(content);
+        }
+    }
+
+    /**
+     * Append the given package to the journal. Returns after the entry has been written to disk.
+     *
+     * @param bowerPackage
+     *            package to append to the journal.
+     * @throws IOException
+     *             when writing to the journal fails.
+     */
+    public void append(final BowerPackage bowerPackage) throws IOException {
+        append(Collections.singleton(bowerPackage));
+    }
+
+    /**
+     * Append the given packages to the journal. Returns after all entries have been written to disk.
+     *
+     * @param bowerPackages
+     *            packages to append to the journal.
+     * @throws IOException
+     *             when writing to the journal fails.
+     */
+    public synchronized void append(final Collection<BowerPackage> bowerPackages) throws IOException {
+        if (journalStream == null) {
+            journalStream = new FileOutputStream(journal, true);
+        }
+
+        final ByteArrayOutputStream batch = new ByteArrayOutputStream();
+
+        for (final BowerPackage bowerPackage : bowerPackages) {
+            batch.write(toEntry(bowerPackage));
+        }
+
+        batch.writeTo(journalStream);
+        journalStream.getFD().sync();
+        entries += bowerPackages.size();
+    }
+
+    /**
+     * Get the number of entries appended to the journal since the last compaction.
+     *
+     * @return number of entries appended to the journal since the last compaction.
+     */
+    public synchronized int size() {
+        return entries;
+    }
+
+    /**
+     * @return the generation of the current snapshot, <code>0</code> when no snapshot has been written yet.
+     * @throws IOException
+     *             when the snapshot cannot be read.
+     */
+    public synchronized long getGeneration() throws IOException {
+        if (snapshot.exists()) {
+            return PackageSnapshot.readGeneration(snapshot);
+        }
+
+        return getBackup().exists() ? PackageSnapshot.readGeneration(getBackup()) : 0;
+    }
+
+    /**
+     * Write the packages of the given registry into a new snapshot of the next generation and truncate the journal.
+     *
+     * The packages are read while holding the lock of the journal, so a concurrent registration is either contained in the snapshot or
+     * appended to the journal after it has been truncated.
+     *
+     * @param registry
+     *            registry containing all currently registered packages.
+     * @return the generation of the new snapshot.
+     * @throws IOException
+     *             when writing the snapshot or truncating the journal fails.
+     */
+    public synchronized long compact(final BowerRegistry registry) throws IOException {
+        final long generation = getGeneration() + 1;
+        final File newSnapshot = File.createTempFile(snapshot.getName(), "", baseDir);
+        PackageSnapshot.write(newSnapshot, generation, registry.getAllPackages());
+
+        if (!newSnapshot.renameTo(snapshot)) {
+            // some platforms refuse to rename onto an existing file. The old snapshot is kept as backup until the new one is in place,
+            // so a crash in between leaves the backup and the untruncated journal to replay.
+            final File backup = getBackup();
+
+            if (backup.exists() && !backup.delete() || snapshot.exists() && !snapshot.renameTo(backup)) {
+                newSnapshot.delete();
+                throw new IOException(String.format("Could not move '%s' to '%s'.", snapshot.getAbsolutePath(),
+                    backup.getAbsolutePath()));
+            }
+
+            if (!newSnapshot.renameTo(snapshot)) {
+                throw new IOException(String.format("Could not rename '%s' to '%s'.", newSnapshot.getAbsolutePath(),
+                    snapshot.getAbsolutePath()));
+            }
+
+            if (!backup.delete()) {
+                logger.warning(String.format("Could not delete backup '%s'.", backup.getAbsolutePath()));
+            }
+        }
+
+        // the journal is truncated only after the new snapshot is in place
+        truncateJournal(0);
+        entries = 0;
+
+        return generation;
+    }
+
+    /**
+     * @return the backup of the snapshot kept while a new snapshot is moved into place.
+     */
+    private File getBackup() {
+        return new File(baseDir, snapshot.getName() + ".bak");
+    }
+
+    /**
+     * Close the journal.
+     */
+    public synchronized void close() {
+        if (journalStream != null) {
+            try {
+                journalStream.close();
+            }
+            catch (final IOException e) {
+                logger.log(Level.WARNING, String.format("Could not close journal '%s'.", journal.getAbsolutePath()), e);
+            }
+
+            journalStream = null;
+        }
+    }
+
+    /**
+     * Read the complete entries from the journal and cut off an incomplete trailing entry.
+     *
+     * @return the complete entries contained in the journal.
+     * @throws IOException
+     *             when reading the journal fails.
+     */
+    private byte[] readCompleteEntries() throws IOException {
+        final byte[] content = new byte[(int)journal.length()];
+        final InputStream journalReader = new FileInputStream(journal);
+
+        try {
+            int offset = 0;
+            int read = 0;
+
+            while (offset < content.length && (read = journalReader.read(content, offset, content.length - offset)) != -1) {
+                offset += read;
+            }
+        }
+        finally {
+            journalReader.close();
+        }
+
+        int length = content.length;
+
+        while (length > 0 && content[length - 1] != '\n') {
+            length--;
+        }
+
+        if (length < content.length) {
+            logger.warning(String.format("Discarding incomplete entry at the end of journal '%s'.", journal.getAbsolutePath()));
+            truncateJournal(length);
+
+            final byte[] completeEntries = new byte[length];
+            System.arraycopy(content, 0, completeEntries, 0, length);
+
+            return completeEntries;
+        }
+
+        return content;
+    }
+
+    private void truncateJournal(final long length) throws IOException {
+        close();
+
+        final FileOutputStream stream = new FileOutputStream(journal, true);
+
+        try {
+            stream.getChannel().truncate(length);
+            stream.getFD().sync();
+        }
+        finally {
+            stream.close();
+        }
+    }
+
+    private int countLines(final byte[] content) {
+        int lines = 0;
+
+        for (final byte b : content) {
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        return lines;
+    }
+
+    /**
+     * Load the package definitions from the given reader into the registry.
+     *
+     * @param packages
+     *            reader containing package definitions in pairs: <code>package name=package url</code>.
+     * @param registry
+     *            registry to register the packages with.
+     * @throws IOException
+     *             when reading the packages fails.
+     */
+    static void load(final Reader packages, final BowerRegistry registry) throws IOException {
+        final Properties properties = new Properties();
+
+        try {
+            properties.load(packages);
+        }
+        finally {
+            packages.close();
+        }
+
+        final List<BowerPackage> bowerPackages = new ArrayList<BowerPackage>(properties.size());
+
+        for (final Entry<Object, Object> entry : properties.entrySet()) {
+            bowerPackages.add(new BowerPackageDescriptor((String)entry.getKey(), (String)entry.getValue()));
+        }
+
+        registry.registerAll(bowerPackages);
+    }
+
+    /**
+     * Write the given packages in {@link Properties} format to the given stream.
+     *
+     * @param packages
+     *            the packages to write.
+     * @param output
+     *            stream to write the package definitions to in pairs: <code>package name=package url</code>.
+     * @throws IOException
+     *             when writing the packages fails.
+     */
+    static void export(final Collection<BowerPackage> packages, final OutputStream output) throws IOException {
+        for (final BowerPackage bowerPackage : packages) {
+            output.write(toEntry(bowerPackage));
+        }
+
+        output.flush();
+    }
+
+    /**
+     * Format the given package as a line in {@link Properties} format.
+     *
+     * @param bowerPackage
+     *            package to format.
+     * @return the formatted entry.
+     */
+    static byte[] toEntry(final BowerPackage bowerPackage) {
+        final StringBuilder entry = new StringBuilder();
+        escape(entry, bowerPackage.getName(), true);
+        entry.append('=');
+        escape(entry, bowerPackage.getUrl(), false);
+        entry.append('\n');
+
+        try {
+            return entry.toString().getBytes(ENCODING);
+        }
+        catch (final UnsupportedEncodingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void escape(final StringBuilder builder, final String value, final boolean isKey) {
+        if (value == null) {
+            return;
+        }
+
+        for (int i = 0; i < value.length(); i++) {
+            final char c = value.charAt(i);
+
+            switch (c) {
+                case '\\':
+                case '=':
+                case ':':
+                case '#':
+                case '!':
+                    builder.append('\\').append(c);
+                    break;
+                case ' ':
+                    if (isKey || i == 0) {
+                        builder.append('\\');
+                    }
+
+                    builder.append(c);
+                    break;
+                case '\t':
+                    builder.append("\\t");
+                    break;
+                case '\n':
+                    builder.append("\\n");
+                    break;
+                case '\r':
+                    builder.append("\\r");
+                    break;
+                case '\f':
+                    builder.append("\\f");
+                    break;
+                default:
+                    if (c < 0x20 || c > 0x7e) {
+                        builder.append("\\u").append(HEX_DIGITS[(c >> 12) & 0xF]).append(HEX_DIGITS[(c >> 8) & 0xF])
+                            .append(HEX_DIGITS[(c >> 4) & 0xF]).append(HEX_DIGITS[c & 0xF]);
+                    }
+                    else {
+                        builder.append(c);
+                    }
+            }
+        }
+    }
+}
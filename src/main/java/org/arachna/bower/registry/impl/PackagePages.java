@@ -0,0 +1,152 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+import org.apache.commons.lang3.StringUtils;
+import org.arachna.bower.registry.BowerPackage;
+
+/**
+ * Helper methods for building pages of bower packages ordered by package name. A page consists of the packages whose names follow the
+ * given cursor, i.e. the name of the last package of the previous page.
+ *
+ * @author Dirk Weigenand
+ */
+public final class PackagePages {
+    private PackagePages() {
+    }
+
+    /**
+     * Determine whether the given package name follows the given cursor.
+     *
+     * @param packageName
+     *            name of package to check.
+     * @param cursor
+     *            name of the last package of the previous page, may be empty for the first page.
+     * @return <code>true</code> when the package belongs on a page following the cursor, <code>false</code> otherwise.
+     */
+    public static boolean isAfter(final String packageName, final String cursor) {
+        return StringUtils.isEmpty(cursor) || packageName.compareTo(cursor) > 0;
+    }
+
+    /**
+     * Build a page from the given unordered packages. Only <code>limit</code> packages are held while iterating the given packages.
+     *
+     * @param packages
+     *            packages to build the page from, in any order.
+     * @param cursor
+     *            name of the last package of the previous page, may be empty for the first page.
+     * @param limit
+     *            maximum number of packages on the page.
+     * @return packages following the cursor ordered by name.
+     */
+    public static List<BowerPackage> page(final Iterable<BowerPackage> packages, final String cursor, final int limit) {
+        final TreeMap<String, BowerPackage> page = new TreeMap<String, BowerPackage>();
+
+        for (final BowerPackage bowerPackage : packages) {
+            final String name = bowerPackage.getName();
+
+            if (name != null && isAfter(name, cursor) && !page.containsKey(name)) {
+                page.put(name, bowerPackage);
+
+                if (page.size() > limit) {
+                    page.remove(page.lastKey());
+                }
+            }
+        }
+
+        return new ArrayList<BowerPackage>(page.values());
+    }
+
+    /**
+     * Merge the given pages into one page. When a package name is contained in more than one page the package from the page given first
+     * wins.
+     *
+     * @param pages
+     *            pages ordered by name, in order of priority.
+     * @param limit
+     *            maximum number of packages on the merged page.
+     * @return the merged page ordered by name.
+     */
+    public static List<BowerPackage> merge(final List<? extends Collection<BowerPackage>> pages, final int limit) {
+        final List<BowerPackage> merged = new ArrayList<BowerPackage>();
+        final PriorityQueue<PageHead> heads = new PriorityQueue<PageHead>();
+
+        for (int i = 0; i < pages.size(); i++) {
+            final Iterator<BowerPackage> iterator = pages.get(i).iterator();
+
+            if (iterator.hasNext()) {
+                heads.add(new PageHead(i, iterator));
+            }
+        }
+
+        String lastName = null;
+
+        while (!heads.isEmpty() && merged.size() < limit) {
+            final PageHead head = heads.poll();
+
+            if (!head.current.getName().equals(lastName)) {
+                merged.add(head.current);
+                lastName = head.current.getName();
+            }
+
+            if (head.advance()) {
+                heads.add(head);
+            }
+        }
+
+        return merged;
+    }
+
+    /**
+     * The current package of a page while merging pages.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class PageHead implements Comparable<PageHead> {
+        /**
+         * priority of the page.
+         */
+        private final int priority;
+
+        /**
+         * the remaining packages of the page.
+         */
+        private final Iterator<BowerPackage> iterator;
+
+        /**
+         * the current package of the page.
+         */
+        private BowerPackage current;
+
+        PageHead(final int priority, final Iterator<BowerPackage> iterator) {
+            this.priority = priority;
+            this.iterator = iterator;
+            current = iterator.next();
+        }
+
+        boolean advance() {
+            if (iterator.hasNext()) {
+                current = iterator.next();
+
+                return true;
+            }
+
+            return false;
+        }
+
+        @Override
+        public int compareTo(final PageHead other) {
+            final int result = current.getName().compareTo(other.current.getName());
+
+            return result != 0 ? result : priority - other.priority;
+        }
+    }
+}
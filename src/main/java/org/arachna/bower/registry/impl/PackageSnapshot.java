@@ -0,0 +1,287 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.zip.CRC32;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+
+/**
+ * Binary snapshot of all registered bower packages. The snapshot is read with a single sequential read and registered with one call to
+ * {@link BowerRegistry#registerAll(Collection)}, avoiding the escaping and the intermediate <code>Hashtable</code> of the
+ * {@link java.util.Properties} format.
+ *
+ * File layout (all numbers are big endian):
+ * <ul>
+ * <li>header: magic number and format version as 32 bit integers, generation of the snapshot as 64 bit integer, number of packages as
+ * 32 bit integer. Snapshots of format version 1 do not contain a generation and count as generation <code>0</code>.</li>
+ * <li>packages: length of the name, UTF-8 encoded name, length of the URL, UTF-8 encoded URL. The length of a missing URL is
+ * <code>-1</code>.</li>
+ * <li>trailer: CRC32 checksum of header and packages as 64 bit integer</li>
+ * </ul>
+ *
+ * The generation is incremented with every snapshot written by a {@link PackageJournal}, so stores written together with a snapshot can
+ * tell whether they contain the packages of the current snapshot.
+ *
+ * @author Dirk Weigenand
+ */
+public final class PackageSnapshot {
+    /**
+     * magic number identifying snapshot files.
+     */
+    static final int MAGIC = 0x42505331;
+
+    /**
+     * version of the file format.
+     */
+    static final int FORMAT_VERSION = 2;
+
+    /**
+     * size of the header in bytes.
+     */
+    private static final int HEADER_SIZE = 20;
+
+    /**
+     * size of the header of format version 1 in bytes.
+     */
+    private static final int HEADER_SIZE_V1 = 12;
+
+    /**
+     * size of the trailer in bytes.
+     */
+    private static final int TRAILER_SIZE = 8;
+
+    /**
+     * encoding of names and URLs.
+     */
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private PackageSnapshot() {
+    }
+
+    /**
+     * Write the given packages into the given file. Returns after the file has been written to disk.
+     *
+     * @param file
+     *            the file to write.
+     * @param generation
+     *            generation of the snapshot.
+     * @param packages
+     *            the packages to write.
+     * @throws IOException
+     *             when writing the file fails.
+     */
+    public static void write(final File file, final long generation, final Collection<BowerPackage> packages) throws IOException {
+        final List<BowerPackage> snapshot = new ArrayList<BowerPackage>(packages);
+        final CRC32 checksum = new CRC32();
+        final FileOutputStream stream = new FileOutputStream(file);
+        final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(stream, 64 * 1024));
+
+        try {
+            final ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(FORMAT_VERSION).putLong(generation).putInt(snapshot.size());
+            write(output, checksum, header.array());
+
+            for (final BowerPackage bowerPackage : snapshot) {
+                final byte[] name = bowerPackage.getName().getBytes(UTF8);
+                final byte[] url = bowerPackage.getUrl() == null ? null : bowerPackage.getUrl().getBytes(UTF8);
+                final ByteBuffer lengths = ByteBuffer.allocate(4);
+
+                write(output, checksum, lengths.putInt(0, name.length).array());
+                write(output, checksum, name);
+                write(output, checksum, lengths.putInt(0, url == null ? -1 : url.length).array());
+
+                if (url != null) {
+                    write(output, checksum, url);
+                }
+            }
+
+            output.writeLong(checksum.getValue());
+            output.flush();
+            stream.getFD().sync();
+        }
+        finally {
+            output.close();
+        }
+    }
+
+    private static void write(final DataOutputStream output, final CRC32 checksum, final byte[] bytes) throws IOException {
+        output.write(bytes);
+        checksum.update(bytes);
+    }
+
+    /**
+     * Read the generation of the snapshot in the given file. Only the header is read, the packages are not verified.
+     *
+     * @param file
+     *            the file to read.
+     * @return the generation of the snapshot.
+     * @throws IOException
+     *             when reading the file fails or the file is not a snapshot.
+     */
+    public static long readGeneration(final File file) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        try {
+            final long length = input.length();
+
+            if (length < HEADER_SIZE_V1 + TRAILER_SIZE || input.readInt() != MAGIC) {
+                throw new IOException(String.format("'%s' is not a package snapshot.", file.getAbsolutePath()));
+            }
+
+            final int headerSize = getHeaderSize(file, input.readInt());
+
+            if (length < headerSize + TRAILER_SIZE) {
+                throw new IOException(String.format("'%s' is not a package snapshot.", file.getAbsolutePath()));
+            }
+
+            return headerSize == HEADER_SIZE_V1 ? 0 : input.readLong();
+        }
+        finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Determine the size of the header of the given format version.
+     */
+    private static int getHeaderSize(final File file, final int version) throws IOException {
+        if (version == 1) {
+            return HEADER_SIZE_V1;
+        }
+
+        if (version != FORMAT_VERSION) {
+            throw new IOException(String.format("Unsupported format %d of package snapshot '%s'.", version, file.getAbsolutePath()));
+        }
+
+        return HEADER_SIZE;
+    }
+
+    /**
+     * Read the packages contained in the given file and register them with the given registry.
+     *
+     * @param file
+     *            the file to read.
+     * @param registry
+     *            registry to register the packages with.
+     * @return number of packages read.
+     * @throws IOException
+     *             when reading the file fails or the file is not a valid snapshot. No packages are registered in this case.
+     */
+    public static int read(final File file, final BowerRegistry registry) throws IOException {
+        final List<BowerPackage> packages = read(file);
+        registry.registerAll(packages);
+
+        return packages.size();
+    }
+
+    /**
+     * Read the packages contained in the given file.
+     *
+     * @param file
+     *            the file to read.
+     * @return the packages contained in the file.
+     * @throws IOException
+     *             when reading the file fails or the file is not a valid snapshot.
+     */
+    static List<BowerPackage> read(final File file) throws IOException {
+        final byte[] content = readFully(file);
+
+        if (content.length < HEADER_SIZE_V1 + TRAILER_SIZE) {
+            throw new IOException(String.format("'%s' is not a package snapshot.", file.getAbsolutePath()));
+        }
+
+        final ByteBuffer buffer = ByteBuffer.wrap(content);
+
+        if (buffer.getInt() != MAGIC) {
+            throw new IOException(String.format("'%s' is not a package snapshot.", file.getAbsolutePath()));
+        }
+
+        final int headerSize = getHeaderSize(file, buffer.getInt());
+
+        if (content.length < headerSize + TRAILER_SIZE) {
+            throw new IOException(String.format("'%s' is not a package snapshot.", file.getAbsolutePath()));
+        }
+
+        if (headerSize != HEADER_SIZE_V1) {
+            // skip the generation
+            buffer.getLong();
+        }
+
+        final int body = content.length - TRAILER_SIZE;
+        final CRC32 checksum = new CRC32();
+        checksum.update(content, 0, body);
+
+        if (checksum.getValue() != buffer.getLong(body)) {
+            throw new IOException(String.format("Checksum mismatch in package snapshot '%s'.", file.getAbsolutePath()));
+        }
+
+        final int count = buffer.getInt();
+        final List<BowerPackage> packages = new ArrayList<BowerPackage>(Math.max(0, count));
+
+        try {
+            for (int i = 0; i < count; i++) {
+                final String name = decode(buffer, buffer.getInt(), body);
+                packages.add(new BowerPackageDescriptor(name, decode(buffer, buffer.getInt(), body)));
+            }
+        }
+        catch (final RuntimeException e) {
+            throw new IOException(String.format("Package snapshot '%s' is corrupt.", file.getAbsolutePath()), e);
+        }
+
+        if (buffer.position() != body) {
+            throw new IOException(String.format("Package snapshot '%s' is corrupt.", file.getAbsolutePath()));
+        }
+
+        return packages;
+    }
+
+    private static String decode(final ByteBuffer buffer, final int length, final int limit) throws IOException {
+        if (length == -1) {
+            return null;
+        }
+
+        if (length < 0 || buffer.position() + length > limit) {
+            throw new IOException("Invalid length of package name or URL.");
+        }
+
+        final String value = new String(buffer.array(), buffer.position(), length, UTF8);
+        buffer.position(buffer.position() + length);
+
+        return value;
+    }
+
+    private static byte[] readFully(final File file) throws IOException {
+        final RandomAccessFile input = new RandomAccessFile(file, "r");
+
+        try {
+            final long length = input.length();
+
+            if (length > Integer.MAX_VALUE) {
+                throw new IOException(String.format("Package snapshot '%s' is too large.", file.getAbsolutePath()));
+            }
+
+            final byte[] content = new byte[(int)length];
+            input.readFully(content);
+
+            return content;
+        }
+        finally {
+            input.close();
+        }
+    }
+}
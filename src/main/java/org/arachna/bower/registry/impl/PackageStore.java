@@ -0,0 +1,31 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+
+/**
+ * A {@link BowerRegistry} holding packages in memory or on disk that packages can be removed from. Used for holding the packages of the
+ * private registry and the mirrors of remote registries.
+ *
+ * @author Dirk Weigenand
+ */
+public interface PackageStore extends BowerRegistry {
+    /**
+     * Remove the package with the given name from this store.
+     *
+     * @param packageName
+     *            name of the package to remove.
+     * @return the removed package or <code>null</code> when no package with the given name was registered.
+     */
+    BowerPackage unregister(String packageName);
+
+    /**
+     * Get the number of registered packages.
+     *
+     * @return number of registered packages.
+     */
+    int size();
+}
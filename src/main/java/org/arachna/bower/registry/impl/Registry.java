@@ -1,19 +1,36 @@
 /**
- * 
+ *
  */
 package org.arachna.bower.registry.impl;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import org.arachna.bower.registry.BowerPackage;
 import org.arachna.bower.registry.BowerRegistry;
 
 /**
+ * A bower registry combining the private bower registry with remote bower registries. Remote registries are queried in parallel, answers
+ * not arriving within the configured deadline are ignored.
+ *
+ * When the fan out executor is configured for hedging the remote registries are considered redundant mirrors: a package is looked up in
+ * the first remote registry only and in the next one when the answer takes longer than usual.
+ *
  * @author Dirk Weigenand
  */
-public class Registry implements BowerRegistry {
+public class Registry implements BowerRegistry, Closeable {
     /**
      * the bower registry to use.
      */
@@ -24,17 +41,84 @@ public class Registry implements BowerRegistry {
      */
     private Collection<BowerRegistry> remoteBowerRegistries = new LinkedList<BowerRegistry>();
 
+    /**
+     * latencies of the HTTP calls to the remote registries in the order of the remote registries, <code>null</code> for remote registries
+     * not recording latencies.
+     */
+    private final List<LatencyTracker> remoteLatencies = new ArrayList<LatencyTracker>();
+
+    /**
+     * executor used for querying the remote registries in parallel.
+     */
+    private final FanOutExecutor fanOut;
+
+    /**
+     * names of packages no registry could resolve recently.
+     */
+    private final NegativeLookupCache missingPackages;
+
     public Registry(BowerRegistry privateBowerRegistry, Collection<BowerRegistry> remoteBowerRegistries) {
+        this(privateBowerRegistry, remoteBowerRegistries, new FanOutExecutor(FanOutExecutor.DEFAULT_THREADS,
+            FanOutExecutor.DEFAULT_TIMEOUT));
+    }
+
+    /**
+     * Create a registry combining the given private registry with the given remote registries.
+     *
+     * @param privateBowerRegistry
+     *            the private bower registry.
+     * @param remoteBowerRegistries
+     *            remote bower registries ordered by priority.
+     * @param fanOut
+     *            executor used for querying the remote registries in parallel.
+     */
+    public Registry(BowerRegistry privateBowerRegistry, Collection<BowerRegistry> remoteBowerRegistries, FanOutExecutor fanOut) {
+        this(privateBowerRegistry, remoteBowerRegistries, fanOut, new NegativeLookupCache(NegativeLookupCache.DEFAULT_TIME_TO_LIVE,
+            NegativeLookupCache.DEFAULT_MAX_SIZE));
+    }
+
+    /**
+     * Create a registry combining the given private registry with the given remote registries.
+     *
+     * @param privateBowerRegistry
+     *            the private bower registry.
+     * @param remoteBowerRegistries
+     *            remote bower registries ordered by priority.
+     * @param fanOut
+     *            executor used for querying the remote registries in parallel.
+     * @param missingPackages
+     *            cache for names of packages no registry could resolve.
+     */
+    public Registry(BowerRegistry privateBowerRegistry, Collection<BowerRegistry> remoteBowerRegistries, FanOutExecutor fanOut,
+        NegativeLookupCache missingPackages) {
         this.privateBowerRegistry = privateBowerRegistry;
         this.remoteBowerRegistries.addAll(remoteBowerRegistries);
+        this.fanOut = fanOut;
+        this.missingPackages = missingPackages;
+
+        for (BowerRegistry registry : remoteBowerRegistries) {
+            remoteLatencies.add(registry instanceof RemoteBowerRegistry ? ((RemoteBowerRegistry)registry).getLatencies() : null);
+        }
     }
 
     @Override
     public Collection<BowerPackage> getAllPackages() {
-        Collection<BowerPackage> packages = new LinkedList<BowerPackage>();
+        ConcatenatedCollection<BowerPackage> packages = new ConcatenatedCollection<BowerPackage>();
+        packages.append(privateBowerRegistry.getAllPackages());
 
-        for (BowerRegistry registry : getAllRegistries()) {
-            packages.addAll(registry.getAllPackages());
+        List<Callable<Collection<BowerPackage>>> queries = new ArrayList<Callable<Collection<BowerPackage>>>();
+
+        for (final BowerRegistry registry : remoteBowerRegistries) {
+            queries.add(new Callable<Collection<BowerPackage>>() {
+                @Override
+                public Collection<BowerPackage> call() {
+                    return registry.getAllPackages();
+                }
+            });
+        }
+
+        for (Collection<BowerPackage> answer : fanOut.invokeAll(queries)) {
+            packages.append(answer);
         }
 
         return packages;
@@ -43,34 +127,224 @@ public class Registry implements BowerRegistry {
     @Override
     public void register(BowerPackage bowerPackage) throws IllegalArgumentException {
         this.privateBowerRegistry.register(bowerPackage);
+        missingPackages.invalidate(bowerPackage.getName());
     }
 
     @Override
-    public BowerPackage getPackage(String packageName) {
-        BowerPackage bowerPackage = null;
+    public void registerAll(Collection<BowerPackage> bowerPackages) throws IllegalArgumentException {
+        this.privateBowerRegistry.registerAll(bowerPackages);
 
-        for (BowerRegistry registry : getAllRegistries()) {
-            bowerPackage = registry.getPackage(packageName);
+        for (BowerPackage bowerPackage : bowerPackages) {
+            missingPackages.invalidate(bowerPackage.getName());
+        }
+    }
 
-            if (bowerPackage != null) {
-                break;
+    @Override
+    public BowerPackage getPackage(final String packageName) {
+        BowerPackage bowerPackage = privateBowerRegistry.getPackage(packageName);
+
+        if (bowerPackage == null && !missingPackages.isMissing(packageName)) {
+            List<Callable<BowerPackage>> queries = new ArrayList<Callable<BowerPackage>>();
+            final AtomicInteger answers = new AtomicInteger();
+
+            for (final BowerRegistry registry : remoteBowerRegistries) {
+                queries.add(new Callable<BowerPackage>() {
+                    @Override
+                    public BowerPackage call() {
+                        BowerPackage answer = registry.getPackage(packageName);
+                        answers.incrementAndGet();
+
+                        return answer;
+                    }
+                });
+            }
+
+            bowerPackage = fanOut.isHedging() ? fanOut.invokeHedged(queries, remoteLatencies) : fanOut.invokeInOrder(queries);
+
+            // only remember the package as missing when every remote registry actually answered
+            if (bowerPackage == null && answers.get() == queries.size()) {
+                missingPackages.add(packageName);
             }
         }
 
         return bowerPackage;
     }
 
+    /**
+     * Look up the packages in the private registry first. The remaining packages are looked up in all remote registries in parallel, each
+     * remote registry is queried once for all of them. When a package is found in more than one remote registry the package from the
+     * remote registry with the highest priority is returned. With hedging the remote registries are asked one after another, each only
+     * for the packages still missing. Packages no remote registry knows are remembered as missing when every remote registry answered.
+     */
     @Override
-    public Collection<BowerPackage> search(String packageName) {
-        Collection<BowerPackage> packages = new LinkedList<BowerPackage>();
+    public Collection<BowerPackage> getPackages(final Collection<String> packageNames) {
+        final Collection<String> names = new LinkedHashSet<String>(packageNames);
+        final Map<String, BowerPackage> packages = new LinkedHashMap<String, BowerPackage>();
 
-        for (BowerRegistry registry : getAllRegistries()) {
-            packages.addAll(registry.search(packageName));
+        for (BowerPackage bowerPackage : privateBowerRegistry.getPackages(names)) {
+            packages.put(bowerPackage.getName(), bowerPackage);
+        }
+
+        final Collection<String> missing = new LinkedHashSet<String>();
+
+        for (String packageName : names) {
+            if (!packages.containsKey(packageName) && !missingPackages.isMissing(packageName)) {
+                missing.add(packageName);
+            }
+        }
+
+        boolean answered = true;
+
+        if (fanOut.isHedging()) {
+            for (BowerRegistry registry : remoteBowerRegistries) {
+                if (missing.isEmpty()) {
+                    break;
+                }
+
+                answered &= getPackages(Collections.singleton(registry), missing, packages);
+            }
+        }
+        else if (!missing.isEmpty()) {
+            answered = getPackages(remoteBowerRegistries, missing, packages);
+        }
+
+        // only remember the packages as missing when every remote registry actually answered
+        if (answered) {
+            for (String packageName : missing) {
+                missingPackages.add(packageName);
+            }
+        }
+
+        return new ArrayList<BowerPackage>(packages.values());
+    }
+
+    /**
+     * Look up the given packages in the given remote registries in parallel. Each remote registry is queried once for all packages.
+     *
+     * @param registries
+     *            remote registries ordered by priority.
+     * @param missing
+     *            names of the packages to look up, names of found packages are removed.
+     * @param packages
+     *            map the found packages are added to by name.
+     * @return <code>true</code> when every remote registry answered before the deadline, <code>false</code> otherwise.
+     */
+    private boolean getPackages(Collection<BowerRegistry> registries, Collection<String> missing, Map<String, BowerPackage> packages) {
+        List<Callable<Collection<BowerPackage>>> queries = new ArrayList<Callable<Collection<BowerPackage>>>();
+        final Collection<String> packageNames = new ArrayList<String>(missing);
+
+        for (final BowerRegistry registry : registries) {
+            queries.add(new Callable<Collection<BowerPackage>>() {
+                @Override
+                public Collection<BowerPackage> call() {
+                    return registry.getPackages(packageNames);
+                }
+            });
+        }
+
+        List<Collection<BowerPackage>> answers = fanOut.invokeAll(queries);
+
+        // answers are ordered by registry priority, so the first answer for a name wins
+        for (Collection<BowerPackage> answer : answers) {
+            for (BowerPackage bowerPackage : answer) {
+                if (!packages.containsKey(bowerPackage.getName())) {
+                    packages.put(bowerPackage.getName(), bowerPackage);
+                }
+
+                missing.remove(bowerPackage.getName());
+            }
+        }
+
+        return answers.size() == queries.size();
+    }
+
+    @Override
+    public Collection<BowerPackage> search(final String packageName) {
+        ConcatenatedCollection<BowerPackage> packages = new ConcatenatedCollection<BowerPackage>();
+        packages.append(privateBowerRegistry.search(packageName));
+
+        List<Callable<Collection<BowerPackage>>> queries = new ArrayList<Callable<Collection<BowerPackage>>>();
+
+        for (final BowerRegistry registry : remoteBowerRegistries) {
+            queries.add(new Callable<Collection<BowerPackage>>() {
+                @Override
+                public Collection<BowerPackage> call() {
+                    return registry.search(packageName);
+                }
+            });
+        }
+
+        for (Collection<BowerPackage> answer : fanOut.invokeAll(queries)) {
+            packages.append(answer);
         }
 
         return packages;
     }
 
+    /**
+     * Search all registries for one page of packages and merge the pages. When a package name is known to more than one registry the
+     * package from the private registry or the remote registry with the highest priority is returned.
+     */
+    @Override
+    public Collection<BowerPackage> search(final String packageName, final String cursor, final int limit) {
+        List<Collection<BowerPackage>> pages = new ArrayList<Collection<BowerPackage>>();
+        pages.add(privateBowerRegistry.search(packageName, cursor, limit));
+
+        List<Callable<Collection<BowerPackage>>> queries = new ArrayList<Callable<Collection<BowerPackage>>>();
+
+        for (final BowerRegistry registry : remoteBowerRegistries) {
+            queries.add(new Callable<Collection<BowerPackage>>() {
+                @Override
+                public Collection<BowerPackage> call() {
+                    return registry.search(packageName, cursor, limit);
+                }
+            });
+        }
+
+        pages.addAll(fanOut.invokeAll(queries));
+
+        return PackagePages.merge(pages, limit);
+    }
+
+    /**
+     * The version is the latest version of all registries. Changes cannot be tracked when one of the registries cannot track them.
+     */
+    @Override
+    public long getVersion() {
+        long version = -1;
+
+        for (BowerRegistry registry : getAllRegistries()) {
+            long registryVersion = registry.getVersion();
+
+            if (registryVersion < 0) {
+                return -1;
+            }
+
+            version = Math.max(version, registryVersion);
+        }
+
+        return version;
+    }
+
+    /**
+     * Stop querying remote registries and close all registries that hold resources.
+     */
+    @Override
+    public void close() {
+        fanOut.shutdown();
+
+        for (BowerRegistry registry : getAllRegistries()) {
+            if (registry instanceof Closeable) {
+                try {
+                    ((Closeable)registry).close();
+                }
+                catch (IOException e) {
+                    Logger.getLogger(getClass().getName()).log(Level.WARNING, "An error occured closing a bower registry.", e);
+                }
+            }
+        }
+    }
+
     private Collection<BowerRegistry> getAllRegistries() {
         Collection<BowerRegistry> registries = new ArrayList<BowerRegistry>();
 
@@ -0,0 +1,159 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.arachna.bower.registry.BowerRegistry;
+
+/**
+ * Builds the registry in the background, so the web application can accept requests while the configuration is read, the registered
+ * packages are loaded and the remote bower registries are set up. The built registry and request executor are published through the
+ * {@link RegistryHolder}.
+ *
+ * @author Dirk Weigenand
+ */
+public class RegistryBootstrap {
+    /**
+     * states of the bootstrap.
+     *
+     * @author Dirk Weigenand
+     */
+    public enum State {
+        /**
+         * the registry is being built.
+         */
+        LOADING,
+
+        /**
+         * the registry has been built and is available through the {@link RegistryHolder}.
+         */
+        READY,
+
+        /**
+         * building the registry failed.
+         */
+        FAILED
+    }
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    /**
+     * builder used for building the registry.
+     */
+    private final RegistryBuilder builder;
+
+    /**
+     * executor running the bootstrap.
+     */
+    private final ExecutorService executor =
+        Executors.newSingleThreadExecutor(new FanOutExecutor.DaemonThreadFactory("bower-registry-bootstrap"));
+
+    /**
+     * current state of the bootstrap.
+     */
+    private volatile State state = State.LOADING;
+
+    /**
+     * the error building the registry failed with, <code>null</code> unless the state is {@link State#FAILED}.
+     */
+    private volatile RuntimeException failure;
+
+    /**
+     * time in milliseconds the bootstrap has been started at.
+     */
+    private volatile long started;
+
+    /**
+     * time in milliseconds the bootstrap took, <code>-1</code> while loading.
+     */
+    private volatile long duration = -1;
+
+    /**
+     * Create a bootstrap using the given builder.
+     *
+     * @param builder
+     *            builder used for building the registry.
+     */
+    public RegistryBootstrap(final RegistryBuilder builder) {
+        this.builder = builder;
+    }
+
+    /**
+     * Start building the registry in the background.
+     */
+    public void start() {
+        started = System.currentTimeMillis();
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                bootstrap();
+            }
+        });
+        executor.shutdown();
+    }
+
+    private void bootstrap() {
+        try {
+            final BowerRegistry registry = builder.build();
+            RegistryHolder.setRequestExecutor(builder.buildRequestExecutor());
+            RegistryHolder.setRegistry(registry);
+            duration = System.currentTimeMillis() - started;
+            state = State.READY;
+            logger.info(String.format("The bower registry has been initialized in %d ms.", duration));
+        }
+        catch (final RuntimeException e) {
+            failure = e;
+            duration = System.currentTimeMillis() - started;
+            state = State.FAILED;
+            logger.log(Level.SEVERE, "The bower registry could not be initialized.", e);
+        }
+    }
+
+    /**
+     * Wait for the bootstrap to finish.
+     *
+     * @param timeout
+     *            maximum time in milliseconds to wait.
+     * @return <code>true</code> when the bootstrap has finished, <code>false</code> when the timeout elapsed before.
+     */
+    public boolean awaitTermination(final long timeout) {
+        try {
+            return executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            return false;
+        }
+    }
+
+    /**
+     * @return the current state of the bootstrap.
+     */
+    public State getState() {
+        return state;
+    }
+
+    /**
+     * @return the error building the registry failed with, <code>null</code> unless the state is {@link State#FAILED}.
+     */
+    public RuntimeException getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return the time in milliseconds the bootstrap took or has been running while loading.
+     */
+    public long getDuration() {
+        return duration < 0 ? System.currentTimeMillis() - started : duration;
+    }
+}
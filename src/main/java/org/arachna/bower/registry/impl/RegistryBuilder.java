@@ -9,11 +9,14 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.Writer;
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Locale;
 import java.util.Properties;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -27,24 +30,73 @@ import org.arachna.bower.registry.BowerRegistry;
  * @author Dirk Weigenand
  */
 public class RegistryBuilder {
+    /**
+     * file name of the memory mapped store of locally registered packages.
+     */
+    static final String PACKAGE_STORE = "bowerPackages.map";
+
+    /**
+     * folder below the registry folder containing the memory mapped mirrors of remote bower registries.
+     */
+    static final String MIRRORS_FOLDER = "mirrors";
+
+    /**
+     * folder below the registry folder containing the persisted caches of remote bower registries.
+     */
+    static final String CACHES_FOLDER = "caches";
     /**
      * Logger.
      */
     private final Logger logger = Logger.getLogger(getClass().getName());
 
+    /**
+     * the configuration, read on first use.
+     */
+    private Configuration configuration;
+
     /**
      * Build a {@link BowerRegistry} using the configuration.
      * 
      * @return a bower registry using a file backed registry and the remote bower registry from the configuration file.
      */
     public BowerRegistry build() {
-        Configuration config = readOrCreateConfiguration();
+        Configuration config = getConfiguration();
 
         File registryBaseDir = new File(config.getRegistryBase());
 
         createFolderIfNotExistsAndVerify(registryBaseDir);
-        BowerRegistry persistentBowerRegistry = FileBackedBowerRegistry.create(registryBaseDir, new BowerPackageMap());
-        return new Registry(persistentBowerRegistry, createRemoteRegistries(config));
+        BowerRegistry packageStore =
+            Configuration.MAPPED_STORE.equals(config.getRegistryStore()) ? new MappedPackageStore(new File(registryBaseDir,
+                PACKAGE_STORE)) : new BowerPackageMap();
+        BowerRegistry persistentBowerRegistry =
+            FileBackedBowerRegistry.create(registryBaseDir, packageStore, config.getJournalCompactionThreshold(),
+                config.getGroupCommitDelay(), config.getGroupCommitBatchSize());
+        FanOutExecutor fanOut =
+            new FanOutExecutor(config.getRemoteThreads(), config.getRemoteTimeout(), config.getHedgePercentile(),
+                config.getHedgeMinDelay());
+        NegativeLookupCache missingPackages =
+            new NegativeLookupCache(config.getNegativeCacheTimeToLive(), config.getNegativeCacheMaxSize());
+
+        return new Registry(persistentBowerRegistry, createRemoteRegistries(config), fanOut, missingPackages);
+    }
+
+    /**
+     * Build the executor for asynchronous requests to the REST service using the configuration.
+     * 
+     * @return the executor for asynchronous requests or <code>null</code> when requests should be executed synchronously.
+     */
+    public AsyncRequestExecutor buildRequestExecutor() {
+        RequestSettings settings = getConfiguration().getRequestSettings();
+
+        return settings.getThreads() > 0 ? new AsyncRequestExecutor(settings) : null;
+    }
+
+    private Configuration getConfiguration() {
+        if (configuration == null) {
+            configuration = readOrCreateConfiguration();
+        }
+
+        return configuration;
     }
 
     private Configuration readOrCreateConfiguration() {
@@ -133,8 +185,75 @@ public class RegistryBuilder {
             Properties properties = new Properties();
             properties.put(Configuration.ConfigurationProperties.PROXY_ULR.getPropertyName(), configuration.getProxyUrl());
             properties.put(Configuration.ConfigurationProperties.REGISTRY_FOLDER.getPropertyName(), configuration.getRegistryBase());
+            properties.put(Configuration.ConfigurationProperties.REGISTRY_STORE.getPropertyName(), configuration.getRegistryStore());
             properties.put(Configuration.ConfigurationProperties.REMOTE_REGISTRIES.getPropertyName(),
                 StringUtils.join(configuration.getRemoteRepositories(), ","));
+            properties.put(Configuration.ConfigurationProperties.JOURNAL_COMPACTION_THRESHOLD.getPropertyName(),
+                String.valueOf(configuration.getJournalCompactionThreshold()));
+            properties.put(Configuration.ConfigurationProperties.GROUP_COMMIT_DELAY.getPropertyName(),
+                String.valueOf(configuration.getGroupCommitDelay()));
+            properties.put(Configuration.ConfigurationProperties.GROUP_COMMIT_BATCH_SIZE.getPropertyName(),
+                String.valueOf(configuration.getGroupCommitBatchSize()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_TIMEOUT.getPropertyName(),
+                String.valueOf(configuration.getRemoteTimeout()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_THREADS.getPropertyName(),
+                String.valueOf(configuration.getRemoteThreads()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_HEDGE_PERCENTILE.getPropertyName(),
+                String.valueOf(configuration.getHedgePercentile()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_HEDGE_MIN_DELAY.getPropertyName(),
+                String.valueOf(configuration.getHedgeMinDelay()));
+
+            properties.put(Configuration.ConfigurationProperties.NEGATIVE_CACHE_TTL.getPropertyName(),
+                String.valueOf(configuration.getNegativeCacheTimeToLive()));
+            properties.put(Configuration.ConfigurationProperties.NEGATIVE_CACHE_MAX_SIZE.getPropertyName(),
+                String.valueOf(configuration.getNegativeCacheMaxSize()));
+
+            RemoteRegistrySettings remoteDefaults = configuration.getRemoteRegistrySettings(null);
+            properties.put(Configuration.ConfigurationProperties.REMOTE_CACHE_MAX_SIZE.getPropertyName(),
+                String.valueOf(remoteDefaults.getCacheMaxSize()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_CACHE_TTL.getPropertyName(),
+                String.valueOf(remoteDefaults.getCacheTimeToLive()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_CACHE_HARD_EXPIRY.getPropertyName(),
+                String.valueOf(remoteDefaults.getCacheHardExpiry()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_REFRESH_THREADS.getPropertyName(),
+                String.valueOf(remoteDefaults.getRefreshThreads()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_CACHE_WRITE_INTERVAL.getPropertyName(),
+                String.valueOf(remoteDefaults.getCacheWriteInterval()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_MIRROR_INTERVAL.getPropertyName(),
+                String.valueOf(remoteDefaults.getMirrorInterval()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_MIRROR_STORE.getPropertyName(), Configuration.MEMORY_STORE);
+            properties.put(Configuration.ConfigurationProperties.REMOTE_HTTP_MAX_CONNECTIONS.getPropertyName(),
+                String.valueOf(remoteDefaults.getMaxConnections()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_HTTP_MAX_CONNECTIONS_PER_ROUTE.getPropertyName(),
+                String.valueOf(remoteDefaults.getMaxConnectionsPerRoute()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_HTTP_KEEP_ALIVE.getPropertyName(),
+                String.valueOf(remoteDefaults.getKeepAlive()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_HTTP_CONNECT_TIMEOUT.getPropertyName(),
+                String.valueOf(remoteDefaults.getConnectTimeout()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_HTTP_READ_TIMEOUT.getPropertyName(),
+                String.valueOf(remoteDefaults.getReadTimeout()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_HTTP_POOL_TIMEOUT.getPropertyName(),
+                String.valueOf(remoteDefaults.getPoolTimeout()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_BREAKER_WINDOW_SIZE.getPropertyName(),
+                String.valueOf(remoteDefaults.getBreakerWindowSize()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_BREAKER_FAILURE_RATE.getPropertyName(),
+                String.valueOf(remoteDefaults.getBreakerFailureRate()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_BREAKER_SLOW_CALL_DURATION.getPropertyName(),
+                String.valueOf(remoteDefaults.getBreakerSlowCallDuration()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_BREAKER_SLOW_CALL_RATE.getPropertyName(),
+                String.valueOf(remoteDefaults.getBreakerSlowCallRate()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_BREAKER_OPEN_DURATION.getPropertyName(),
+                String.valueOf(remoteDefaults.getBreakerOpenDuration()));
+            properties.put(Configuration.ConfigurationProperties.REMOTE_BREAKER_MAX_OPEN_DURATION.getPropertyName(),
+                String.valueOf(remoteDefaults.getBreakerMaxOpenDuration()));
+
+            RequestSettings requestSettings = configuration.getRequestSettings();
+            properties.put(Configuration.ConfigurationProperties.REQUEST_THREADS.getPropertyName(),
+                String.valueOf(requestSettings.getThreads()));
+            properties.put(Configuration.ConfigurationProperties.REQUEST_MAX_PENDING.getPropertyName(),
+                String.valueOf(requestSettings.getMaxPending()));
+            properties.put(Configuration.ConfigurationProperties.REQUEST_TIMEOUT.getPropertyName(),
+                String.valueOf(requestSettings.getTimeout()));
 
             properties.store(writer, "private bower registry configuration file");
         }
@@ -152,7 +271,7 @@ public class RegistryBuilder {
 
         for (String registry : config.getRemoteRepositories()) {
             try {
-                registries.add(new RemoteBowerRegistry(registry, config.getProxyUrl()));
+                registries.add(new RemoteBowerRegistry(registry, config.getProxyUrl(), config.getRemoteRegistrySettings(registry)));
             }
             catch (IllegalArgumentException e) {
                 logger.log(Level.SEVERE, "An error occured configuring the remote bower repositories.", e);
@@ -213,11 +332,26 @@ public class RegistryBuilder {
     }
 
     private static class Configuration {
+        /**
+         * value of store properties keeping packages on the heap.
+         */
+        static final String MEMORY_STORE = "memory";
+
+        /**
+         * value of store properties keeping packages in a memory mapped file.
+         */
+        static final String MAPPED_STORE = "mapped";
+
         /**
          * folder where the bower registry should store locally registered bower packages.
          */
         private String registryBase;
 
+        /**
+         * store holding locally registered bower packages.
+         */
+        private final String registryStore;
+
         /**
          * list of remote bower packages to query.
          */
@@ -228,6 +362,56 @@ public class RegistryBuilder {
          */
         private final String proxyUrl;
 
+        /**
+         * the properties read from the configuration file.
+         */
+        private final Properties properties;
+
+        /**
+         * number of registrations after which the journal of registered packages is compacted into the package file.
+         */
+        private final int journalCompactionThreshold;
+
+        /**
+         * maximum time in milliseconds a registration waits for concurrent registrations to be written to the journal together.
+         */
+        private final long groupCommitDelay;
+
+        /**
+         * maximum number of registrations written to the journal together.
+         */
+        private final int groupCommitBatchSize;
+
+        /**
+         * time in milliseconds to wait for answers of remote bower registries.
+         */
+        private final long remoteTimeout;
+
+        /**
+         * number of threads used for querying remote bower registries in parallel.
+         */
+        private final int remoteThreads;
+
+        /**
+         * percentile of the latencies of remote bower registries to wait before a lookup is sent to the next remote bower registry.
+         */
+        private final int hedgePercentile;
+
+        /**
+         * minimum time in milliseconds to wait before a lookup is sent to the next remote bower registry.
+         */
+        private final long hedgeMinDelay;
+
+        /**
+         * time in milliseconds a package name no bower registry could resolve is remembered.
+         */
+        private final long negativeCacheTimeToLive;
+
+        /**
+         * maximum number of remembered package names no bower registry could resolve.
+         */
+        private final int negativeCacheMaxSize;
+
         /**
          * names of properties valid in configuration file.
          * 
@@ -247,7 +431,196 @@ public class RegistryBuilder {
             /**
              * Folder where list of locally registered bower packages should be stored.
              */
-            REGISTRY_FOLDER("registry.folder");
+            REGISTRY_FOLDER("registry.folder"),
+
+            /**
+             * Store holding locally registered bower packages: <code>memory</code> keeps them on the heap, <code>mapped</code> keeps
+             * them in a memory mapped file in the registry folder that is available immediately after a restart.
+             */
+            REGISTRY_STORE("registry.store"),
+
+            /**
+             * Number of registrations after which the journal of registered packages is compacted into the package file.
+             */
+            JOURNAL_COMPACTION_THRESHOLD("journal.compactionThreshold"),
+
+            /**
+             * Maximum time in milliseconds a registration waits for concurrent registrations to be written to the journal together.
+             */
+            GROUP_COMMIT_DELAY("journal.groupCommit.maxDelay"),
+
+            /**
+             * Maximum number of registrations written to the journal together.
+             */
+            GROUP_COMMIT_BATCH_SIZE("journal.groupCommit.maxBatchSize"),
+
+            /**
+             * Time in milliseconds to wait for answers of remote bower registries.
+             */
+            REMOTE_TIMEOUT("remote.timeout"),
+
+            /**
+             * Number of threads used for querying remote bower registries in parallel.
+             */
+            REMOTE_THREADS("remote.threads"),
+
+            /**
+             * Percentile (1 - 100) of the latencies of remote bower registries to wait for an answer before a package lookup is sent to
+             * the next remote bower registry. Use when the remote bower registries are mirrors of the same registry. Zero disables
+             * hedging and queries all remote bower registries in parallel.
+             */
+            REMOTE_HEDGE_PERCENTILE("remote.hedge.percentile"),
+
+            /**
+             * Minimum time in milliseconds to wait for an answer before a package lookup is sent to the next remote bower registry.
+             */
+            REMOTE_HEDGE_MIN_DELAY("remote.hedge.minDelay"),
+
+            /**
+             * Time in milliseconds a package name no bower registry could resolve is remembered. Zero disables remembering.
+             */
+            NEGATIVE_CACHE_TTL("negativeCache.ttl"),
+
+            /**
+             * Maximum number of remembered package names no bower registry could resolve.
+             */
+            NEGATIVE_CACHE_MAX_SIZE("negativeCache.maxSize"),
+
+            /**
+             * Maximum number of packages cached per remote bower registry. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.cache.maxSize</code>.
+             */
+            REMOTE_CACHE_MAX_SIZE("remote.cache.maxSize"),
+
+            /**
+             * Time in milliseconds packages of remote bower registries are cached. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.cache.ttl</code>.
+             */
+            REMOTE_CACHE_TTL("remote.cache.ttl"),
+
+            /**
+             * Time in milliseconds after which stale packages of remote bower registries are removed from the cache. Until then stale
+             * packages are served while being revalidated in the background. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.cache.hardExpiry</code>.
+             */
+            REMOTE_CACHE_HARD_EXPIRY("remote.cache.hardExpiry"),
+
+            /**
+             * Number of threads per remote bower registry revalidating stale packages. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.refreshThreads</code>.
+             */
+            REMOTE_REFRESH_THREADS("remote.refreshThreads"),
+
+            /**
+             * Interval in milliseconds between writes of the cached packages of remote bower registries to the folder
+             * <code>caches</code> of the registry folder. The cached packages are also written on shutdown and read back on startup.
+             * Zero writes on shutdown only, a negative value disables persisting the cache. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.cache.writeInterval</code>.
+             */
+            REMOTE_CACHE_WRITE_INTERVAL("remote.cache.writeInterval"),
+
+            /**
+             * Interval in milliseconds between synchronizations of the mirrored package index of remote bower registries. Zero disables
+             * mirroring. Can be set per remote bower registry using <code>remote.&lt;host&gt;.mirror.interval</code>.
+             */
+            REMOTE_MIRROR_INTERVAL("remote.mirror.interval"),
+
+            /**
+             * Store holding the mirrored package index of remote bower registries: <code>memory</code> keeps it on the heap,
+             * <code>mapped</code> keeps it in a memory mapped file in the folder <code>mirrors</code> of the registry folder that is
+             * used until the mirror has been synchronized after a restart. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.mirror.store</code>.
+             */
+            REMOTE_MIRROR_STORE("remote.mirror.store"),
+
+            /**
+             * Maximum number of pooled HTTP connections per remote bower registry. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.http.maxConnections</code>.
+             */
+            REMOTE_HTTP_MAX_CONNECTIONS("remote.http.maxConnections"),
+
+            /**
+             * Maximum number of pooled HTTP connections per route. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.http.maxConnectionsPerRoute</code>.
+             */
+            REMOTE_HTTP_MAX_CONNECTIONS_PER_ROUTE("remote.http.maxConnectionsPerRoute"),
+
+            /**
+             * Time in milliseconds pooled HTTP connections are kept alive. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.http.keepAlive</code>.
+             */
+            REMOTE_HTTP_KEEP_ALIVE("remote.http.keepAlive"),
+
+            /**
+             * Time in milliseconds to wait for a connection to a remote bower registry. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.http.connectTimeout</code>.
+             */
+            REMOTE_HTTP_CONNECT_TIMEOUT("remote.http.connectTimeout"),
+
+            /**
+             * Time in milliseconds to wait for data from a remote bower registry, at most <code>remote.timeout</code> and the longest
+             * request timeout. Can be set per remote bower registry using <code>remote.&lt;host&gt;.http.readTimeout</code>.
+             */
+            REMOTE_HTTP_READ_TIMEOUT("remote.http.readTimeout"),
+
+            /**
+             * Time in milliseconds to wait for a pooled HTTP connection. Can be set per remote bower registry using
+             * <code>remote.&lt;host&gt;.http.poolTimeout</code>.
+             */
+            REMOTE_HTTP_POOL_TIMEOUT("remote.http.poolTimeout"),
+
+            /**
+             * Number of most recent calls to a remote bower registry its circuit breaker records. Can be set per remote bower registry
+             * using <code>remote.&lt;host&gt;.breaker.windowSize</code>.
+             */
+            REMOTE_BREAKER_WINDOW_SIZE("remote.breaker.windowSize"),
+
+            /**
+             * Percentage of failed calls that opens the circuit breaker of a remote bower registry. Can be set per remote bower registry
+             * using <code>remote.&lt;host&gt;.breaker.failureRate</code>.
+             */
+            REMOTE_BREAKER_FAILURE_RATE("remote.breaker.failureRate"),
+
+            /**
+             * Time in milliseconds after which a call to a remote bower registry counts as slow. Can be set per remote bower registry
+             * using <code>remote.&lt;host&gt;.breaker.slowCallDuration</code>.
+             */
+            REMOTE_BREAKER_SLOW_CALL_DURATION("remote.breaker.slowCallDuration"),
+
+            /**
+             * Percentage of slow calls that opens the circuit breaker of a remote bower registry. Can be set per remote bower registry
+             * using <code>remote.&lt;host&gt;.breaker.slowCallRate</code>.
+             */
+            REMOTE_BREAKER_SLOW_CALL_RATE("remote.breaker.slowCallRate"),
+
+            /**
+             * Time in milliseconds the circuit breaker of a remote bower registry stays open before it permits a probing call. Can be
+             * set per remote bower registry using <code>remote.&lt;host&gt;.breaker.openDuration</code>.
+             */
+            REMOTE_BREAKER_OPEN_DURATION("remote.breaker.openDuration"),
+
+            /**
+             * Maximum time in milliseconds the circuit breaker of a remote bower registry stays open while probing calls keep failing.
+             * Can be set per remote bower registry using <code>remote.&lt;host&gt;.breaker.maxOpenDuration</code>.
+             */
+            REMOTE_BREAKER_MAX_OPEN_DURATION("remote.breaker.maxOpenDuration"),
+
+            /**
+             * Number of threads executing requests to the REST service asynchronously. Zero executes requests on the container threads.
+             */
+            REQUEST_THREADS("request.threads"),
+
+            /**
+             * Maximum number of requests to the REST service waiting for execution.
+             */
+            REQUEST_MAX_PENDING("request.maxPending"),
+
+            /**
+             * Time in milliseconds after which requests to the REST service are answered with a gateway timeout. Can be set per
+             * endpoint using <code>request.&lt;endpoint&gt;.timeout</code> where endpoint is one of <code>packages</code>,
+             * <code>package</code>, <code>search</code> or <code>lookup</code>.
+             */
+            REQUEST_TIMEOUT("request.timeout");
 
             /**
              * name of property in configuration file.
@@ -273,6 +646,7 @@ public class RegistryBuilder {
          * @param home
          */
         Configuration(Properties properties, String home) {
+            this.properties = properties;
             proxyUrl = StringUtils.trimToEmpty(properties.getProperty(ConfigurationProperties.PROXY_ULR.getPropertyName()));
             registryBase = StringUtils.trimToEmpty(properties.getProperty(ConfigurationProperties.REGISTRY_FOLDER.getPropertyName()));
 
@@ -280,6 +654,25 @@ public class RegistryBuilder {
                 registryBase = new File(home, ".bowerRegistry").getAbsolutePath();
             }
 
+            registryStore = getStore(properties.getProperty(ConfigurationProperties.REGISTRY_STORE.getPropertyName()));
+            journalCompactionThreshold =
+                (int)getNumber(properties, ConfigurationProperties.JOURNAL_COMPACTION_THRESHOLD,
+                    FileBackedBowerRegistry.DEFAULT_COMPACTION_THRESHOLD);
+            groupCommitDelay = getNumber(properties, ConfigurationProperties.GROUP_COMMIT_DELAY, GroupCommitQueue.DEFAULT_MAX_DELAY);
+            groupCommitBatchSize =
+                (int)Math.max(1,
+                    getNumber(properties, ConfigurationProperties.GROUP_COMMIT_BATCH_SIZE, GroupCommitQueue.DEFAULT_MAX_BATCH_SIZE));
+            remoteTimeout = getNumber(properties, ConfigurationProperties.REMOTE_TIMEOUT, FanOutExecutor.DEFAULT_TIMEOUT);
+            remoteThreads =
+                (int)Math.max(1, getNumber(properties, ConfigurationProperties.REMOTE_THREADS, FanOutExecutor.DEFAULT_THREADS));
+            hedgePercentile = (int)Math.min(100, Math.max(0, getNumber(properties, ConfigurationProperties.REMOTE_HEDGE_PERCENTILE, 0)));
+            hedgeMinDelay =
+                Math.max(0, getNumber(properties, ConfigurationProperties.REMOTE_HEDGE_MIN_DELAY, FanOutExecutor.DEFAULT_HEDGE_MIN_DELAY));
+            negativeCacheTimeToLive =
+                getNumber(properties, ConfigurationProperties.NEGATIVE_CACHE_TTL, NegativeLookupCache.DEFAULT_TIME_TO_LIVE);
+            negativeCacheMaxSize =
+                (int)getNumber(properties, ConfigurationProperties.NEGATIVE_CACHE_MAX_SIZE, NegativeLookupCache.DEFAULT_MAX_SIZE);
+
             for (String remoteRegistryUrl : properties.getProperty(ConfigurationProperties.REMOTE_REGISTRIES.getPropertyName(),
                 RemoteBowerRegistry.GLOBAL_BOWER_REGISTRY).split(",")) {
                 if (StringUtils.isNotEmpty(remoteRegistryUrl)) {
@@ -288,6 +681,49 @@ public class RegistryBuilder {
             }
         }
 
+        /**
+         * Read a numeric property from the given properties.
+         * 
+         * @param properties
+         *            properties to read the value from.
+         * @param property
+         *            the property to read.
+         * @param defaultValue
+         *            value to use when the property is missing or not a valid number.
+         * @return the value of the property or the default value.
+         */
+        static long getNumber(Properties properties, ConfigurationProperties property, long defaultValue) {
+            return getNumber(properties, property.getPropertyName(), defaultValue);
+        }
+
+        /**
+         * Read a numeric property from the given properties.
+         * 
+         * @param properties
+         *            properties to read the value from.
+         * @param propertyName
+         *            name of the property to read.
+         * @param defaultValue
+         *            value to use when the property is missing or not a valid number.
+         * @return the value of the property or the default value.
+         */
+        static long getNumber(Properties properties, String propertyName, long defaultValue) {
+            String value = StringUtils.trimToEmpty(properties.getProperty(propertyName));
+
+            if (StringUtils.isEmpty(value)) {
+                return defaultValue;
+            }
+
+            try {
+                return Long.parseLong(value);
+            }
+            catch (NumberFormatException e) {
+                Logger.getLogger(RegistryBuilder.class.getName()).warning(
+                    String.format("Invalid value '%s' for property '%s'! Using default %d.", value, propertyName, defaultValue));
+                return defaultValue;
+            }
+        }
+
         /**
          * Get the folder name where the registry shall store its locally registered bower packages.
          * 
@@ -297,6 +733,15 @@ public class RegistryBuilder {
             return registryBase;
         }
 
+        /**
+         * Get the store holding locally registered bower packages.
+         * 
+         * @return <code>memory</code> or <code>mapped</code>.
+         */
+        public String getRegistryStore() {
+            return registryStore;
+        }
+
         /**
          * Get URL of proxy to use when querying remote bower packages.
          * 
@@ -314,5 +759,294 @@ public class RegistryBuilder {
         public Collection<String> getRemoteRepositories() {
             return Collections.unmodifiableCollection(remoteRepositories);
         }
+
+        /**
+         * Get the number of registrations after which the journal of registered packages is compacted into the package file.
+         * 
+         * @return number of registrations after which the journal is compacted.
+         */
+        public int getJournalCompactionThreshold() {
+            return journalCompactionThreshold;
+        }
+
+        /**
+         * Get the maximum time in milliseconds a registration waits for concurrent registrations to be written to the journal together.
+         * 
+         * @return maximum time in milliseconds a registration waits for concurrent registrations.
+         */
+        public long getGroupCommitDelay() {
+            return groupCommitDelay;
+        }
+
+        /**
+         * Get the maximum number of registrations written to the journal together.
+         * 
+         * @return maximum number of registrations written to the journal together.
+         */
+        public int getGroupCommitBatchSize() {
+            return groupCommitBatchSize;
+        }
+
+        /**
+         * Get the time in milliseconds to wait for answers of remote bower registries.
+         * 
+         * @return time in milliseconds to wait for answers of remote bower registries.
+         */
+        public long getRemoteTimeout() {
+            return remoteTimeout;
+        }
+
+        /**
+         * Get the number of threads used for querying remote bower registries in parallel.
+         * 
+         * @return number of threads used for querying remote bower registries.
+         */
+        public int getRemoteThreads() {
+            return remoteThreads;
+        }
+
+        /**
+         * Get the percentile of the latencies of remote bower registries to wait before a lookup is sent to the next remote bower
+         * registry.
+         * 
+         * @return percentile of the latencies to wait before a lookup is sent to the next remote bower registry. Zero when hedging is
+         *         disabled.
+         */
+        public int getHedgePercentile() {
+            return hedgePercentile;
+        }
+
+        /**
+         * Get the minimum time in milliseconds to wait before a lookup is sent to the next remote bower registry.
+         * 
+         * @return minimum time in milliseconds to wait before a lookup is sent to the next remote bower registry.
+         */
+        public long getHedgeMinDelay() {
+            return hedgeMinDelay;
+        }
+
+        /**
+         * Get the time in milliseconds a package name no bower registry could resolve is remembered.
+         * 
+         * @return time in milliseconds a package name no bower registry could resolve is remembered.
+         */
+        public long getNegativeCacheTimeToLive() {
+            return negativeCacheTimeToLive;
+        }
+
+        /**
+         * Get the maximum number of remembered package names no bower registry could resolve.
+         * 
+         * @return maximum number of remembered package names no bower registry could resolve.
+         */
+        public int getNegativeCacheMaxSize() {
+            return negativeCacheMaxSize;
+        }
+
+        /**
+         * Get the settings for accessing the given remote bower registry. Settings given for the host of the remote bower registry
+         * override the settings given for all remote bower registries.
+         * 
+         * @param remoteRegistryUrl
+         *            URL of the remote bower registry, <code>null</code> to get the settings for all remote bower registries.
+         * @return settings for accessing the given remote bower registry.
+         */
+        public RemoteRegistrySettings getRemoteRegistrySettings(String remoteRegistryUrl) {
+            RemoteRegistrySettings settings = new RemoteRegistrySettings();
+            settings.setCacheMaxSize((int)Math.max(1,
+                getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_CACHE_MAX_SIZE, settings.getCacheMaxSize())));
+            settings.setCacheTimeToLive(getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_CACHE_TTL,
+                settings.getCacheTimeToLive()));
+            settings.setCacheHardExpiry(getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_CACHE_HARD_EXPIRY,
+                settings.getCacheHardExpiry()));
+            settings.setRefreshThreads((int)Math.max(1,
+                getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_REFRESH_THREADS, settings.getRefreshThreads())));
+            settings.setMirrorInterval(getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_MIRROR_INTERVAL,
+                settings.getMirrorInterval()));
+
+            if (StringUtils.isNotEmpty(remoteRegistryUrl)
+                && MAPPED_STORE.equals(getStore(getRemoteProperty(remoteRegistryUrl, ConfigurationProperties.REMOTE_MIRROR_STORE)))) {
+                settings.setMirrorFile(new File(new File(registryBase, MIRRORS_FOLDER), getRemoteFileName(remoteRegistryUrl, ".map")));
+            }
+
+            settings.setCacheWriteInterval(getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_CACHE_WRITE_INTERVAL,
+                settings.getCacheWriteInterval()));
+
+            if (StringUtils.isNotEmpty(remoteRegistryUrl) && settings.getCacheWriteInterval() >= 0) {
+                settings.setCacheFile(new File(new File(registryBase, CACHES_FOLDER), getRemoteFileName(remoteRegistryUrl, ".cache")));
+            }
+            settings.setMaxConnections((int)Math.max(1,
+                getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_HTTP_MAX_CONNECTIONS, settings.getMaxConnections())));
+            settings.setMaxConnectionsPerRoute((int)Math.max(1, getRemoteNumber(remoteRegistryUrl,
+                ConfigurationProperties.REMOTE_HTTP_MAX_CONNECTIONS_PER_ROUTE, settings.getMaxConnectionsPerRoute())));
+            settings.setKeepAlive(getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_HTTP_KEEP_ALIVE,
+                settings.getKeepAlive()));
+            settings.setConnectTimeout((int)getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_HTTP_CONNECT_TIMEOUT,
+                settings.getConnectTimeout()));
+            settings.setReadTimeout((int)getReadTimeout(getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_HTTP_READ_TIMEOUT,
+                settings.getReadTimeout())));
+            settings.setPoolTimeout((int)getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_HTTP_POOL_TIMEOUT,
+                settings.getPoolTimeout()));
+            settings.setBreakerWindowSize((int)Math.max(1, getRemoteNumber(remoteRegistryUrl,
+                ConfigurationProperties.REMOTE_BREAKER_WINDOW_SIZE, settings.getBreakerWindowSize())));
+            settings.setBreakerFailureRate((int)getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_BREAKER_FAILURE_RATE,
+                settings.getBreakerFailureRate()));
+            settings.setBreakerSlowCallDuration(getRemoteNumber(remoteRegistryUrl,
+                ConfigurationProperties.REMOTE_BREAKER_SLOW_CALL_DURATION, settings.getBreakerSlowCallDuration()));
+            settings.setBreakerSlowCallRate((int)getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_BREAKER_SLOW_CALL_RATE,
+                settings.getBreakerSlowCallRate()));
+            settings.setBreakerOpenDuration(getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_BREAKER_OPEN_DURATION,
+                settings.getBreakerOpenDuration()));
+            settings.setBreakerMaxOpenDuration(getRemoteNumber(remoteRegistryUrl, ConfigurationProperties.REMOTE_BREAKER_MAX_OPEN_DURATION,
+                settings.getBreakerMaxOpenDuration()));
+
+            return settings;
+        }
+
+        /**
+         * Limit the given socket read timeout for remote bower registries. Threads blocked reading from a remote bower registry are not
+         * released by cancelling their queries, so reads must not outlast the time to wait for answers of remote bower registries nor,
+         * when requests are executed asynchronously, the request timeouts.
+         * 
+         * @param readTimeout
+         *            the configured socket read timeout in milliseconds, zero or less for no timeout.
+         * @return the socket read timeout in milliseconds not longer than the time to wait for answers of remote bower registries and
+         *         the longest request timeout.
+         */
+        private long getReadTimeout(long readTimeout) {
+            long limit = remoteTimeout > 0 ? remoteTimeout : Integer.MAX_VALUE;
+            RequestSettings requestSettings = getRequestSettings();
+
+            if (requestSettings.getThreads() > 0) {
+                long requestTimeout = 0;
+
+                for (String endpoint : Arrays.asList(RequestSettings.ALL_PACKAGES, RequestSettings.PACKAGE, RequestSettings.SEARCH,
+                    RequestSettings.LOOKUP)) {
+                    long endpointTimeout = requestSettings.getTimeout(endpoint);
+                    requestTimeout = endpointTimeout > 0 && requestTimeout >= 0 ? Math.max(requestTimeout, endpointTimeout) : -1;
+                }
+
+                if (requestTimeout > 0) {
+                    limit = Math.min(limit, requestTimeout);
+                }
+            }
+
+            return readTimeout > 0 ? Math.min(readTimeout, limit) : limit;
+        }
+
+        /**
+         * Get the settings for executing requests to the REST service. Timeouts given for an endpoint override the timeout given for
+         * all endpoints.
+         * 
+         * @return settings for executing requests to the REST service.
+         */
+        public RequestSettings getRequestSettings() {
+            RequestSettings settings = new RequestSettings();
+            settings.setThreads((int)getNumber(properties, ConfigurationProperties.REQUEST_THREADS, settings.getThreads()));
+            settings.setMaxPending((int)Math.max(1,
+                getNumber(properties, ConfigurationProperties.REQUEST_MAX_PENDING, settings.getMaxPending())));
+            settings.setTimeout(getNumber(properties, ConfigurationProperties.REQUEST_TIMEOUT, settings.getTimeout()));
+
+            for (String endpoint : Arrays.asList(RequestSettings.ALL_PACKAGES, RequestSettings.PACKAGE, RequestSettings.SEARCH,
+                RequestSettings.LOOKUP)) {
+                settings.setTimeout(endpoint, getNumber(properties, "request." + endpoint + ".timeout", settings.getTimeout()));
+            }
+
+            return settings;
+        }
+
+        /**
+         * Read a numeric property for the given remote bower registry. A property <code>remote.&lt;host&gt;.&lt;name&gt;</code>
+         * overrides the property <code>remote.&lt;name&gt;</code>.
+         * 
+         * @param remoteRegistryUrl
+         *            URL of the remote bower registry, may be <code>null</code>.
+         * @param property
+         *            the property to read.
+         * @param defaultValue
+         *            value to use when the property is missing or not a valid number.
+         * @return the value of the property or the default value.
+         */
+        private long getRemoteNumber(String remoteRegistryUrl, ConfigurationProperties property, long defaultValue) {
+            long value = getNumber(properties, property, defaultValue);
+            String host = getHost(remoteRegistryUrl);
+
+            if (host != null) {
+                value = getNumber(properties, "remote." + host + property.getPropertyName().substring("remote".length()), value);
+            }
+
+            return value;
+        }
+
+        /**
+         * Read a property for the given remote bower registry. A property <code>remote.&lt;host&gt;.&lt;name&gt;</code> overrides the
+         * property <code>remote.&lt;name&gt;</code>.
+         * 
+         * @param remoteRegistryUrl
+         *            URL of the remote bower registry, may be <code>null</code>.
+         * @param property
+         *            the property to read.
+         * @return the value of the property or <code>null</code> when the property is missing.
+         */
+        private String getRemoteProperty(String remoteRegistryUrl, ConfigurationProperties property) {
+            String host = getHost(remoteRegistryUrl);
+            String value = null;
+
+            if (host != null) {
+                value = properties.getProperty("remote." + host + property.getPropertyName().substring("remote".length()));
+            }
+
+            return value == null ? properties.getProperty(property.getPropertyName()) : value;
+        }
+
+        /**
+         * Determine the name of a file belonging to the given remote bower registry from its host and port.
+         */
+        private String getRemoteFileName(String remoteRegistryUrl, String extension) {
+            String name = remoteRegistryUrl;
+
+            try {
+                URL url = new URL(remoteRegistryUrl);
+                name = url.getHost() + (url.getPort() > 0 ? "_" + url.getPort() : "");
+            }
+            catch (MalformedURLException e) {
+                Logger.getLogger(RegistryBuilder.class.getName()).log(Level.FINE,
+                    String.format("Invalid remote registry URL '%s'.", remoteRegistryUrl), e);
+            }
+
+            return name.replaceAll("[^A-Za-z0-9._-]", "_") + extension;
+        }
+
+        private static String getHost(String remoteRegistryUrl) {
+            if (StringUtils.isNotEmpty(remoteRegistryUrl)) {
+                try {
+                    return new URL(remoteRegistryUrl).getHost();
+                }
+                catch (MalformedURLException e) {
+                    Logger.getLogger(RegistryBuilder.class.getName()).log(Level.FINE,
+                        String.format("Invalid remote registry URL '%s'.", remoteRegistryUrl), e);
+                }
+            }
+
+            return null;
+        }
+
+        /**
+         * Validate the value of a store property.
+         * 
+         * @param value
+         *            value of the store property, may be <code>null</code>.
+         * @return <code>mapped</code> when given, <code>memory</code> otherwise.
+         */
+        static String getStore(String value) {
+            String store = StringUtils.trimToEmpty(value).toLowerCase(Locale.ENGLISH);
+
+            if (StringUtils.isNotEmpty(store) && !MEMORY_STORE.equals(store) && !MAPPED_STORE.equals(store)) {
+                Logger.getLogger(RegistryBuilder.class.getName()).warning(
+                    String.format("Invalid store '%s'! Using default %s.", value, MEMORY_STORE));
+            }
+
+            return MAPPED_STORE.equals(store) ? MAPPED_STORE : MEMORY_STORE;
+        }
     }
 }
@@ -12,7 +12,7 @@ public class RegistryHolder {
     /**
      * 
      */
-    private static BowerRegistry REGISTRY;
+    private static volatile BowerRegistry REGISTRY;
 
     /**
      * 
@@ -25,4 +25,44 @@ public class RegistryHolder {
     public static BowerRegistry getRegistry() {
         return REGISTRY;
     }
+
+    /**
+     * executor for asynchronous requests to the REST service.
+     */
+    private static volatile AsyncRequestExecutor REQUEST_EXECUTOR;
+
+    /**
+     * @param requestExecutor
+     *            executor for asynchronous requests to the REST service, <code>null</code> to execute requests synchronously.
+     */
+    public static void setRequestExecutor(AsyncRequestExecutor requestExecutor) {
+        REQUEST_EXECUTOR = requestExecutor;
+    }
+
+    /**
+     * @return executor for asynchronous requests to the REST service, <code>null</code> when requests are executed synchronously.
+     */
+    public static AsyncRequestExecutor getRequestExecutor() {
+        return REQUEST_EXECUTOR;
+    }
+
+    /**
+     * bootstrap building the registry in the background.
+     */
+    private static volatile RegistryBootstrap BOOTSTRAP;
+
+    /**
+     * @param bootstrap
+     *            bootstrap building the registry in the background, <code>null</code> when the registry has been set directly.
+     */
+    public static void setBootstrap(RegistryBootstrap bootstrap) {
+        BOOTSTRAP = bootstrap;
+    }
+
+    /**
+     * @return bootstrap building the registry in the background, <code>null</code> when the registry has been set directly.
+     */
+    public static RegistryBootstrap getBootstrap() {
+        return BOOTSTRAP;
+    }
 }
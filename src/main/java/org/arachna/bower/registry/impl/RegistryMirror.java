@@ -0,0 +1,234 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+
+/**
+ * Local copy of the package index of a remote bower registry. The index is fetched periodically and only the differences to the local
+ * copy are applied.
+ *
+ * @author Dirk Weigenand
+ */
+public class RegistryMirror implements Closeable {
+    /**
+     * default interval in milliseconds between synchronizations of the mirror.
+     */
+    public static final long DEFAULT_INTERVAL = 30L * 60L * 1000L;
+
+    /**
+     * Logger.
+     */
+    private final Logger logger = Logger.getLogger(getClass().getName());
+
+    /**
+     * name of the mirrored registry used for logging.
+     */
+    private final String name;
+
+    /**
+     * fetches the complete package index of the mirrored registry.
+     */
+    private final Callable<Collection<BowerPackage>> indexFetcher;
+
+    /**
+     * the mirrored packages, held in compact form or off the heap since package indexes of remote registries are large.
+     */
+    private final PackageStore packages;
+
+    /**
+     * executor running the periodic synchronization.
+     */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * indicates whether the mirror has been synchronized successfully at least once.
+     */
+    private volatile boolean ready;
+
+    /**
+     * Create a mirror using the given function for fetching the package index.
+     *
+     * @param name
+     *            name of the mirrored registry used for logging.
+     * @param indexFetcher
+     *            fetches the complete package index of the mirrored registry.
+     */
+    public RegistryMirror(final String name, final Callable<Collection<BowerPackage>> indexFetcher) {
+        this(name, indexFetcher, new CompactPackageStore());
+    }
+
+    /**
+     * Create a mirror using the given function for fetching the package index and the given store for holding the mirrored packages. A
+     * store already containing packages, e.g. a {@link MappedPackageStore} written before a restart, is used for answering requests
+     * until the first synchronization has finished.
+     *
+     * @param name
+     *            name of the mirrored registry used for logging.
+     * @param indexFetcher
+     *            fetches the complete package index of the mirrored registry.
+     * @param packages
+     *            store holding the mirrored packages.
+     */
+    public RegistryMirror(final String name, final Callable<Collection<BowerPackage>> indexFetcher, final PackageStore packages) {
+        this.name = name;
+        this.indexFetcher = indexFetcher;
+        this.packages = packages;
+        ready = packages.size() > 0;
+    }
+
+    /**
+     * Start synchronizing the mirror periodically. The first synchronization starts immediately.
+     *
+     * @param interval
+     *            interval in milliseconds between synchronizations.
+     */
+    public synchronized void start(final long interval) {
+        if (scheduler != null) {
+            throw new IllegalStateException(String.format("The mirror of '%s' has already been started.", name));
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(new FanOutExecutor.DaemonThreadFactory("bower-registry-mirror"));
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                synchronize();
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop synchronizing the mirror.
+     */
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Stop synchronizing the mirror and release the store holding the mirrored packages.
+     */
+    @Override
+    public void close() {
+        stop();
+
+        if (packages instanceof Closeable) {
+            try {
+                ((Closeable)packages).close();
+            }
+            catch (final IOException e) {
+                logger.log(Level.WARNING, String.format("Could not close the mirror of '%s'.", name), e);
+            }
+        }
+    }
+
+    /**
+     * Fetch the package index and apply the differences to the local copy.
+     *
+     * @return <code>true</code> when the local copy has been changed, <code>false</code> otherwise.
+     */
+    public boolean synchronize() {
+        try {
+            return apply(indexFetcher.call());
+        }
+        catch (final Exception e) {
+            logger.log(Level.WARNING, String.format("Could not synchronize the mirror of '%s'.", name), e);
+        }
+
+        return false;
+    }
+
+    /**
+     * Apply the differences between the given package index and the local copy.
+     *
+     * @param index
+     *            the complete package index of the mirrored registry.
+     * @return <code>true</code> when the local copy has been changed, <code>false</code> otherwise.
+     */
+    synchronized boolean apply(final Collection<BowerPackage> index) {
+        final Set<String> names = new HashSet<String>();
+        final List<BowerPackage> registrations = new ArrayList<BowerPackage>();
+        int added = 0;
+        int changed = 0;
+        int removed = 0;
+
+        for (final BowerPackage bowerPackage : index) {
+            names.add(bowerPackage.getName());
+            final BowerPackage mirrored = packages.getPackage(bowerPackage.getName());
+
+            if (mirrored == null) {
+                registrations.add(bowerPackage);
+                added++;
+            }
+            else if (!StringUtils.equals(mirrored.getUrl(), bowerPackage.getUrl())) {
+                registrations.add(bowerPackage);
+                changed++;
+            }
+        }
+
+        // registered at once, so the version of the mirror changes once per synchronization
+        if (!registrations.isEmpty()) {
+            packages.registerAll(registrations);
+        }
+
+        for (final BowerPackage mirrored : new ArrayList<BowerPackage>(packages.getAllPackages())) {
+            if (!names.contains(mirrored.getName())) {
+                packages.unregister(mirrored.getName());
+                removed++;
+            }
+        }
+
+        if (packages instanceof Flushable) {
+            try {
+                ((Flushable)packages).flush();
+            }
+            catch (final IOException e) {
+                logger.log(Level.WARNING, String.format("Could not write the mirror of '%s'.", name), e);
+            }
+        }
+
+        ready = true;
+        logger.info(String.format("Synchronized mirror of '%s': %d packages added, %d changed, %d removed.", name, added, changed,
+            removed));
+
+        return added + changed + removed > 0;
+    }
+
+    /**
+     * Determine whether the mirror has been synchronized successfully at least once.
+     *
+     * @return <code>true</code> when the mirror can be used for answering requests, <code>false</code> otherwise.
+     */
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Get the mirrored packages.
+     *
+     * @return the mirrored packages.
+     */
+    public BowerRegistry getPackages() {
+        return packages;
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Issues versions for bower registries. Versions are the time in microseconds of a change but are strictly increasing across all
+ * registries, so the latest version of a number of registries changes whenever one of them changes. Counting microseconds keeps versions
+ * close to the clock even when many changes happen within a millisecond, so versions can also be used as time of the last modification.
+ *
+ * @author Dirk Weigenand
+ */
+public final class RegistryVersion {
+    /**
+     * the version issued last.
+     */
+    private static final AtomicLong LAST_VERSION = new AtomicLong();
+
+    private RegistryVersion() {
+    }
+
+    /**
+     * Issue a new version.
+     *
+     * @return a version greater than all versions issued before.
+     */
+    public static long next() {
+        final long now = System.currentTimeMillis() * 1000;
+
+        while (true) {
+            final long last = LAST_VERSION.get();
+            final long next = Math.max(last + 1, now);
+
+            if (LAST_VERSION.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+
+    /**
+     * Get the time of the change the given version has been issued for. The time is never later than the current time, even when
+     * versions have been issued faster than one per microsecond.
+     *
+     * @param version
+     *            a version issued by {@link #next()}.
+     * @return the time of the change.
+     */
+    public static Date toDate(final long version) {
+        return new Date(Math.min(version / 1000, System.currentTimeMillis()));
+    }
+}
@@ -3,11 +3,32 @@
  */
 package org.arachna.bower.registry.impl;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import javax.ws.rs.NotFoundException;
 import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
@@ -15,9 +36,12 @@ import javax.ws.rs.core.GenericType;
 import javax.ws.rs.core.MediaType;
 
 import org.apache.commons.lang3.StringUtils;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.arachna.bower.registry.BowerPackage;
 import org.arachna.bower.registry.BowerRegistry;
 import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.glassfish.jersey.apache.connector.ApacheClientProperties;
 import org.glassfish.jersey.apache.connector.ApacheConnectorProvider;
 import org.glassfish.jersey.client.ClientConfig;
 import org.glassfish.jersey.client.ClientProperties;
@@ -26,19 +50,59 @@ import org.glassfish.jersey.client.ClientProperties;
  * A remote bower registry. This a proxy that supports only a subset of the functionality of {@link BowerRegistry}, namely reading all
  * packages.
  *
+ * The package index of the remote registry is mirrored periodically. Once the mirror has been synchronized, listing and searching
+ * packages is answered from the mirror.
+ *
+ * Calls to the remote registry are guarded by a {@link CircuitBreaker}. While the circuit is open packages are served from the mirror
+ * and the cache only. Queries that cannot be answered locally are answered as if the remote registry did not know the packages, without
+ * calling it.
+ *
+ * The cached packages can be persisted to a file on shutdown and periodically. After a restart they are served from the file while they
+ * are revalidated in the background.
+ *
  * @author Dirk Weigenand
  */
-public class RemoteBowerRegistry implements BowerRegistry {
+public class RemoteBowerRegistry implements BowerRegistry, Closeable {
     /**
      * URL to global bower registry.
      */
     public static final String GLOBAL_BOWER_REGISTRY = "https://bower.herokuapp.com/packages";
 
+    /**
+     * maximum number of revalidations waiting for execution.
+     */
+    private static final int MAX_PENDING_REFRESHES = 100;
+
+    /**
+     * time in milliseconds to wait for a running write of the cached packages when closing the registry.
+     */
+    private static final long CACHE_WRITE_TIMEOUT = 10000;
+
+    /**
+     * pool of HTTP connections to the remote bower registry.
+     */
+    private final PoolingHttpClientConnectionManager connectionManager;
+
     /**
      * REST client to use for querying the remote bower registry.
      */
     private final Client client;
 
+    /**
+     * target listing all packages of the remote bower registry.
+     */
+    private final WebTarget target;
+
+    /**
+     * target for looking up a package by name.
+     */
+    private final WebTarget packageTarget;
+
+    /**
+     * target for searching packages by name.
+     */
+    private final WebTarget searchTarget;
+
     /**
      * URL to remote bower registry given in the constructor.
      */
@@ -47,15 +111,87 @@ public class RemoteBowerRegistry implements BowerRegistry {
     /**
      * Cache for requests that could be resolved from this remote bower registry.
      */
-    private final BowerRegistry cache = new BowerPackageMap();
+    private final PackageCache cache;
+
+    /**
+     * name the cache statistics are registered with JMX.
+     */
+    private ObjectName cacheStatisticsName;
+
+    /**
+     * circuit breaker guarding calls to the remote bower registry.
+     */
+    private final CircuitBreaker circuitBreaker;
+
+    /**
+     * latencies of the HTTP calls to the remote bower registry. Answers from the cache or the mirror are not recorded.
+     */
+    private final LatencyTracker latencies = new LatencyTracker();
+
+    /**
+     * name the circuit breaker is registered with JMX.
+     */
+    private ObjectName circuitBreakerName;
+
+    /**
+     * coalesces concurrent requests for the same package.
+     */
+    private final SingleFlight<BowerPackage> packageRequests = new SingleFlight<BowerPackage>();
+
+    /**
+     * coalesces concurrent requests for the same collection of packages.
+     */
+    private final SingleFlight<Collection<BowerPackage>> collectionRequests = new SingleFlight<Collection<BowerPackage>>();
+
+    /**
+     * local copy of the package index of this remote bower registry.
+     */
+    private final RegistryMirror mirror;
+
+    /**
+     * executor revalidating stale packages in the background.
+     */
+    private final ThreadPoolExecutor refreshExecutor;
+
+    /**
+     * file the cached packages are persisted to, <code>null</code> when the cache is not persisted.
+     */
+    private final File cacheFile;
+
+    /**
+     * executor writing the cached packages to the cache file periodically, <code>null</code> when the cache is not written
+     * periodically.
+     */
+    private final ScheduledExecutorService cacheWriter;
+
+    /**
+     * names of packages currently being revalidated.
+     */
+    private final ConcurrentMap<String, Boolean> refreshing = new ConcurrentHashMap<String, Boolean>();
 
     /**
      * Create an instance of a remote bower registry using the given URL.
      *
      * @param remoteRegistryUrl
      *            URL to remote bower registry.
+     * @param proxyUrl
+     *            URL of proxy to use, may be empty.
      */
     public RemoteBowerRegistry(final String remoteRegistryUrl, final String proxyUrl) {
+        this(remoteRegistryUrl, proxyUrl, new RemoteRegistrySettings());
+    }
+
+    /**
+     * Create an instance of a remote bower registry using the given URL.
+     *
+     * @param remoteRegistryUrl
+     *            URL to remote bower registry.
+     * @param proxyUrl
+     *            URL of proxy to use, may be empty.
+     * @param settings
+     *            settings for accessing the remote bower registry.
+     */
+    public RemoteBowerRegistry(final String remoteRegistryUrl, final String proxyUrl, final RemoteRegistrySettings settings) {
         if (StringUtils.isEmpty(remoteRegistryUrl)) {
             throw new IllegalArgumentException("remote bower repository URL must not be empty!");
         }
@@ -73,23 +209,214 @@ public class RemoteBowerRegistry implements BowerRegistry {
         }
 
         this.remoteRegistryUrl = remoteRegistryUrl;
-        client = newHttpClient(proxyUrl);
+        connectionManager = newConnectionManager(settings);
+        client = newHttpClient(proxyUrl, settings);
+        target = client.target(remoteRegistryUrl);
+        packageTarget = target.path("{name}");
+        searchTarget = target.path("search/{name}");
+        cache = new PackageCache(settings.getCacheMaxSize(), settings.getCacheTimeToLive(), settings.getCacheHardExpiry());
+        cacheFile = settings.getCacheFile();
+        readCache();
+        refreshExecutor =
+            new ThreadPoolExecutor(settings.getRefreshThreads(), settings.getRefreshThreads(), 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<Runnable>(MAX_PENDING_REFRESHES), new FanOutExecutor.DaemonThreadFactory("bower-registry-refresh"));
+        refreshExecutor.allowCoreThreadTimeOut(true);
+        circuitBreaker =
+            new CircuitBreaker(settings.getBreakerWindowSize(), settings.getBreakerFailureRate(), settings.getBreakerSlowCallDuration(),
+                settings.getBreakerSlowCallRate(), settings.getBreakerOpenDuration(), settings.getBreakerMaxOpenDuration());
+        cacheStatisticsName = registerMBean(cache, "PackageCache");
+        circuitBreakerName = registerMBean(circuitBreaker, "CircuitBreaker");
+
+        mirror = new RegistryMirror(remoteRegistryUrl, new Callable<Collection<BowerPackage>>() {
+            @Override
+            public Collection<BowerPackage> call() {
+                return queryCollectionOfBowerPackages("", target);
+            }
+        }, settings.getMirrorFile() == null ? new CompactPackageStore() : new MappedPackageStore(settings.getMirrorFile()));
+
+        if (settings.getMirrorInterval() > 0) {
+            mirror.start(settings.getMirrorInterval());
+        }
+
+        if (cacheFile != null && settings.getCacheWriteInterval() > 0) {
+            cacheWriter =
+                Executors.newSingleThreadScheduledExecutor(new FanOutExecutor.DaemonThreadFactory("bower-registry-cache-writer"));
+            cacheWriter.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    writeCache();
+                }
+            }, settings.getCacheWriteInterval(), settings.getCacheWriteInterval(), TimeUnit.MILLISECONDS);
+        }
+        else {
+            cacheWriter = null;
+        }
     }
 
-    Client newHttpClient(final String proxyAddress) {
+    /**
+     * Read the packages cached before the last shutdown. They are served while they are revalidated in the background.
+     */
+    private void readCache() {
+        if (cacheFile != null && cacheFile.exists()) {
+            try {
+                final int restored = cache.read(cacheFile);
+                Logger.getLogger(getClass().getName()).info(
+                    String.format("Restored %d cached packages of '%s' from '%s'.", restored, remoteRegistryUrl,
+                        cacheFile.getAbsolutePath()));
+            }
+            catch (final IOException e) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                    String.format("Could not read cached packages of '%s' from '%s'.", remoteRegistryUrl, cacheFile.getAbsolutePath()), e);
+            }
+        }
+    }
+
+    /**
+     * Write the cached packages to the cache file. Synchronized so the periodic write and the final write when closing never write the
+     * same temporary file concurrently.
+     */
+    synchronized void writeCache() {
+        if (cacheFile != null) {
+            try {
+                cache.write(cacheFile);
+            }
+            catch (final IOException e) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                    String.format("Could not write cached packages of '%s' to '%s'.", remoteRegistryUrl, cacheFile.getAbsolutePath()), e);
+            }
+        }
+    }
+
+    private ObjectName registerMBean(final Object mbean, final String type) {
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        try {
+            final ObjectName name =
+                new ObjectName("org.arachna.bower.registry:type=" + type + ",remote=" + ObjectName.quote(remoteRegistryUrl));
+
+            if (!server.isRegistered(name)) {
+                server.registerMBean(mbean, name);
+
+                return name;
+            }
+        }
+        catch (final JMException e) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING,
+                String.format("Could not register %s for '%s'.", type, remoteRegistryUrl), e);
+        }
+
+        return null;
+    }
+
+    private void unregisterMBean(final ObjectName name) {
+        if (name != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+            }
+            catch (final JMException e) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, String.format("Could not unregister '%s'.", name), e);
+            }
+        }
+    }
+
+    /**
+     * Get the statistics of the cache of packages resolved from this remote bower registry.
+     *
+     * @return statistics of the cache of packages.
+     */
+    public PackageCacheMBean getCacheStatistics() {
+        return cache;
+    }
+
+    /**
+     * Get the latencies of the HTTP calls to this remote bower registry.
+     *
+     * @return latencies of the HTTP calls to this remote bower registry.
+     */
+    public LatencyTracker getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Get the state of the circuit breaker guarding calls to this remote bower registry.
+     *
+     * @return state of the circuit breaker.
+     */
+    public CircuitBreakerMBean getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Stop mirroring and write the mirrored and cached packages, release the HTTP client and unregister the cache statistics and circuit
+     * breaker.
+     */
+    @Override
+    public void close() {
+        unregisterMBean(cacheStatisticsName);
+        cacheStatisticsName = null;
+        unregisterMBean(circuitBreakerName);
+        circuitBreakerName = null;
+
+        mirror.close();
+        refreshExecutor.shutdownNow();
+
+        if (cacheWriter != null) {
+            cacheWriter.shutdownNow();
+
+            try {
+                if (!cacheWriter.awaitTermination(CACHE_WRITE_TIMEOUT, TimeUnit.MILLISECONDS)) {
+                    Logger.getLogger(getClass().getName()).warning(
+                        String.format("The cached packages of '%s' are still being written.", remoteRegistryUrl));
+                }
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        writeCache();
+        client.close();
+        connectionManager.shutdown();
+    }
+
+    private PoolingHttpClientConnectionManager newConnectionManager(final RemoteRegistrySettings settings) {
+        final PoolingHttpClientConnectionManager manager =
+            new PoolingHttpClientConnectionManager(settings.getKeepAlive() > 0 ? settings.getKeepAlive() : -1, TimeUnit.MILLISECONDS);
+        manager.setMaxTotal(settings.getMaxConnections());
+        manager.setDefaultMaxPerRoute(settings.getMaxConnectionsPerRoute());
+
+        return manager;
+    }
+
+    Client newHttpClient(final String proxyAddress, final RemoteRegistrySettings settings) {
         final ClientConfig cc = new ClientConfig();
 
         if (StringUtils.isNotEmpty(proxyAddress)) {
             cc.property(ClientProperties.PROXY_URI, proxyAddress);
-            cc.connectorProvider(new ApacheConnectorProvider());
         }
 
+        cc.property(ApacheClientProperties.CONNECTION_MANAGER, connectionManager);
+        cc.property(ApacheClientProperties.REQUEST_CONFIG,
+            RequestConfig.custom().setConnectTimeout(settings.getConnectTimeout()).setSocketTimeout(settings.getReadTimeout())
+                .setConnectionRequestTimeout(settings.getPoolTimeout()).build());
+        cc.property(ClientProperties.CONNECT_TIMEOUT, settings.getConnectTimeout());
+        cc.property(ClientProperties.READ_TIMEOUT, settings.getReadTimeout());
+        cc.connectorProvider(new ApacheConnectorProvider());
+
         return ClientBuilder.newClient(cc);
     }
 
     @Override
     public Collection<BowerPackage> getAllPackages() {
-        return queryCollectionOfBowerPackages("");
+        if (mirror.isReady()) {
+            return mirror.getPackages().getAllPackages();
+        }
+
+        if (!isAvailable()) {
+            return Collections.emptyList();
+        }
+
+        return queryCollectionOfBowerPackages("", target);
     }
 
     @Override
@@ -98,55 +425,224 @@ public class RemoteBowerRegistry implements BowerRegistry {
             "This implementation acts as a read-only proxy and does not support registration of bower packages on remote repositories!");
     }
 
+    @Override
+    public void registerAll(final Collection<BowerPackage> bowerPackages) throws IllegalArgumentException {
+        throw new UnsupportedOperationException(
+            "This implementation acts as a read-only proxy and does not support registration of bower packages on remote repositories!");
+    }
+
     @Override
     public BowerPackage getPackage(final String packageName) {
-        BowerPackage bowerPackage = cache.getPackage(packageName);
+        if (mirror.isReady()) {
+            final BowerPackage mirroredPackage = mirror.getPackages().getPackage(packageName);
 
-        if (bowerPackage == null) {
-            bowerPackage = queryOneBowerPackage(packageName);
+            if (mirroredPackage != null) {
+                return mirroredPackage;
+            }
+        }
 
-            if (bowerPackage != null) {
-                cache.register(bowerPackage);
+        final PackageCache.CachedPackage cachedPackage = cache.lookup(packageName);
+
+        if (cachedPackage != null) {
+            if (cachedPackage.isStale()) {
+                refresh(packageName);
             }
+
+            return cachedPackage.getBowerPackage();
+        }
+
+        if (!isAvailable()) {
+            return null;
+        }
+
+        final BowerPackage bowerPackage = queryOneBowerPackage(packageName);
+
+        if (bowerPackage != null) {
+            cache.put(bowerPackage);
         }
 
         return bowerPackage;
     }
 
+    /**
+     * Look up the given packages. The remote registry does not support looking up many packages at once, so packages neither mirrored
+     * nor cached are queried one after another.
+     */
+    @Override
+    public Collection<BowerPackage> getPackages(final Collection<String> packageNames) {
+        final Collection<BowerPackage> found = new ArrayList<BowerPackage>(packageNames.size());
+
+        for (final String packageName : packageNames) {
+            final BowerPackage bowerPackage = getPackage(packageName);
+
+            if (bowerPackage != null) {
+                found.add(bowerPackage);
+            }
+        }
+
+        return found;
+    }
+
+    /**
+     * Revalidate the given package in the background. Only one revalidation per package runs at any time. When the remote registry
+     * cannot be reached the stale package is kept until its hard expiry is reached.
+     *
+     * @param packageName
+     *            name of package to revalidate.
+     */
+    private void refresh(final String packageName) {
+        if (refreshing.putIfAbsent(packageName, Boolean.TRUE) != null) {
+            return;
+        }
+
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        final BowerPackage bowerPackage = queryOneBowerPackage(packageName);
+
+                        if (bowerPackage != null) {
+                            cache.put(bowerPackage);
+                        }
+                        else {
+                            cache.remove(packageName);
+                        }
+                    }
+                    catch (final RuntimeException e) {
+                        Logger.getLogger(RemoteBowerRegistry.class.getName()).log(Level.FINE,
+                            String.format("Could not revalidate package '%s' from '%s'.", packageName, remoteRegistryUrl), e);
+                    }
+                    finally {
+                        refreshing.remove(packageName);
+                    }
+                }
+            });
+        }
+        catch (final RejectedExecutionException e) {
+            // too many revalidations pending, try again with the next request for this package
+            refreshing.remove(packageName);
+        }
+    }
+
     @Override
     public Collection<BowerPackage> search(final String packageName) {
+        if (mirror.isReady()) {
+            return mirror.getPackages().search(packageName);
+        }
+
         Collection<BowerPackage> packages = cache.search(packageName);
 
-        if (!packages.isEmpty()) {
+        if (!packages.isEmpty() || !isAvailable()) {
             return packages;
         }
 
-        packages = queryCollectionOfBowerPackages("/search/" + packageName);
+        packages = queryCollectionOfBowerPackages("/search/" + packageName, searchTarget.resolveTemplate("name", packageName));
 
         for (final BowerPackage bowerPackage : packages) {
-            cache.register(bowerPackage);
+            cache.put(bowerPackage);
         }
 
         return packages;
     }
 
-    private BowerPackage queryOneBowerPackage(final String path) {
-        final WebTarget target = client.target(remoteRegistryUrl);
+    /**
+     * Search for one page of packages. Without a synchronized mirror the remote registry does not support paging, so the page is built
+     * from the complete answer of the remote registry.
+     */
+    @Override
+    public Collection<BowerPackage> search(final String packageName, final String cursor, final int limit) {
+        if (mirror.isReady()) {
+            return mirror.getPackages().search(packageName, cursor, limit);
+        }
 
-        final BowerPackageDescriptor descriptor =
-            target.path(path).request(MediaType.APPLICATION_JSON_TYPE).get(new GenericType<BowerPackageDescriptor>() {
-            });
+        return PackagePages.page(StringUtils.isEmpty(packageName) ? getAllPackages() : search(packageName), cursor, limit);
+    }
 
-        return descriptor;
+    /**
+     * Changes of the remote registry can only be tracked once its package index has been mirrored.
+     */
+    @Override
+    public long getVersion() {
+        return mirror.isReady() ? mirror.getPackages().getVersion() : -1;
     }
 
-    private Collection<BowerPackage> queryCollectionOfBowerPackages(final String path) {
-        final WebTarget target = client.target(remoteRegistryUrl);
-        final Collection<BowerPackage> packages = new ArrayList<BowerPackage>();
-        packages.addAll(target.path(path).request(MediaType.APPLICATION_JSON_TYPE)
-            .get(new GenericType<Collection<BowerPackageDescriptor>>() {
-            }));
+    /**
+     * Determine whether the remote bower registry may be called. Skipping calls while the circuit is open avoids failing them.
+     *
+     * @return <code>true</code> when the circuit breaker permits calls, <code>false</code> otherwise.
+     */
+    private boolean isAvailable() {
+        if (circuitBreaker.isCallPermitted()) {
+            return true;
+        }
 
-        return packages;
+        Logger.getLogger(getClass().getName()).fine(
+            String.format("Not calling remote bower registry '%s', the circuit is open.", remoteRegistryUrl));
+
+        return false;
+    }
+
+    private BowerPackage queryOneBowerPackage(final String packageName) {
+        return packageRequests.execute(remoteRegistryUrl + "/" + packageName, guarded(new Callable<BowerPackage>() {
+            @Override
+            public BowerPackage call() {
+                try {
+                    return packageTarget.resolveTemplate("name", packageName).request(MediaType.APPLICATION_JSON_TYPE)
+                        .get(new GenericType<BowerPackageDescriptor>() {
+                        });
+                }
+                catch (final NotFoundException e) {
+                    return null;
+                }
+            }
+        }));
+    }
+
+    private Collection<BowerPackage> queryCollectionOfBowerPackages(final String path, final WebTarget query) {
+        return collectionRequests.execute(remoteRegistryUrl + path, guarded(new Callable<Collection<BowerPackage>>() {
+            @Override
+            public Collection<BowerPackage> call() {
+                final Collection<BowerPackage> packages = new ArrayList<BowerPackage>();
+                packages.addAll(query.request(MediaType.APPLICATION_JSON_TYPE)
+                    .get(new GenericType<Collection<BowerPackageDescriptor>>() {
+                    }));
+
+                return Collections.unmodifiableCollection(packages);
+            }
+        }));
+    }
+
+    /**
+     * Guard the given call to the remote bower registry with the circuit breaker.
+     *
+     * @param call
+     *            call to the remote bower registry.
+     * @return the guarded call, failing immediately with an {@link IllegalStateException} while the circuit is open.
+     */
+    private <T> Callable<T> guarded(final Callable<T> call) {
+        return new Callable<T>() {
+            @Override
+            public T call() throws Exception {
+                if (!circuitBreaker.tryAcquire()) {
+                    throw new IllegalStateException(String.format("The circuit to remote bower registry '%s' is open.", remoteRegistryUrl));
+                }
+
+                final long start = System.currentTimeMillis();
+
+                try {
+                    final T result = call.call();
+                    final long latency = System.currentTimeMillis() - start;
+                    circuitBreaker.onSuccess(latency);
+                    latencies.record(latency);
+
+                    return result;
+                }
+                catch (final Exception e) {
+                    circuitBreaker.onFailure(System.currentTimeMillis() - start);
+                    throw e;
+                }
+            }
+        };
     }
 }
@@ -0,0 +1,495 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.File;
+
+/**
+ * Settings for accessing a remote bower registry.
+ *
+ * @author Dirk Weigenand
+ */
+public class RemoteRegistrySettings {
+    /**
+     * default time in milliseconds after which stale packages are removed from the cache.
+     */
+    public static final long DEFAULT_CACHE_HARD_EXPIRY = 24L * 60L * 60L * 1000L;
+
+    /**
+     * default interval in milliseconds between writes of the cached packages to the cache file.
+     */
+    public static final long DEFAULT_CACHE_WRITE_INTERVAL = 5L * 60L * 1000L;
+
+    /**
+     * default number of threads revalidating stale packages.
+     */
+    public static final int DEFAULT_REFRESH_THREADS = 2;
+
+    /**
+     * default maximum number of pooled HTTP connections.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS = 50;
+
+    /**
+     * default maximum number of pooled HTTP connections per route.
+     */
+    public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 20;
+
+    /**
+     * default time in milliseconds pooled HTTP connections are kept alive.
+     */
+    public static final long DEFAULT_KEEP_ALIVE = 60000;
+
+    /**
+     * default time in milliseconds to wait for a connection to be established.
+     */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+
+    /**
+     * default time in milliseconds to wait for data.
+     */
+    public static final int DEFAULT_READ_TIMEOUT = 10000;
+
+    /**
+     * default time in milliseconds to wait for a pooled connection.
+     */
+    public static final int DEFAULT_POOL_TIMEOUT = 5000;
+
+    /**
+     * default number of most recent calls recorded by the circuit breaker.
+     */
+    public static final int DEFAULT_BREAKER_WINDOW_SIZE = 20;
+
+    /**
+     * default percentage of failed calls opening the circuit.
+     */
+    public static final int DEFAULT_BREAKER_FAILURE_RATE = 50;
+
+    /**
+     * default time in milliseconds after which calls are considered slow.
+     */
+    public static final long DEFAULT_BREAKER_SLOW_CALL_DURATION = 2000;
+
+    /**
+     * default percentage of slow calls opening the circuit.
+     */
+    public static final int DEFAULT_BREAKER_SLOW_CALL_RATE = 80;
+
+    /**
+     * default time in milliseconds the circuit stays open before a probing call is permitted.
+     */
+    public static final long DEFAULT_BREAKER_OPEN_DURATION = 5000;
+
+    /**
+     * default maximum time in milliseconds the circuit stays open after repeatedly failing probing calls.
+     */
+    public static final long DEFAULT_BREAKER_MAX_OPEN_DURATION = 300000;
+
+    /**
+     * maximum number of packages cached.
+     */
+    private int cacheMaxSize = PackageCache.DEFAULT_MAX_SIZE;
+
+    /**
+     * time in milliseconds packages are cached.
+     */
+    private long cacheTimeToLive = PackageCache.DEFAULT_TIME_TO_LIVE;
+
+    /**
+     * time in milliseconds after which stale packages are removed from the cache.
+     */
+    private long cacheHardExpiry = DEFAULT_CACHE_HARD_EXPIRY;
+
+    /**
+     * file the cached packages are written to and read from after a restart, <code>null</code> when the cache is not persisted.
+     */
+    private File cacheFile;
+
+    /**
+     * interval in milliseconds between writes of the cached packages to the cache file.
+     */
+    private long cacheWriteInterval = DEFAULT_CACHE_WRITE_INTERVAL;
+
+    /**
+     * number of threads revalidating stale packages.
+     */
+    private int refreshThreads = DEFAULT_REFRESH_THREADS;
+
+    /**
+     * interval in milliseconds between synchronizations of the mirrored package index.
+     */
+    private long mirrorInterval = RegistryMirror.DEFAULT_INTERVAL;
+
+    /**
+     * file holding the mirrored package index off the heap, <code>null</code> when the mirror is held in memory.
+     */
+    private File mirrorFile;
+
+    /**
+     * maximum number of pooled HTTP connections.
+     */
+    private int maxConnections = DEFAULT_MAX_CONNECTIONS;
+
+    /**
+     * maximum number of pooled HTTP connections per route.
+     */
+    private int maxConnectionsPerRoute = DEFAULT_MAX_CONNECTIONS_PER_ROUTE;
+
+    /**
+     * time in milliseconds pooled HTTP connections are kept alive.
+     */
+    private long keepAlive = DEFAULT_KEEP_ALIVE;
+
+    /**
+     * time in milliseconds to wait for a connection to be established.
+     */
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+
+    /**
+     * time in milliseconds to wait for data.
+     */
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+
+    /**
+     * time in milliseconds to wait for a pooled connection.
+     */
+    private int poolTimeout = DEFAULT_POOL_TIMEOUT;
+
+    /**
+     * number of most recent calls recorded by the circuit breaker.
+     */
+    private int breakerWindowSize = DEFAULT_BREAKER_WINDOW_SIZE;
+
+    /**
+     * percentage of failed calls opening the circuit.
+     */
+    private int breakerFailureRate = DEFAULT_BREAKER_FAILURE_RATE;
+
+    /**
+     * time in milliseconds after which calls are considered slow.
+     */
+    private long breakerSlowCallDuration = DEFAULT_BREAKER_SLOW_CALL_DURATION;
+
+    /**
+     * percentage of slow calls opening the circuit.
+     */
+    private int breakerSlowCallRate = DEFAULT_BREAKER_SLOW_CALL_RATE;
+
+    /**
+     * time in milliseconds the circuit stays open before a probing call is permitted.
+     */
+    private long breakerOpenDuration = DEFAULT_BREAKER_OPEN_DURATION;
+
+    /**
+     * maximum time in milliseconds the circuit stays open after repeatedly failing probing calls.
+     */
+    private long breakerMaxOpenDuration = DEFAULT_BREAKER_MAX_OPEN_DURATION;
+
+    /**
+     * @return the maximum number of packages cached.
+     */
+    public int getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    /**
+     * @param cacheMaxSize
+     *            the maximum number of packages cached.
+     */
+    public void setCacheMaxSize(final int cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    /**
+     * @return the time in milliseconds packages are cached.
+     */
+    public long getCacheTimeToLive() {
+        return cacheTimeToLive;
+    }
+
+    /**
+     * @param cacheTimeToLive
+     *            the time in milliseconds packages are cached.
+     */
+    public void setCacheTimeToLive(final long cacheTimeToLive) {
+        this.cacheTimeToLive = cacheTimeToLive;
+    }
+
+    /**
+     * @return the time in milliseconds after which stale packages are removed from the cache.
+     */
+    public long getCacheHardExpiry() {
+        return cacheHardExpiry;
+    }
+
+    /**
+     * @param cacheHardExpiry
+     *            the time in milliseconds after which stale packages are removed from the cache. Stale packages are served while they are
+     *            revalidated in the background. A value not greater than the time to live disables serving stale packages.
+     */
+    public void setCacheHardExpiry(final long cacheHardExpiry) {
+        this.cacheHardExpiry = cacheHardExpiry;
+    }
+
+    /**
+     * @return the file the cached packages are written to and read from after a restart, <code>null</code> when the cache is not
+     *         persisted.
+     */
+    public File getCacheFile() {
+        return cacheFile;
+    }
+
+    /**
+     * @param cacheFile
+     *            the file the cached packages are written to on shutdown and periodically. Packages read from the file after a restart
+     *            are served while they are revalidated. <code>null</code> does not persist the cache.
+     */
+    public void setCacheFile(final File cacheFile) {
+        this.cacheFile = cacheFile;
+    }
+
+    /**
+     * @return the interval in milliseconds between writes of the cached packages to the cache file.
+     */
+    public long getCacheWriteInterval() {
+        return cacheWriteInterval;
+    }
+
+    /**
+     * @param cacheWriteInterval
+     *            the interval in milliseconds between writes of the cached packages to the cache file. A value less or equal to zero
+     *            writes the cached packages on shutdown only.
+     */
+    public void setCacheWriteInterval(final long cacheWriteInterval) {
+        this.cacheWriteInterval = cacheWriteInterval;
+    }
+
+    /**
+     * @return the number of threads revalidating stale packages.
+     */
+    public int getRefreshThreads() {
+        return refreshThreads;
+    }
+
+    /**
+     * @param refreshThreads
+     *            the number of threads revalidating stale packages.
+     */
+    public void setRefreshThreads(final int refreshThreads) {
+        this.refreshThreads = refreshThreads;
+    }
+
+    /**
+     * @return the interval in milliseconds between synchronizations of the mirrored package index.
+     */
+    public long getMirrorInterval() {
+        return mirrorInterval;
+    }
+
+    /**
+     * @param mirrorInterval
+     *            the interval in milliseconds between synchronizations of the mirrored package index. A value less or equal to zero
+     *            disables mirroring.
+     */
+    public void setMirrorInterval(final long mirrorInterval) {
+        this.mirrorInterval = mirrorInterval;
+    }
+
+    /**
+     * @return the file holding the mirrored package index off the heap, <code>null</code> when the mirror is held in memory.
+     */
+    public File getMirrorFile() {
+        return mirrorFile;
+    }
+
+    /**
+     * @param mirrorFile
+     *            the file holding the mirrored package index off the heap. The file is kept across restarts, so the mirror can be used
+     *            before it has been synchronized again. <code>null</code> holds the mirror in memory.
+     */
+    public void setMirrorFile(final File mirrorFile) {
+        this.mirrorFile = mirrorFile;
+    }
+
+    /**
+     * @return the maximum number of pooled HTTP connections.
+     */
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    /**
+     * @param maxConnections
+     *            the maximum number of pooled HTTP connections.
+     */
+    public void setMaxConnections(final int maxConnections) {
+        this.maxConnections = maxConnections;
+    }
+
+    /**
+     * @return the maximum number of pooled HTTP connections per route.
+     */
+    public int getMaxConnectionsPerRoute() {
+        return maxConnectionsPerRoute;
+    }
+
+    /**
+     * @param maxConnectionsPerRoute
+     *            the maximum number of pooled HTTP connections per route.
+     */
+    public void setMaxConnectionsPerRoute(final int maxConnectionsPerRoute) {
+        this.maxConnectionsPerRoute = maxConnectionsPerRoute;
+    }
+
+    /**
+     * @return the time in milliseconds pooled HTTP connections are kept alive.
+     */
+    public long getKeepAlive() {
+        return keepAlive;
+    }
+
+    /**
+     * @param keepAlive
+     *            the time in milliseconds pooled HTTP connections are kept alive. A value less or equal to zero keeps connections alive
+     *            as long as the remote registry allows.
+     */
+    public void setKeepAlive(final long keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for a connection to be established.
+     */
+    public int getConnectTimeout() {
+        return connectTimeout;
+    }
+
+    /**
+     * @param connectTimeout
+     *            the time in milliseconds to wait for a connection to be established.
+     */
+    public void setConnectTimeout(final int connectTimeout) {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for data.
+     */
+    public int getReadTimeout() {
+        return readTimeout;
+    }
+
+    /**
+     * @param readTimeout
+     *            the time in milliseconds to wait for data.
+     */
+    public void setReadTimeout(final int readTimeout) {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * @return the time in milliseconds to wait for a pooled connection.
+     */
+    public int getPoolTimeout() {
+        return poolTimeout;
+    }
+
+    /**
+     * @param poolTimeout
+     *            the time in milliseconds to wait for a pooled connection.
+     */
+    public void setPoolTimeout(final int poolTimeout) {
+        this.poolTimeout = poolTimeout;
+    }
+
+    /**
+     * @return the number of most recent calls recorded by the circuit breaker.
+     */
+    public int getBreakerWindowSize() {
+        return breakerWindowSize;
+    }
+
+    /**
+     * @param breakerWindowSize
+     *            the number of most recent calls recorded by the circuit breaker.
+     */
+    public void setBreakerWindowSize(final int breakerWindowSize) {
+        this.breakerWindowSize = breakerWindowSize;
+    }
+
+    /**
+     * @return the percentage of failed calls opening the circuit.
+     */
+    public int getBreakerFailureRate() {
+        return breakerFailureRate;
+    }
+
+    /**
+     * @param breakerFailureRate
+     *            the percentage of failed calls opening the circuit.
+     */
+    public void setBreakerFailureRate(final int breakerFailureRate) {
+        this.breakerFailureRate = breakerFailureRate;
+    }
+
+    /**
+     * @return the time in milliseconds after which calls are considered slow.
+     */
+    public long getBreakerSlowCallDuration() {
+        return breakerSlowCallDuration;
+    }
+
+    /**
+     * @param breakerSlowCallDuration
+     *            the time in milliseconds after which calls are considered slow.
+     */
+    public void setBreakerSlowCallDuration(final long breakerSlowCallDuration) {
+        this.breakerSlowCallDuration = breakerSlowCallDuration;
+    }
+
+    /**
+     * @return the percentage of slow calls opening the circuit.
+     */
+    public int getBreakerSlowCallRate() {
+        return breakerSlowCallRate;
+    }
+
+    /**
+     * @param breakerSlowCallRate
+     *            the percentage of slow calls opening the circuit.
+     */
+    public void setBreakerSlowCallRate(final int breakerSlowCallRate) {
+        this.breakerSlowCallRate = breakerSlowCallRate;
+    }
+
+    /**
+     * @return the time in milliseconds the circuit stays open before a probing call is permitted.
+     */
+    public long getBreakerOpenDuration() {
+        return breakerOpenDuration;
+    }
+
+    /**
+     * @param breakerOpenDuration
+     *            the time in milliseconds the circuit stays open before a probing call is permitted.
+     */
+    public void setBreakerOpenDuration(final long breakerOpenDuration) {
+        this.breakerOpenDuration = breakerOpenDuration;
+    }
+
+    /**
+     * @return the maximum time in milliseconds the circuit stays open after repeatedly failing probing calls.
+     */
+    public long getBreakerMaxOpenDuration() {
+        return breakerMaxOpenDuration;
+    }
+
+    /**
+     * @param breakerMaxOpenDuration
+     *            the maximum time in milliseconds the circuit stays open after repeatedly failing probing calls.
+     */
+    public void setBreakerMaxOpenDuration(final long breakerMaxOpenDuration) {
+        this.breakerMaxOpenDuration = breakerMaxOpenDuration;
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Settings for executing requests to the REST service asynchronously.
+ *
+ * @author Dirk Weigenand
+ */
+public class RequestSettings {
+    /**
+     * endpoint listing all packages.
+     */
+    public static final String ALL_PACKAGES = "packages";
+
+    /**
+     * endpoint looking up a single package.
+     */
+    public static final String PACKAGE = "package";
+
+    /**
+     * endpoint searching packages.
+     */
+    public static final String SEARCH = "search";
+
+    /**
+     * endpoint looking up many packages at once.
+     */
+    public static final String LOOKUP = "lookup";
+
+    /**
+     * default number of threads executing requests.
+     */
+    public static final int DEFAULT_THREADS = 32;
+
+    /**
+     * default maximum number of requests waiting for execution.
+     */
+    public static final int DEFAULT_MAX_PENDING = 256;
+
+    /**
+     * default time in milliseconds after which requests are answered with a gateway timeout.
+     */
+    public static final long DEFAULT_TIMEOUT = 30000;
+
+    /**
+     * number of threads executing requests. Requests are executed on the container threads when not positive.
+     */
+    private int threads = DEFAULT_THREADS;
+
+    /**
+     * maximum number of requests waiting for execution.
+     */
+    private int maxPending = DEFAULT_MAX_PENDING;
+
+    /**
+     * time in milliseconds after which requests are answered with a gateway timeout unless given per endpoint.
+     */
+    private long timeout = DEFAULT_TIMEOUT;
+
+    /**
+     * timeouts in milliseconds per endpoint.
+     */
+    private final Map<String, Long> timeouts = new HashMap<String, Long>();
+
+    /**
+     * @return the number of threads executing requests.
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @param threads
+     *            the number of threads executing requests. A value less or equal to zero executes requests synchronously on the
+     *            container threads.
+     */
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
+    /**
+     * @return the maximum number of requests waiting for execution.
+     */
+    public int getMaxPending() {
+        return maxPending;
+    }
+
+    /**
+     * @param maxPending
+     *            the maximum number of requests waiting for execution.
+     */
+    public void setMaxPending(final int maxPending) {
+        this.maxPending = maxPending;
+    }
+
+    /**
+     * @return the time in milliseconds after which requests are answered with a gateway timeout unless given per endpoint.
+     */
+    public long getTimeout() {
+        return timeout;
+    }
+
+    /**
+     * @param timeout
+     *            the time in milliseconds after which requests are answered with a gateway timeout unless given per endpoint.
+     */
+    public void setTimeout(final long timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Get the timeout of the given endpoint.
+     *
+     * @param endpoint
+     *            the endpoint, one of {@link #ALL_PACKAGES}, {@link #PACKAGE}, {@link #SEARCH} or {@link #LOOKUP}.
+     * @return time in milliseconds after which requests to the endpoint are answered with a gateway timeout. A value less or equal to
+     *         zero disables the timeout.
+     */
+    public long getTimeout(final String endpoint) {
+        final Long endpointTimeout = timeouts.get(endpoint);
+
+        return endpointTimeout != null ? endpointTimeout : timeout;
+    }
+
+    /**
+     * Set the timeout of the given endpoint.
+     *
+     * @param endpoint
+     *            the endpoint, one of {@link #ALL_PACKAGES}, {@link #PACKAGE}, {@link #SEARCH} or {@link #LOOKUP}.
+     * @param endpointTimeout
+     *            time in milliseconds after which requests to the endpoint are answered with a gateway timeout.
+     */
+    public void setTimeout(final String endpoint, final long endpointTimeout) {
+        timeouts.put(endpoint, endpointTimeout);
+    }
+}
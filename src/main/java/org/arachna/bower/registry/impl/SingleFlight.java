@@ -0,0 +1,81 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Coalesces concurrent executions of identical requests. The first caller for a given key executes the request, callers arriving while
+ * the request is in flight wait for it and share its result or its failure.
+ *
+ * @param <V>
+ *            type of the result of the requests.
+ * @author Dirk Weigenand
+ */
+public class SingleFlight<V> {
+    /**
+     * requests currently in flight mapped by their key.
+     */
+    private final ConcurrentMap<String, FutureTask<V>> inFlight = new ConcurrentHashMap<String, FutureTask<V>>();
+
+    /**
+     * Execute the given request unless a request with the same key is already in flight. In that case wait for the request in flight and
+     * return its result.
+     *
+     * @param key
+     *            key identifying the request.
+     * @param request
+     *            the request to execute.
+     * @return the result of the request.
+     */
+    public V execute(final String key, final Callable<V> request) {
+        final FutureTask<V> task = new FutureTask<V>(request);
+        FutureTask<V> pending = inFlight.putIfAbsent(key, task);
+
+        if (pending == null) {
+            pending = task;
+
+            try {
+                task.run();
+            }
+            finally {
+                inFlight.remove(key, task);
+            }
+        }
+
+        try {
+            return pending.get();
+        }
+        catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(String.format("Interrupted waiting for request '%s'.", key), e);
+        }
+        catch (final ExecutionException e) {
+            final Throwable cause = e.getCause();
+
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException)cause;
+            }
+
+            if (cause instanceof Error) {
+                throw (Error)cause;
+            }
+
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * Get the number of requests currently in flight.
+     *
+     * @return number of requests currently in flight.
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Index of the trigrams contained in package names. Used to narrow down the package names that can possibly contain a given search
+ * string before checking them with {@link String#contains(CharSequence)}.
+ *
+ * @author Dirk Weigenand
+ */
+public class TrigramIndex {
+    /**
+     * length of the n-grams indexed.
+     */
+    static final int GRAM_LENGTH = 3;
+
+    /**
+     * Mapping of trigrams to the names containing them.
+     */
+    private final ConcurrentMap<String, Set<String>> postings = new ConcurrentHashMap<String, Set<String>>();
+
+    /**
+     * Add the given name to the index.
+     *
+     * @param name
+     *            package name to index.
+     */
+    public void add(final String name) {
+        for (final String trigram : trigramsOf(name)) {
+            Set<String> names = postings.get(trigram);
+
+            if (names == null) {
+                final Set<String> newNames = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+                names = postings.putIfAbsent(trigram, newNames);
+
+                if (names == null) {
+                    names = newNames;
+                }
+            }
+
+            names.add(name);
+        }
+    }
+
+    /**
+     * Remove the given name from the index.
+     *
+     * @param name
+     *            package name to remove from the index.
+     */
+    public void remove(final String name) {
+        for (final String trigram : trigramsOf(name)) {
+            final Set<String> names = postings.get(trigram);
+
+            if (names != null) {
+                names.remove(name);
+            }
+        }
+    }
+
+    /**
+     * Determine whether the given search string is long enough to be looked up using this index.
+     *
+     * @param searchString
+     *            the string to search for.
+     * @return <code>true</code> when candidates for the given search string can be determined using this index, <code>false</code>
+     *         otherwise.
+     */
+    public boolean canLookUp(final String searchString) {
+        return searchString != null && searchString.length() >= GRAM_LENGTH;
+    }
+
+    /**
+     * Determine the names that possibly contain the given search string. Every name actually containing the search string is part of the
+     * returned collection, the caller has to verify the returned candidates.
+     *
+     * @param searchString
+     *            the string to search for. Must be at least {@link #GRAM_LENGTH} characters long.
+     * @return names containing all trigrams of the search string.
+     */
+    public Collection<String> candidates(final String searchString) {
+        if (!canLookUp(searchString)) {
+            throw new IllegalArgumentException(String.format("search string must contain at least %d characters!", GRAM_LENGTH));
+        }
+
+        Set<String> smallest = null;
+
+        for (final String trigram : trigramsOf(searchString)) {
+            final Set<String> names = postings.get(trigram);
+
+            if (names == null || names.isEmpty()) {
+                return Collections.emptySet();
+            }
+
+            if (smallest == null || names.size() < smallest.size()) {
+                smallest = names;
+            }
+        }
+
+        return smallest;
+    }
+
+    /**
+     * Compute the distinct trigrams of the given string.
+     *
+     * @param value
+     *            string to split into trigrams.
+     * @return the distinct trigrams contained in the given string.
+     */
+    private Set<String> trigramsOf(final String value) {
+        final Set<String> trigrams = new HashSet<String>();
+
+        for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+            trigrams.add(value.substring(i, i + GRAM_LENGTH));
+        }
+
+        return trigrams;
+    }
+}
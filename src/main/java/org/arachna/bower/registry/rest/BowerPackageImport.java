@@ -0,0 +1,191 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.rest;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.lang3.StringUtils;
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Imports bower packages from a stream containing a JSON array or newline delimited JSON of objects with <code>name</code> and
+ * <code>url</code> properties. Packages are registered in batches while the stream is read, so only one batch is held in memory and
+ * persisted at once.
+ *
+ * @author Dirk Weigenand
+ */
+public class BowerPackageImport {
+    /**
+     * default number of packages registered together.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    /**
+     * factory for JSON parsers, thread safe and expensive to create.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * the registry to import packages into.
+     */
+    private final BowerRegistry registry;
+
+    /**
+     * number of packages registered together.
+     */
+    private final int batchSize;
+
+    /**
+     * number of registered packages.
+     */
+    private int accepted;
+
+    /**
+     * number of entries that were not valid packages or could not be registered.
+     */
+    private int rejected;
+
+    /**
+     * Create an import registering packages with the given registry.
+     *
+     * @param registry
+     *            the registry to import packages into.
+     * @param batchSize
+     *            number of packages registered together.
+     */
+    public BowerPackageImport(final BowerRegistry registry, final int batchSize) {
+        this.registry = registry;
+        this.batchSize = Math.max(1, batchSize);
+    }
+
+    /**
+     * Read packages from the given stream and register them. Packages read before a syntax error was encountered are registered.
+     *
+     * @param input
+     *            stream containing a JSON array or newline delimited JSON of packages.
+     * @throws IOException
+     *             when the stream could not be read or did not contain valid JSON.
+     */
+    public void read(final InputStream input) throws IOException {
+        final JsonParser parser = JSON_FACTORY.createParser(input);
+        final List<BowerPackage> batch = new ArrayList<BowerPackage>(batchSize);
+
+        try {
+            JsonToken token = parser.nextToken();
+
+            if (token == JsonToken.START_ARRAY) {
+                token = parser.nextToken();
+            }
+
+            while (token != null && token != JsonToken.END_ARRAY) {
+                final BowerPackage bowerPackage = readPackage(parser);
+
+                if (bowerPackage == null) {
+                    rejected++;
+                }
+                else {
+                    batch.add(bowerPackage);
+
+                    if (batch.size() >= batchSize) {
+                        register(batch);
+                    }
+                }
+
+                token = parser.nextToken();
+            }
+        }
+        finally {
+            register(batch);
+            parser.close();
+        }
+    }
+
+    /**
+     * @return the number of registered packages.
+     */
+    public int getAccepted() {
+        return accepted;
+    }
+
+    /**
+     * @return the number of entries that were not valid packages or could not be registered.
+     */
+    public int getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Read the package at the current position of the parser.
+     *
+     * @param parser
+     *            parser positioned at the start of an entry.
+     * @return the package read or <code>null</code> when the entry is not a valid package.
+     * @throws IOException
+     *             when the entry could not be read.
+     */
+    private BowerPackage readPackage(final JsonParser parser) throws IOException {
+        if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+
+            return null;
+        }
+
+        String name = null;
+        String url = null;
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            final String field = parser.getCurrentName();
+            final JsonToken value = parser.nextToken();
+
+            if ("name".equals(field) && value == JsonToken.VALUE_STRING) {
+                name = StringUtils.trim(parser.getText());
+            }
+            else if ("url".equals(field) && value == JsonToken.VALUE_STRING) {
+                url = StringUtils.trim(parser.getText());
+            }
+            else {
+                parser.skipChildren();
+            }
+        }
+
+        return isValid(name, url) ? new BowerPackageDescriptor(name, url) : null;
+    }
+
+    private boolean isValid(final String name, final String url) {
+        return StringUtils.isNotEmpty(name) && !StringUtils.containsAny(name, " \t\r\n/") && StringUtils.isNotEmpty(url);
+    }
+
+    private void register(final List<BowerPackage> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            registry.registerAll(new ArrayList<BowerPackage>(batch));
+            accepted += batch.size();
+        }
+        catch (final IllegalArgumentException e) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING, "Could not register imported bower packages.", e);
+            rejected += batch.size();
+        }
+        catch (final IllegalStateException e) {
+            // the batch has not been persisted
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, "Could not persist imported bower packages.", e);
+            rejected += batch.size();
+        }
+
+        batch.clear();
+    }
+}
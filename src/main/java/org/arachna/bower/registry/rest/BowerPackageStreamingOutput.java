@@ -0,0 +1,84 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.arachna.bower.registry.BowerPackage;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes the JSON representation of a single bower package to the response stream.
+ *
+ * @author Dirk Weigenand
+ */
+public class BowerPackageStreamingOutput implements StreamingOutput {
+    /**
+     * factory for JSON generators, thread safe and expensive to create.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * the bower package to write.
+     */
+    private final BowerPackage bowerPackage;
+
+    /**
+     * Create a streaming output for the given bower package.
+     *
+     * @param bowerPackage
+     *            the bower package to write.
+     */
+    public BowerPackageStreamingOutput(final BowerPackage bowerPackage) {
+        this.bowerPackage = bowerPackage;
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+        final JsonGenerator generator = createGenerator(output);
+
+        try {
+            write(generator, bowerPackage);
+        }
+        finally {
+            generator.close();
+        }
+    }
+
+    /**
+     * Create a JSON generator writing UTF-8 encoded JSON to the given stream.
+     *
+     * @param output
+     *            stream to write to.
+     * @return the JSON generator.
+     * @throws IOException
+     *             when the generator could not be created.
+     */
+    static JsonGenerator createGenerator(final OutputStream output) throws IOException {
+        return JSON_FACTORY.createGenerator(output, JsonEncoding.UTF8);
+    }
+
+    /**
+     * Write the JSON object representing the given bower package.
+     *
+     * @param generator
+     *            generator to write the package with.
+     * @param bowerPackage
+     *            package to write.
+     * @throws IOException
+     *             when writing the package failed.
+     */
+    static void write(final JsonGenerator generator, final BowerPackage bowerPackage) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("name", bowerPackage.getName());
+        generator.writeStringField("url", bowerPackage.getUrl());
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,54 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.arachna.bower.registry.BowerPackage;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes a JSON array of bower packages directly to the response stream while iterating the packages. No intermediate representation of
+ * the whole array is built so the memory needed per request does not depend on the number of packages.
+ *
+ * @author Dirk Weigenand
+ */
+public class BowerPackagesStreamingOutput implements StreamingOutput {
+    /**
+     * the bower packages to write.
+     */
+    private final Iterable<? extends BowerPackage> packages;
+
+    /**
+     * Create a streaming output for the given bower packages.
+     *
+     * @param packages
+     *            the bower packages to write. They are iterated only when the response is written.
+     */
+    public BowerPackagesStreamingOutput(final Iterable<? extends BowerPackage> packages) {
+        this.packages = packages;
+    }
+
+    @Override
+    public void write(final OutputStream output) throws IOException {
+        final JsonGenerator generator = BowerPackageStreamingOutput.createGenerator(output);
+
+        try {
+            generator.writeStartArray();
+
+            for (final BowerPackage bowerPackage : packages) {
+                BowerPackageStreamingOutput.write(generator, bowerPackage);
+            }
+
+            generator.writeEndArray();
+        }
+        finally {
+            generator.close();
+        }
+    }
+}
@@ -3,39 +3,104 @@
  */
 package org.arachna.bower.registry.rest;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
+import javax.ws.rs.Consumes;
 import javax.ws.rs.FormParam;
 import javax.ws.rs.GET;
+import javax.ws.rs.HeaderParam;
 import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.PathParam;
 import javax.ws.rs.Produces;
+import javax.ws.rs.QueryParam;
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.Suspended;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.core.StreamingOutput;
 
+import org.apache.commons.lang3.StringUtils;
 import org.arachna.bower.registry.BowerPackage;
 import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.impl.AsyncRequestExecutor;
 import org.arachna.bower.registry.impl.RegistryHolder;
+import org.arachna.bower.registry.impl.RegistryVersion;
+import org.arachna.bower.registry.impl.RequestSettings;
 import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.arachna.bower.registry.rest.ResponseBodyCache.CachedBody;
 
 /**
  * REST service for communication with <code>bower</code>.
+ *
+ * Read requests are suspended and executed by the {@link AsyncRequestExecutor} when one is configured, so container threads are not
+ * blocked while remote bower registries are queried.
  * 
  * @author Dirk Weigenand
  */
 @Path("/packages")
 public class BowerRegistryRestService {
+    /**
+     * response header containing the cursor to request the next page of packages with.
+     */
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+    /**
+     * maximum number of packages that can be looked up with one request.
+     */
+    public static final int MAX_LOOKUP_SIZE = 1000;
+
+    /**
+     * media type of newline delimited JSON.
+     */
+    public static final String APPLICATION_NDJSON = "application/x-ndjson";
+
+    /**
+     * serialized response bodies shared by all requests.
+     */
+    private static final ResponseBodyCache SHARED_BODY_CACHE = new ResponseBodyCache(ResponseBodyCache.DEFAULT_MAX_BYTES);
+
+    /**
+     * key of the cached response body listing all packages.
+     */
+    private static final String ALL_PACKAGES_BODY = "packages";
+
     /**
      * The bower registry to use.
      */
     private final BowerRegistry registry;
 
+    /**
+     * cache for serialized response bodies.
+     */
+    private final ResponseBodyCache bodyCache;
+
+    /**
+     * executor for suspended requests, <code>null</code> to answer requests on the container thread.
+     */
+    private final AsyncRequestExecutor requestExecutor;
+
     public BowerRegistryRestService() {
         registry = RegistryHolder.getRegistry();
+        bodyCache = SHARED_BODY_CACHE;
+        requestExecutor = RegistryHolder.getRequestExecutor();
 
         if (registry == null) {
             throw new IllegalStateException("The bower registry could not be initialized.");
@@ -47,27 +112,107 @@ public class BowerRegistryRestService {
      * @param registry
      */
     public BowerRegistryRestService(final BowerRegistry registry) {
+        this(registry, new ResponseBodyCache(ResponseBodyCache.DEFAULT_MAX_BYTES));
+    }
+
+    /**
+     * Create a service using the given registry and response body cache.
+     *
+     * @param registry
+     *            the bower registry to use.
+     * @param bodyCache
+     *            cache for serialized response bodies.
+     */
+    public BowerRegistryRestService(final BowerRegistry registry, final ResponseBodyCache bodyCache) {
+        this(registry, bodyCache, null);
+    }
+
+    /**
+     * Create a service using the given registry, response body cache and executor for suspended requests.
+     *
+     * @param registry
+     *            the bower registry to use.
+     * @param bodyCache
+     *            cache for serialized response bodies.
+     * @param requestExecutor
+     *            executor for suspended requests, <code>null</code> to answer requests on the container thread.
+     */
+    public BowerRegistryRestService(final BowerRegistry registry, final ResponseBodyCache bodyCache,
+        final AsyncRequestExecutor requestExecutor) {
         this.registry = registry;
+        this.bodyCache = bodyCache;
+        this.requestExecutor = requestExecutor;
     }
 
     /**
-     * Get JSON representation of all registered bower packages.
+     * Get JSON representation of all registered bower packages asynchronously.
      *
-     * @return a {@link Response} object containing a list of all registered bower packages.
+     * @param asyncResponse
+     *            the suspended response.
+     * @param request
+     *            the request, used for evaluating conditional requests.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @param cursor
+     *            name of the last package of the previous page, may be <code>null</code>.
+     * @param limit
+     *            maximum number of packages to return, may be <code>null</code> to return all packages.
+     * @see #getAllPackages(Request, String, String, Integer)
      */
     @GET
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getAllPackages() {
-        ResponseBuilder builder = Response.ok();
+    public void getAllPackages(@Suspended final AsyncResponse asyncResponse, @Context final Request request,
+        @HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding, @QueryParam("cursor") final String cursor,
+        @QueryParam("limit") final Integer limit) {
+        execute(asyncResponse, RequestSettings.ALL_PACKAGES, new Callable<Response>() {
+            @Override
+            public Response call() {
+                return getAllPackages(request, acceptEncoding, cursor, limit);
+            }
+        });
+    }
 
-        try {
-            builder.entity(registry.getAllPackages());
+    /**
+     * Get JSON representation of all registered bower packages. The packages are written to the response while they are iterated.
+     *
+     * When a limit is given only one page of packages ordered by name is returned. The name of the last package is returned in the
+     * {@link #NEXT_CURSOR_HEADER} header when there might be more packages. It is used as cursor to request the next page.
+     *
+     * @param request
+     *            the request, used for evaluating conditional requests.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @param cursor
+     *            name of the last package of the previous page, may be <code>null</code>.
+     * @param limit
+     *            maximum number of packages to return, may be <code>null</code> to return all packages.
+     * @return a {@link Response} object streaming a list of all registered bower packages or {@link Status#NOT_MODIFIED} when the
+     *         registry did not change since the version known to the client.
+     */
+    public Response getAllPackages(Request request, String acceptEncoding, String cursor, Integer limit) {
+        final long version = registry.getVersion();
+        final ResponseBuilder notModified = evaluatePreconditions(request, version, acceptEncoding);
+
+        if (notModified != null) {
+            return notModified.build();
         }
-        catch (Exception e) {
-            builder = Response.status(Status.INTERNAL_SERVER_ERROR);
+
+        if (limit != null) {
+            return getPage(null, cursor, limit, version, acceptEncoding);
         }
 
-        return builder.build();
+        final StreamingOutput allPackages = new StreamingOutput() {
+            @Override
+            public void write(OutputStream output) throws IOException {
+                new BowerPackagesStreamingOutput(registry.getAllPackages()).write(output);
+            }
+        };
+
+        if (version < 0) {
+            return encode(allPackages, version, acceptEncoding).build();
+        }
+
+        return cache(ALL_PACKAGES_BODY, version, acceptEncoding, allPackages).build();
     }
 
     /**
@@ -77,53 +222,455 @@ public class BowerRegistryRestService {
      *            The name of the package
      * @param url
      *            The repository url
+     * @return {@link Status#CREATED} after the package has been persisted, {@link Status#INTERNAL_SERVER_ERROR} when it could not be
+     *         persisted.
      * @throws URISyntaxException
      */
     @POST
     public Response addPackage(@FormParam("name") String name, @FormParam("url") String url) throws URISyntaxException {
-        registry.register(new BowerPackageDescriptor(name, url));
+        try {
+            registry.register(new BowerPackageDescriptor(name, url));
+        }
+        catch (IllegalStateException e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, String.format("Could not register package '%s'.", name), e);
+
+            return Response.status(Status.INTERNAL_SERVER_ERROR).build();
+        }
 
         return Response.created(new URI("/packages/" + name)).build();
     }
 
     /**
-     * Get URL for package name.
-     * 
+     * Import many packages at once. The packages are read from a JSON array or newline delimited JSON of objects with <code>name</code>
+     * and <code>url</code> properties and registered in batches while the request body is read.
+     *
+     * @param packages
+     *            the request body containing the packages to import.
+     * @return a JSON object containing the number of <code>accepted</code> and <code>rejected</code> entries. When the request body is
+     *         not valid JSON {@link Status#BAD_REQUEST} is returned, packages read before the error are imported nevertheless.
+     */
+    @POST
+    @Path("/import")
+    @Consumes({ MediaType.APPLICATION_JSON, APPLICATION_NDJSON })
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response importPackages(InputStream packages) {
+        BowerPackageImport packageImport = new BowerPackageImport(registry, BowerPackageImport.DEFAULT_BATCH_SIZE);
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+        Status status = Status.OK;
+
+        try {
+            packageImport.read(packages);
+        }
+        catch (IOException e) {
+            status = Status.BAD_REQUEST;
+            result.put("error", e.getMessage());
+        }
+
+        result.put("accepted", packageImport.getAccepted());
+        result.put("rejected", packageImport.getRejected());
+
+        return Response.status(status).entity(result).type(MediaType.APPLICATION_JSON_TYPE).build();
+    }
+
+    /**
+     * Get URL for package name asynchronously.
+     *
+     * @param asyncResponse
+     *            the suspended response.
+     * @param request
+     *            the request, used for evaluating conditional requests.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
      * @param name
      *            name of bower package
-     * @return URL of package or {@see Status#NOT_FOUND} when no package could be found.
+     * @see #getPackage(Request, String, String)
      */
     @GET
     @Path("/{name}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response getPackage(@PathParam("name") String name) {
-        ResponseBuilder builder = Response.ok();
+    public void getPackage(@Suspended final AsyncResponse asyncResponse, @Context final Request request,
+        @HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding, @PathParam("name") final String name) {
+        execute(asyncResponse, RequestSettings.PACKAGE, new Callable<Response>() {
+            @Override
+            public Response call() {
+                return getPackage(request, acceptEncoding, name);
+            }
+        });
+    }
+
+    /**
+     * Get URL for package name.
+     * 
+     * @param request
+     *            the request, used for evaluating conditional requests.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @param name
+     *            name of bower package
+     * @return URL of package or {@see Status#NOT_FOUND} when no package could be found.
+     */
+    public Response getPackage(Request request, String acceptEncoding, String name) {
+        final long version = registry.getVersion();
+        ResponseBuilder builder = evaluatePreconditions(request, version, acceptEncoding);
+
+        if (builder != null) {
+            return builder.build();
+        }
+
         BowerPackage bowerPackage = registry.getPackage(name);
 
-        if (bowerPackage != null) {
-            builder.entity(bowerPackage);
+        if (bowerPackage == null) {
+            return Response.status(Status.NOT_FOUND).build();
         }
-        else {
-            builder = Response.status(Status.NOT_FOUND);
+
+        return encode(new BowerPackageStreamingOutput(bowerPackage), version, acceptEncoding).build();
+    }
+
+    /**
+     * Look up many bower packages at once asynchronously.
+     *
+     * @param asyncResponse
+     *            the suspended response.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @param names
+     *            JSON array containing the names of the bower packages to look up.
+     * @see #lookupPackages(String, List)
+     */
+    @POST
+    @Path("/lookup")
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public void lookupPackages(@Suspended final AsyncResponse asyncResponse,
+        @HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding, final List<String> names) {
+        execute(asyncResponse, RequestSettings.LOOKUP, new Callable<Response>() {
+            @Override
+            public Response call() {
+                return lookupPackages(acceptEncoding, names);
+            }
+        });
+    }
+
+    /**
+     * Look up many bower packages at once, so clients resolving many dependencies need only one request.
+     *
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @param names
+     *            names of the bower packages to look up.
+     * @return list of the bower packages found, may be empty. {@link Status#BAD_REQUEST} when no names, more than
+     *         {@link #MAX_LOOKUP_SIZE} names or <code>null</code> or blank names were given.
+     */
+    public Response lookupPackages(String acceptEncoding, List<String> names) {
+        if (names == null || names.isEmpty() || names.size() > MAX_LOOKUP_SIZE) {
+            return Response.status(Status.BAD_REQUEST).build();
         }
 
-        return builder.build();
+        for (String name : names) {
+            if (StringUtils.isBlank(name)) {
+                return Response.status(Status.BAD_REQUEST).build();
+            }
+        }
+
+        return encode(new BowerPackagesStreamingOutput(registry.getPackages(names)), -1, acceptEncoding).build();
     }
 
     /**
-     * Lookup bower packages by (part of its) name.
-     * 
+     * Lookup bower packages by (part of its) name asynchronously.
+     *
+     * @param asyncResponse
+     *            the suspended response.
+     * @param request
+     *            the request, used for evaluating conditional requests.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
      * @param name
      *            name of bower package to look up.
-     * @return list of bower packages found, may be empty.
+     * @param cursor
+     *            name of the last package of the previous page, may be <code>null</code>.
+     * @param limit
+     *            maximum number of packages to return, may be <code>null</code> to return all packages found.
+     * @see #searchPackages(Request, String, String, String, Integer)
      */
     @GET
     @Path("/search/{name}")
     @Produces(MediaType.APPLICATION_JSON)
-    public Response searchPackages(@PathParam("name") String name) {
-        ResponseBuilder builder = Response.ok();
+    public void searchPackages(@Suspended final AsyncResponse asyncResponse, @Context final Request request,
+        @HeaderParam(HttpHeaders.ACCEPT_ENCODING) final String acceptEncoding, @PathParam("name") final String name,
+        @QueryParam("cursor") final String cursor, @QueryParam("limit") final Integer limit) {
+        execute(asyncResponse, RequestSettings.SEARCH, new Callable<Response>() {
+            @Override
+            public Response call() {
+                return searchPackages(request, acceptEncoding, name, cursor, limit);
+            }
+        });
+    }
+
+    /**
+     * Lookup bower packages by (part of its) name.
+     * 
+     * @param request
+     *            the request, used for evaluating conditional requests.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @param name
+     *            name of bower package to look up.
+     * @param cursor
+     *            name of the last package of the previous page, may be <code>null</code>.
+     * @param limit
+     *            maximum number of packages to return, may be <code>null</code> to return all packages found.
+     * @return list of bower packages found, may be empty.
+     */
+    public Response searchPackages(Request request, String acceptEncoding, String name, String cursor, Integer limit) {
+        final long version = registry.getVersion();
+        final ResponseBuilder notModified = evaluatePreconditions(request, version, acceptEncoding);
+
+        if (notModified != null) {
+            return notModified.build();
+        }
+
+        if (limit != null) {
+            return getPage(name, cursor, limit, version, acceptEncoding);
+        }
+
+        return encode(new BowerPackagesStreamingOutput(registry.search(name)), version, acceptEncoding).build();
+    }
+
+    /**
+     * Respond with the cached response body for the given key. The body is serialized and cached when none is cached for the given
+     * version of the registry yet. Bodies too large to be cached are streamed.
+     *
+     * @param key
+     *            key of the response body.
+     * @param version
+     *            version of the registry the response body is created from.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @param output
+     *            writes the response body.
+     * @return a response builder for the response body or {@link Status#INTERNAL_SERVER_ERROR} when serializing failed.
+     */
+    private ResponseBuilder cache(String key, long version, String acceptEncoding, StreamingOutput output) {
+        try {
+            final CachedBody body = bodyCache.get(key, version, output);
+
+            return body != null ? respond(body, version, acceptEncoding) : encode(output, version, acceptEncoding);
+        }
+        catch (IOException e) {
+            Logger.getLogger(getClass().getName()).log(Level.SEVERE, String.format("Could not serialize response body '%s'.", key), e);
+
+            return Response.status(Status.INTERNAL_SERVER_ERROR);
+        }
+    }
 
-        builder.entity(registry.search(name));
+    /**
+     * Respond with the given serialized body. A precompressed variant is used when the client accepts gzip or deflate.
+     *
+     * @param body
+     *            the serialized response body.
+     * @param version
+     *            version of the registry the response body was created from.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @return a response builder for the serialized body.
+     */
+    private ResponseBuilder respond(CachedBody body, long version, String acceptEncoding) {
+        ResponseBuilder builder = Response.ok().type(MediaType.APPLICATION_JSON_TYPE);
+        String contentCoding = getContentCoding(acceptEncoding);
+
+        try {
+            if (CompressingStreamingOutput.GZIP.equals(contentCoding)) {
+                builder.entity(body.getGzippedBody()).header(HttpHeaders.CONTENT_ENCODING, contentCoding);
+            }
+            else if (CompressingStreamingOutput.DEFLATE.equals(contentCoding)) {
+                builder.entity(body.getDeflatedBody()).header(HttpHeaders.CONTENT_ENCODING, contentCoding);
+            }
+            else {
+                builder.entity(body.getBody());
+            }
+        }
+        catch (IOException e) {
+            Logger.getLogger(getClass().getName()).log(Level.WARNING, "Could not compress response body.", e);
+            builder.entity(body.getBody());
+            contentCoding = null;
+        }
+
+        return tag(builder, version, contentCoding);
+    }
+
+    /**
+     * Respond with the body written by the given streaming output. The body is compressed while it is written when the client accepts
+     * gzip or deflate. Compression is done here instead of by a Jersey <code>EncodingFilter</code>, since serialized bodies are sent
+     * precompressed and must not be compressed a second time.
+     *
+     * @param output
+     *            writes the response body.
+     * @param version
+     *            version of the registry the response body is created from, negative for responses not to be tagged.
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @return a response builder for the streamed body.
+     */
+    private ResponseBuilder encode(StreamingOutput output, long version, String acceptEncoding) {
+        ResponseBuilder builder = Response.ok().type(MediaType.APPLICATION_JSON_TYPE);
+        String contentCoding = getContentCoding(acceptEncoding);
+
+        if (contentCoding != null) {
+            builder.entity(new CompressingStreamingOutput(output, contentCoding)).header(HttpHeaders.CONTENT_ENCODING, contentCoding);
+        }
+        else {
+            builder.entity(output);
+        }
+
+        return tag(builder, version, contentCoding);
+    }
+
+    /**
+     * Determine the content coding to use for a response.
+     *
+     * @param acceptEncoding
+     *            content codings accepted by the client.
+     * @return {@link CompressingStreamingOutput#GZIP} or {@link CompressingStreamingOutput#DEFLATE} when accepted by the client, gzip
+     *         being preferred, <code>null</code> when the response is to be sent uncompressed.
+     */
+    static String getContentCoding(String acceptEncoding) {
+        if (accepts(acceptEncoding, CompressingStreamingOutput.GZIP)) {
+            return CompressingStreamingOutput.GZIP;
+        }
+
+        return accepts(acceptEncoding, CompressingStreamingOutput.DEFLATE) ? CompressingStreamingOutput.DEFLATE : null;
+    }
+
+    /**
+     * Determine whether the given <code>Accept-Encoding</code> header accepts the given content coding.
+     *
+     * @param acceptEncoding
+     *            value of the <code>Accept-Encoding</code> header, may be <code>null</code>.
+     * @param contentCoding
+     *            the content coding to check.
+     * @return <code>true</code> when the content coding is accepted, <code>false</code> otherwise.
+     */
+    static boolean accepts(String acceptEncoding, String contentCoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim();
+
+            if (contentCoding.equalsIgnoreCase(name) || ("x-" + contentCoding).equalsIgnoreCase(name)) {
+                for (int i = 1; i < parameters.length; i++) {
+                    if (parameters[i].trim().matches("q\\s*=\\s*0(\\.0*)?")) {
+                        return false;
+                    }
+                }
+
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Answer the given suspended request using the executor for suspended requests or on the current thread when none is configured.
+     *
+     * @param asyncResponse
+     *            the suspended response.
+     * @param endpoint
+     *            the endpoint the request was sent to.
+     * @param request
+     *            the request to answer.
+     */
+    private void execute(AsyncResponse asyncResponse, String endpoint, Callable<Response> request) {
+        if (requestExecutor != null) {
+            requestExecutor.execute(asyncResponse, endpoint, request);
+        }
+        else {
+            try {
+                asyncResponse.resume(request.call());
+            }
+            catch (Exception e) {
+                asyncResponse.resume(e);
+            }
+        }
+    }
+
+    /**
+     * Evaluate the preconditions of a conditional request against the given registry version.
+     *
+     * @param request
+     *            the request to evaluate.
+     * @param version
+     *            the current version of the registry.
+     * @param acceptEncoding
+     *            content codings accepted by the client, determining the entity tag of the representation the client would get.
+     * @return a response builder for {@link Status#NOT_MODIFIED} or <code>null</code> when the request should be answered.
+     */
+    private ResponseBuilder evaluatePreconditions(Request request, long version, String acceptEncoding) {
+        if (request == null || version < 0) {
+            return null;
+        }
+
+        String contentCoding = getContentCoding(acceptEncoding);
+        ResponseBuilder builder = request.evaluatePreconditions(RegistryVersion.toDate(version), getEntityTag(version, contentCoding));
+
+        return builder != null ? tag(builder, version, contentCoding) : null;
+    }
+
+    /**
+     * Add a <code>Vary</code> header and, for responses created from a registry version, the entity tag and last modification time
+     * derived from it. Each content coding is a different representation, so it is part of the entity tag.
+     *
+     * @param builder
+     *            the response builder to add the headers to.
+     * @param version
+     *            the version of the registry the response was created from, negative for responses not to be tagged.
+     * @param contentCoding
+     *            the content coding of the response body, <code>null</code> for uncompressed bodies.
+     * @return the given response builder.
+     */
+    private ResponseBuilder tag(ResponseBuilder builder, long version, String contentCoding) {
+        builder.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (version >= 0) {
+            builder.tag(getEntityTag(version, contentCoding)).lastModified(RegistryVersion.toDate(version));
+        }
+
+        return builder;
+    }
+
+    /**
+     * Create the entity tag of a representation.
+     *
+     * @param version
+     *            the version of the registry the representation was created from.
+     * @param contentCoding
+     *            the content coding of the representation, <code>null</code> for uncompressed representations.
+     * @return the entity tag, e.g. <code>"42"</code> or <code>"42-gzip"</code>.
+     */
+    static EntityTag getEntityTag(long version, String contentCoding) {
+        return new EntityTag(contentCoding == null ? Long.toString(version) : version + "-" + contentCoding);
+    }
+
+    private Response getPage(String name, String cursor, int limit, long version, String acceptEncoding) {
+        if (limit < 1) {
+            return Response.status(Status.BAD_REQUEST).build();
+        }
+
+        Collection<BowerPackage> page = registry.search(name, cursor, limit);
+        ResponseBuilder builder = encode(new BowerPackagesStreamingOutput(page), version, acceptEncoding);
+
+        if (page.size() == limit) {
+            String nextCursor = null;
+
+            for (BowerPackage bowerPackage : page) {
+                nextCursor = bowerPackage.getName();
+            }
+
+            builder.header(NEXT_CURSOR_HEADER, nextCursor);
+        }
 
         return builder.build();
     }
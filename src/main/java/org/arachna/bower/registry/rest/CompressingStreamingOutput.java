@@ -0,0 +1,61 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+/**
+ * Compresses the body written by another {@link StreamingOutput} while it is written to the response stream, so streamed responses can
+ * be compressed without buffering them.
+ *
+ * @author Dirk Weigenand
+ */
+class CompressingStreamingOutput implements StreamingOutput {
+    /**
+     * content coding of gzip compressed bodies.
+     */
+    static final String GZIP = "gzip";
+
+    /**
+     * content coding of deflate (zlib) compressed bodies.
+     */
+    static final String DEFLATE = "deflate";
+
+    /**
+     * writes the uncompressed body.
+     */
+    private final StreamingOutput output;
+
+    /**
+     * the content coding to compress the body with.
+     */
+    private final String contentCoding;
+
+    /**
+     * Create a streaming output compressing the body written by the given output.
+     *
+     * @param output
+     *            writes the uncompressed body.
+     * @param contentCoding
+     *            the content coding to compress the body with, either {@link #GZIP} or {@link #DEFLATE}.
+     */
+    CompressingStreamingOutput(final StreamingOutput output, final String contentCoding) {
+        this.output = output;
+        this.contentCoding = contentCoding;
+    }
+
+    @Override
+    public void write(final OutputStream stream) throws IOException {
+        final DeflaterOutputStream compressed =
+            GZIP.equals(contentCoding) ? new GZIPOutputStream(stream) : new DeflaterOutputStream(stream);
+
+        output.write(compressed);
+        compressed.close();
+    }
+}
@@ -0,0 +1,74 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.rest;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
+import javax.ws.rs.core.Response.Status;
+
+import org.arachna.bower.registry.impl.RegistryBootstrap;
+import org.arachna.bower.registry.impl.RegistryHolder;
+
+/**
+ * Reports whether the registry has been built and can answer requests. Meant for load balancers and deployment tooling polling the
+ * registry after a restart.
+ *
+ * @author Dirk Weigenand
+ */
+@Path("/" + ReadinessRestService.PATH)
+public class ReadinessRestService {
+    /**
+     * path of the readiness resource.
+     */
+    public static final String PATH = "ready";
+
+    /**
+     * Get the state of the registry.
+     *
+     * @return {@link Status#OK} when the registry can answer requests, {@link Status#SERVICE_UNAVAILABLE} otherwise. The entity is a JSON
+     *         object containing the <code>state</code> (<code>loading</code>, <code>ready</code> or <code>failed</code>), the time in
+     *         milliseconds the bootstrap took or has been running and, when building the registry failed, the <code>error</code>.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response getReadiness() {
+        RegistryBootstrap bootstrap = RegistryHolder.getBootstrap();
+        RegistryBootstrap.State state = RegistryBootstrap.State.READY;
+        Map<String, Object> result = new LinkedHashMap<String, Object>();
+
+        if (bootstrap != null) {
+            state = bootstrap.getState();
+            result.put("state", state.name().toLowerCase(Locale.ENGLISH));
+            result.put("duration", bootstrap.getDuration());
+
+            if (bootstrap.getFailure() != null) {
+                result.put("error", bootstrap.getFailure().getMessage());
+            }
+        }
+        else {
+            if (RegistryHolder.getRegistry() == null) {
+                state = RegistryBootstrap.State.LOADING;
+            }
+
+            result.put("state", state.name().toLowerCase(Locale.ENGLISH));
+        }
+
+        ResponseBuilder builder = Response.status(state == RegistryBootstrap.State.READY ? Status.OK : Status.SERVICE_UNAVAILABLE);
+
+        if (state == RegistryBootstrap.State.LOADING) {
+            builder.header(HttpHeaders.RETRY_AFTER, RegistryAvailabilityFilter.RETRY_AFTER);
+        }
+
+        return builder.entity(result).type(MediaType.APPLICATION_JSON_TYPE).build();
+    }
+}
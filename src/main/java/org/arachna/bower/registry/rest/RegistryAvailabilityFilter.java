@@ -0,0 +1,52 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.rest;
+
+import java.io.IOException;
+
+import javax.ws.rs.container.ContainerRequestContext;
+import javax.ws.rs.container.ContainerRequestFilter;
+import javax.ws.rs.container.PreMatching;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+import javax.ws.rs.ext.Provider;
+
+import org.arachna.bower.registry.impl.RegistryBootstrap;
+import org.arachna.bower.registry.impl.RegistryHolder;
+
+/**
+ * Answers requests with {@link Status#SERVICE_UNAVAILABLE} and a <code>Retry-After</code> header while the registry is being built in
+ * the background. When building the registry failed, retrying does not help and requests are answered with
+ * {@link Status#INTERNAL_SERVER_ERROR} instead. Requests to the {@link ReadinessRestService} are always passed on.
+ *
+ * @author Dirk Weigenand
+ */
+@Provider
+@PreMatching
+public class RegistryAvailabilityFilter implements ContainerRequestFilter {
+    /**
+     * time in seconds clients are asked to wait before retrying a request while the registry is being built.
+     */
+    public static final int RETRY_AFTER = 5;
+
+    @Override
+    public void filter(final ContainerRequestContext requestContext) throws IOException {
+        if (RegistryHolder.getRegistry() == null && !isReadinessRequest(requestContext.getUriInfo().getPath())) {
+            if (RegistryHolder.getBootstrap().getState() == RegistryBootstrap.State.FAILED) {
+                requestContext.abortWith(Response.status(Status.INTERNAL_SERVER_ERROR).build());
+            }
+            else {
+                requestContext.abortWith(Response.status(Status.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, RETRY_AFTER)
+                    .build());
+            }
+        }
+    }
+
+    private boolean isReadinessRequest(final String path) {
+        String resource = path.startsWith("/") ? path.substring(1) : path;
+
+        return resource.equals(ReadinessRestService.PATH) || resource.startsWith(ReadinessRestService.PATH + "/");
+    }
+}
@@ -0,0 +1,363 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.rest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.arachna.bower.registry.impl.SingleFlight;
+
+/**
+ * Cache for serialized response bodies. Bodies are cached together with the version of the registry they were created from and are
+ * discarded as soon as the registry has a different version. Compressed variants of each body are created on first request so
+ * compression happens once per registry version instead of once per request.
+ *
+ * The cache is meant for a fixed set of keys (the responses of endpoints without parameters), not for keys derived from client input.
+ * It is bounded by the number of bytes of the cached bodies including their compressed variants. When the cache is full the least
+ * recently used bodies are evicted. Bodies larger than the cache are not cached, they have to be streamed to the client.
+ *
+ * Concurrent requests for a body not cached yet wait for one of them serializing the body.
+ *
+ * @author Dirk Weigenand
+ */
+public class ResponseBodyCache {
+    /**
+     * default maximum number of bytes of cached response bodies.
+     */
+    public static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    /**
+     * maximum number of bytes of cached response bodies.
+     */
+    private final long maxBytes;
+
+    /**
+     * cached response bodies in order of access, least recently used first.
+     */
+    private final Map<String, CachedBody> bodies = new LinkedHashMap<String, CachedBody>(16, 0.75f, true);
+
+    /**
+     * versions of the registry bodies were too large to be cached for, mapped by the key of the body.
+     */
+    private final Map<String, Long> oversized = new HashMap<String, Long>();
+
+    /**
+     * serializations of response bodies in flight.
+     */
+    private final SingleFlight<CachedBody> serializations = new SingleFlight<CachedBody>();
+
+    /**
+     * number of bytes of the cached response bodies.
+     */
+    private long size;
+
+    /**
+     * Create a response body cache holding at most the given number of bytes.
+     *
+     * @param maxBytes
+     *            maximum number of bytes of cached response bodies.
+     */
+    public ResponseBodyCache(final long maxBytes) {
+        if (maxBytes < 1) {
+            throw new IllegalArgumentException("maximum cache size must be positive!");
+        }
+
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Look up the response body cached for the given key. When none is cached for the current version of the registry the body is
+     * serialized using the given output and cached.
+     *
+     * @param key
+     *            key of the response body.
+     * @param version
+     *            current version of the registry.
+     * @param output
+     *            writes the response body.
+     * @return the cached response body or <code>null</code> when the body is too large to be cached.
+     * @throws IOException
+     *             when writing the response body failed.
+     */
+    public CachedBody get(final String key, final long version, final StreamingOutput output) throws IOException {
+        synchronized (this) {
+            final CachedBody body = getCachedBody(key, version);
+
+            if (body != null || isOversized(key, version)) {
+                return body;
+            }
+        }
+
+        try {
+            return serializations.execute(key + "@" + version, new Callable<CachedBody>() {
+                @Override
+                public CachedBody call() throws IOException {
+                    return serialize(key, version, output);
+                }
+            });
+        }
+        catch (final IllegalStateException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException)e.getCause();
+            }
+
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of bytes of the cached response bodies.
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    private CachedBody serialize(final String key, final long version, final StreamingOutput output) throws IOException {
+        synchronized (this) {
+            final CachedBody body = getCachedBody(key, version);
+
+            if (body != null) {
+                return body;
+            }
+        }
+
+        final BoundedOutputStream buffer = new BoundedOutputStream(maxBytes);
+        output.write(buffer);
+
+        synchronized (this) {
+            if (buffer.isOverflown()) {
+                oversized.put(key, version);
+
+                return null;
+            }
+
+            final CachedBody body = new CachedBody(this, key, version, buffer.toByteArray());
+            final CachedBody cached = bodies.get(key);
+
+            // do not replace a body created from a newer version of the registry
+            if (cached == null || cached.version <= version) {
+                remove(key);
+                bodies.put(key, body);
+                body.weight = body.body.length;
+                size += body.weight;
+                evict();
+            }
+
+            return body;
+        }
+    }
+
+    private CachedBody getCachedBody(final String key, final long version) {
+        final CachedBody body = bodies.get(key);
+
+        if (body != null && body.version != version) {
+            remove(key);
+
+            return null;
+        }
+
+        return body;
+    }
+
+    private boolean isOversized(final String key, final long version) {
+        final Long oversizedVersion = oversized.get(key);
+
+        return oversizedVersion != null && oversizedVersion.longValue() == version;
+    }
+
+    private void remove(final String key) {
+        final CachedBody body = bodies.remove(key);
+
+        if (body != null) {
+            size -= body.weight;
+        }
+    }
+
+    private void evict() {
+        final Iterator<CachedBody> iterator = bodies.values().iterator();
+
+        while (size > maxBytes && iterator.hasNext()) {
+            size -= iterator.next().weight;
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Account for a compressed variant created for the given body.
+     *
+     * @param body
+     *            the body the variant was created for.
+     * @param bytes
+     *            the number of bytes of the variant.
+     */
+    private synchronized void grow(final CachedBody body, final int bytes) {
+        if (bodies.get(body.key) == body) {
+            body.weight += bytes;
+            size += bytes;
+            evict();
+        }
+    }
+
+    /**
+     * A serialized response body.
+     *
+     * @author Dirk Weigenand
+     */
+    public static class CachedBody {
+        /**
+         * the cache holding the body.
+         */
+        private final ResponseBodyCache cache;
+
+        /**
+         * key of the body.
+         */
+        private final String key;
+
+        /**
+         * version of the registry the body was created from.
+         */
+        private final long version;
+
+        /**
+         * the serialized body.
+         */
+        private final byte[] body;
+
+        /**
+         * the gzip compressed body, created on first request.
+         */
+        private volatile byte[] gzippedBody;
+
+        /**
+         * the deflate compressed body, created on first request.
+         */
+        private volatile byte[] deflatedBody;
+
+        /**
+         * number of bytes accounted for this body and its compressed variants, guarded by the cache.
+         */
+        private long weight;
+
+        CachedBody(final ResponseBodyCache cache, final String key, final long version, final byte[] body) {
+            this.cache = cache;
+            this.key = key;
+            this.version = version;
+            this.body = body;
+        }
+
+        /**
+         * @return the serialized body.
+         */
+        public byte[] getBody() {
+            return body;
+        }
+
+        /**
+         * @return the gzip compressed serialized body.
+         * @throws IOException
+         *             when compressing the body failed.
+         */
+        public byte[] getGzippedBody() throws IOException {
+            byte[] gzipped = gzippedBody;
+
+            if (gzipped == null) {
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+                compress(new GZIPOutputStream(buffer));
+                gzipped = buffer.toByteArray();
+                gzippedBody = gzipped;
+                cache.grow(this, gzipped.length);
+            }
+
+            return gzipped;
+        }
+
+        /**
+         * @return the deflate (zlib) compressed serialized body.
+         * @throws IOException
+         *             when compressing the body failed.
+         */
+        public byte[] getDeflatedBody() throws IOException {
+            byte[] deflated = deflatedBody;
+
+            if (deflated == null) {
+                final ByteArrayOutputStream buffer = new ByteArrayOutputStream(body.length / 4 + 64);
+                compress(new DeflaterOutputStream(buffer));
+                deflated = buffer.toByteArray();
+                deflatedBody = deflated;
+                cache.grow(this, deflated.length);
+            }
+
+            return deflated;
+        }
+
+        private void compress(final DeflaterOutputStream output) throws IOException {
+            try {
+                output.write(body);
+            }
+            finally {
+                output.close();
+            }
+        }
+    }
+
+    /**
+     * Buffer for serializing response bodies. Bytes written after the buffer exceeded its limit are discarded, so serializing a body
+     * too large to be cached does not need more memory than the cache may hold.
+     *
+     * @author Dirk Weigenand
+     */
+    private static final class BoundedOutputStream extends ByteArrayOutputStream {
+        /**
+         * maximum number of bytes to buffer.
+         */
+        private final long limit;
+
+        /**
+         * whether more bytes than the limit have been written.
+         */
+        private boolean overflown;
+
+        BoundedOutputStream(final long limit) {
+            this.limit = limit;
+        }
+
+        @Override
+        public synchronized void write(final int b) {
+            if (reserve(1)) {
+                super.write(b);
+            }
+        }
+
+        @Override
+        public synchronized void write(final byte[] b, final int off, final int len) {
+            if (reserve(len)) {
+                super.write(b, off, len);
+            }
+        }
+
+        private boolean reserve(final int length) {
+            if (!overflown && count + (long)length > limit) {
+                overflown = true;
+                buf = new byte[0];
+                count = 0;
+            }
+
+            return !overflown;
+        }
+
+        boolean isOverflown() {
+            return overflown;
+        }
+    }
+}
@@ -3,24 +3,66 @@
  */
 package org.arachna.bower.registry.servlet;
 
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
 import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.impl.AsyncRequestExecutor;
+import org.arachna.bower.registry.impl.RegistryBootstrap;
 import org.arachna.bower.registry.impl.RegistryBuilder;
 import org.arachna.bower.registry.impl.RegistryHolder;
 
 /**
- * {@link ServletContextListener} for context startup/shutdown handling.
+ * {@link ServletContextListener} for context startup/shutdown handling. The registry is built in the background, so deployment does not
+ * wait for the registered packages to be loaded.
  * 
  * @author Dirk Weigenand
  */
 public class ContextListener implements ServletContextListener {
+    /**
+     * maximum time in milliseconds to wait for a running bootstrap on shutdown.
+     */
+    private static final long SHUTDOWN_TIMEOUT = 60000;
+
     @Override
     public void contextDestroyed(ServletContextEvent arg0) {
+        RegistryBootstrap bootstrap = RegistryHolder.getBootstrap();
+
+        if (bootstrap != null && !bootstrap.awaitTermination(SHUTDOWN_TIMEOUT)) {
+            Logger.getLogger(getClass().getName()).warning("The bower registry is still being initialized while shutting down.");
+        }
+
+        RegistryHolder.setBootstrap(null);
+        AsyncRequestExecutor requestExecutor = RegistryHolder.getRequestExecutor();
+
+        if (requestExecutor != null) {
+            requestExecutor.close();
+            RegistryHolder.setRequestExecutor(null);
+        }
+
+        BowerRegistry registry = RegistryHolder.getRegistry();
+
+        if (registry instanceof Closeable) {
+            try {
+                ((Closeable)registry).close();
+            }
+            catch (IOException e) {
+                Logger.getLogger(getClass().getName()).log(Level.WARNING, "An error occured shutting down the bower registry.", e);
+            }
+        }
+
+        RegistryHolder.setRegistry(null);
     }
 
     @Override
     public void contextInitialized(ServletContextEvent arg0) {
-        RegistryHolder.setRegistry(new RegistryBuilder().build());
+        RegistryBootstrap bootstrap = new RegistryBootstrap(new RegistryBuilder());
+        RegistryHolder.setBootstrap(bootstrap);
+        bootstrap.start();
     }
 }
@@ -0,0 +1,116 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import javax.ws.rs.container.AsyncResponse;
+import javax.ws.rs.container.TimeoutHandler;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+/**
+ * Unit tests for {@link AsyncRequestExecutor}.
+ *
+ * @author Dirk Weigenand
+ */
+public class AsyncRequestExecutorTest {
+    /**
+     * blocks requests until released.
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    /**
+     * Instance under test.
+     */
+    private AsyncRequestExecutor executor;
+
+    @Before
+    public void setUp() {
+        final RequestSettings settings = new RequestSettings();
+        settings.setThreads(1);
+        settings.setMaxPending(1);
+        settings.setTimeout(RequestSettings.PACKAGE, 100);
+        executor = new AsyncRequestExecutor(settings);
+    }
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.close();
+    }
+
+    @Test
+    public void testExecuteResumesWithResponse() {
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        final Response response = Response.ok().build();
+
+        executor.execute(asyncResponse, RequestSettings.PACKAGE, new Callable<Response>() {
+            @Override
+            public Response call() {
+                return response;
+            }
+        });
+
+        verify(asyncResponse, timeout(1000)).resume(response);
+    }
+
+    @Test
+    public void testTimeoutResumesWithGatewayTimeout() {
+        final AsyncResponse asyncResponse = mock(AsyncResponse.class);
+        executor.execute(asyncResponse, RequestSettings.PACKAGE, blockingRequest());
+
+        final ArgumentCaptor<TimeoutHandler> handler = ArgumentCaptor.forClass(TimeoutHandler.class);
+        verify(asyncResponse).setTimeoutHandler(handler.capture());
+        verify(asyncResponse).setTimeout(100, TimeUnit.MILLISECONDS);
+        handler.getValue().handleTimeout(asyncResponse);
+
+        assertThat(resumedStatus(asyncResponse), equalTo(Status.GATEWAY_TIMEOUT.getStatusCode()));
+    }
+
+    @Test
+    public void testTooManyPendingRequestsAreRejected() {
+        executor.execute(mock(AsyncResponse.class), RequestSettings.SEARCH, blockingRequest());
+        executor.execute(mock(AsyncResponse.class), RequestSettings.SEARCH, blockingRequest());
+        final AsyncResponse rejected = mock(AsyncResponse.class);
+
+        executor.execute(rejected, RequestSettings.SEARCH, blockingRequest());
+
+        assertThat(resumedStatus(rejected), equalTo(Status.SERVICE_UNAVAILABLE.getStatusCode()));
+        verify(rejected).setTimeout(anyLong(), any(TimeUnit.class));
+    }
+
+    private Callable<Response> blockingRequest() {
+        return new Callable<Response>() {
+            @Override
+            public Response call() throws InterruptedException {
+                release.await();
+
+                return Response.ok().build();
+            }
+        };
+    }
+
+    private int resumedStatus(final AsyncResponse asyncResponse) {
+        final ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(asyncResponse).resume(response.capture());
+
+        return response.getValue().getStatus();
+    }
+}
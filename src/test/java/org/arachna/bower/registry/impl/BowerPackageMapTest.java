@@ -5,7 +5,14 @@ package org.arachna.bower.registry.impl;
 
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.hamcrest.collection.IsIterableContainingInOrder.contains;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 
 import org.arachna.bower.registry.BowerPackage;
 import org.arachna.bower.registry.BowerRegistry;
@@ -89,6 +96,23 @@ public class BowerPackageMapTest {
         assertThat(lookedUpPackage, notNullValue(BowerPackage.class));
     }
 
+    @Test
+    public void testRegisterAllRegistersAllPackages() {
+        registry.registerAll(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package0", "url0"), new BowerPackageDescriptor(
+            "package1", "url1")));
+
+        assertThat(registry.search("package1"), hasSize(1));
+        assertThat(registry.getAllPackages(), hasSize(2));
+    }
+
+    @Test
+    public void testGetPackagesLeavesOutUnknownPackages() {
+        registry.register(new BowerPackageDescriptor("package0", "url0"));
+        registry.register(new BowerPackageDescriptor("package1", "url1"));
+
+        assertThat(registry.getPackages(Arrays.asList("package0", "unknown", "package1")), hasSize(2));
+    }
+
     @Test
     public void testSearchPackageWithNullArgument() {
         registry.register(new BowerPackageDescriptor("package0", "url0"));
@@ -113,4 +137,74 @@ public class BowerPackageMapTest {
         assertThat(registry.search("package"), hasSize(2));
     }
 
+    @Test
+    public void testSearchPackageWithInfixArgument() {
+        registry.register(new BowerPackageDescriptor("jquery-ui", "url0"));
+        registry.register(new BowerPackageDescriptor("angular-ui-router", "url1"));
+        registry.register(new BowerPackageDescriptor("bootstrap", "url2"));
+
+        assertThat(registry.search("-ui"), hasSize(2));
+    }
+
+    @Test
+    public void testSearchPackageWithArgumentShorterThanATrigram() {
+        registry.register(new BowerPackageDescriptor("jquery", "url0"));
+        registry.register(new BowerPackageDescriptor("angular", "url1"));
+
+        assertThat(registry.search("qu"), hasSize(1));
+    }
+
+    @Test
+    public void testSearchPackageWithTrigramsInWrongOrderDoesNotMatch() {
+        registry.register(new BowerPackageDescriptor("abcxyz", "url0"));
+
+        assertThat(registry.search("xyzabc"), hasSize(0));
+    }
+
+    @Test
+    public void testSearchPageReturnsPackagesFollowingCursorOrderedByName() {
+        registry.register(new BowerPackageDescriptor("package2", "url2"));
+        registry.register(new BowerPackageDescriptor("package0", "url0"));
+        registry.register(new BowerPackageDescriptor("package1", "url1"));
+
+        assertThat(names(registry.search(null, null, 2)), contains("package0", "package1"));
+        assertThat(names(registry.search(null, "package1", 2)), contains("package2"));
+    }
+
+    @Test
+    public void testSearchPageUsesTrigramIndex() {
+        registry.register(new BowerPackageDescriptor("jquery-ui", "url0"));
+        registry.register(new BowerPackageDescriptor("angular-ui-router", "url1"));
+        registry.register(new BowerPackageDescriptor("bootstrap", "url2"));
+
+        assertThat(names(registry.search("-ui", null, 1)), contains("angular-ui-router"));
+        assertThat(names(registry.search("-ui", "angular-ui-router", 1)), contains("jquery-ui"));
+    }
+
+    @Test
+    public void testSearchPageWithArgumentShorterThanATrigram() {
+        registry.register(new BowerPackageDescriptor("jquery", "url0"));
+        registry.register(new BowerPackageDescriptor("angular", "url1"));
+        registry.register(new BowerPackageDescriptor("bootstrap", "url2"));
+
+        assertThat(names(registry.search("r", "angular", 5)), contains("bootstrap", "jquery"));
+    }
+
+    @Test
+    public void testRegisterIncreasesVersion() {
+        final long version = registry.getVersion();
+        registry.register(new BowerPackageDescriptor("package", "url"));
+
+        assertThat(registry.getVersion(), greaterThan(version));
+    }
+
+    private List<String> names(final Collection<BowerPackage> packages) {
+        final List<String> names = new ArrayList<String>();
+
+        for (final BowerPackage bowerPackage : packages) {
+            names.add(bowerPackage.getName());
+        }
+
+        return names;
+    }
 }
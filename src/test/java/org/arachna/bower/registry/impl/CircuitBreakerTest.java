@@ -0,0 +1,99 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import org.arachna.bower.registry.impl.CircuitBreaker.State;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CircuitBreaker}.
+ *
+ * @author Dirk Weigenand
+ */
+public class CircuitBreakerTest {
+    /**
+     * Instance under test.
+     */
+    private final CircuitBreaker breaker = new CircuitBreaker(4, 50, 100, 100, 50, 150);
+
+    @Test
+    public void testCircuitOpensWhenFailureRateIsReached() {
+        breaker.onSuccess(0);
+        breaker.onFailure(0);
+
+        assertThat(breaker.getCurrentState(), equalTo(State.OPEN));
+        assertThat(breaker.tryAcquire(), equalTo(false));
+        assertThat(breaker.getRejectedCalls(), equalTo(1L));
+    }
+
+    @Test
+    public void testCircuitOpensWhenAllCallsAreSlow() {
+        breaker.onSuccess(100);
+        breaker.onSuccess(200);
+
+        assertThat(breaker.getCurrentState(), equalTo(State.OPEN));
+    }
+
+    @Test
+    public void testCircuitStaysClosedBelowThresholds() {
+        breaker.onSuccess(0);
+        breaker.onSuccess(0);
+        breaker.onSuccess(200);
+        breaker.onFailure(0);
+
+        assertThat(breaker.getCurrentState(), equalTo(State.CLOSED));
+        assertThat(breaker.tryAcquire(), equalTo(true));
+    }
+
+    @Test
+    public void testSuccessfulProbeClosesCircuit() throws InterruptedException {
+        open();
+        Thread.sleep(60);
+
+        assertThat(breaker.tryAcquire(), equalTo(true));
+        assertThat(breaker.getCurrentState(), equalTo(State.HALF_OPEN));
+        assertThat(breaker.tryAcquire(), equalTo(false));
+
+        breaker.onSuccess(0);
+
+        assertThat(breaker.getCurrentState(), equalTo(State.CLOSED));
+        assertThat(breaker.getRecordedCalls(), equalTo(0));
+    }
+
+    @Test
+    public void testCallIsPermittedAgainAfterOpenDuration() throws InterruptedException {
+        open();
+
+        assertThat(breaker.isCallPermitted(), equalTo(false));
+        Thread.sleep(60);
+        assertThat(breaker.isCallPermitted(), equalTo(true));
+        assertThat(breaker.getCurrentState(), equalTo(State.OPEN));
+    }
+
+    @Test
+    public void testFailedProbeBacksOff() throws InterruptedException {
+        open();
+        Thread.sleep(60);
+        breaker.tryAcquire();
+        breaker.onFailure(0);
+
+        assertThat(breaker.getCurrentState(), equalTo(State.OPEN));
+        assertThat(breaker.getOpenDuration(), equalTo(100L));
+
+        Thread.sleep(110);
+        breaker.tryAcquire();
+        breaker.onFailure(0);
+
+        assertThat(breaker.getOpenDuration(), equalTo(150L));
+        assertThat(breaker.getTimesOpened(), equalTo(3L));
+    }
+
+    private void open() {
+        breaker.onFailure(0);
+        breaker.onFailure(0);
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+
+/**
+ * Compares the heap used by a {@link CompactPackageStore} with the heap used by a <code>ConcurrentHashMap</code> of
+ * {@link BowerPackageDescriptor}s holding the same packages.
+ *
+ * Run with <code>java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.arachna.bower.registry.impl.CompactPackageStoreBenchmark [packages]</code>.
+ * The number of packages defaults to 50000, about the size of the public bower registry.
+ *
+ * @author Dirk Weigenand
+ */
+public final class CompactPackageStoreBenchmark {
+    /**
+     * URL patterns found in the public bower registry.
+     */
+    private static final String[] URL_PATTERNS =
+        { "git://github.com/%s/%s.git", "https://github.com/%s/%s.git", "git@github.com:%s/%s.git", "https://bitbucket.org/%s/%s.git" };
+
+    private CompactPackageStoreBenchmark() {
+    }
+
+    public static void main(final String[] args) {
+        final int packages = args.length > 0 ? Integer.parseInt(args[0]) : 50000;
+
+        long baseline = usedMemory();
+        Map<String, BowerPackage> map = new ConcurrentHashMap<String, BowerPackage>();
+
+        for (int i = 0; i < packages; i++) {
+            final BowerPackage bowerPackage = createPackage(i);
+            map.put(bowerPackage.getName(), bowerPackage);
+        }
+
+        final long mapMemory = usedMemory() - baseline;
+        System.out.println(String.format("ConcurrentHashMap<String, BowerPackage>: %,d packages, %,d bytes (%d bytes per package)",
+            map.size(), mapMemory, mapMemory / packages));
+        map = null;
+
+        baseline = usedMemory();
+        CompactPackageStore store = new CompactPackageStore();
+
+        for (int i = 0; i < packages; i++) {
+            store.register(createPackage(i));
+        }
+
+        final long storeMemory = usedMemory() - baseline;
+        System.out.println(String.format("CompactPackageStore: %,d packages, %,d bytes (%d bytes per package)", store.size(),
+            storeMemory, storeMemory / packages));
+        System.out.println(String.format("CompactPackageStore uses %d%% of the memory of ConcurrentHashMap.", storeMemory * 100
+            / Math.max(1, mapMemory)));
+    }
+
+    /**
+     * Create a package with a name and URL resembling packages of the public bower registry. Strings are created anew for every
+     * package like they are when parsing the answer of a remote registry.
+     */
+    private static BowerPackage createPackage(final int number) {
+        final String name = "package-" + Integer.toString(number, 36) + (number % 3 == 0 ? "-plugin" : "");
+        final String owner = "owner" + (number % 7919);
+
+        return new BowerPackageDescriptor(name, String.format(URL_PATTERNS[number % URL_PATTERNS.length], owner, name));
+    }
+
+    private static long usedMemory() {
+        final Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+
+            try {
+                Thread.sleep(100);
+            }
+            catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
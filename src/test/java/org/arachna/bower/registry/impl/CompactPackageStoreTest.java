@@ -0,0 +1,116 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link CompactPackageStore}.
+ *
+ * @author Dirk Weigenand
+ */
+public class CompactPackageStoreTest {
+    /**
+     * Instance under test.
+     */
+    private CompactPackageStore store;
+
+    @Before
+    public void setUp() {
+        store = new CompactPackageStore();
+    }
+
+    @Test
+    public void testGetPackageDecodesNameAndUrl() {
+        store.register(new BowerPackageDescriptor("jquery", "git://github.com/jquery/jquery.git"));
+        store.register(new BowerPackageDescriptor("pâté", "git@github.com:user/pâté.git"));
+
+        assertThat(store.getPackage("jquery").getUrl(), equalTo("git://github.com/jquery/jquery.git"));
+        assertThat(store.getPackage("pâté").getName(), equalTo("pâté"));
+        assertThat(store.getPackage("pâté").getUrl(), equalTo("git@github.com:user/pâté.git"));
+        assertThat(store.getPackage("unknown"), nullValue(BowerPackage.class));
+    }
+
+    @Test
+    public void testRegisterReplacesPackageWithoutAffectingViews() {
+        store.register(new BowerPackageDescriptor("package", "url0"));
+        final BowerPackage before = store.getPackage("package");
+        store.register(new BowerPackageDescriptor("package", "url1"));
+
+        assertThat(before.getUrl(), equalTo("url0"));
+        assertThat(store.getPackage("package").getUrl(), equalTo("url1"));
+        assertThat(store.getAllPackages(), hasSize(1));
+    }
+
+    @Test
+    public void testUnregisterRemovesPackage() {
+        store.register(new BowerPackageDescriptor("package0", "url0"));
+        store.register(new BowerPackageDescriptor("package1", "url1"));
+
+        assertThat(store.unregister("package0").getUrl(), equalTo("url0"));
+        assertThat(store.getPackage("package0"), nullValue(BowerPackage.class));
+        assertThat(store.getAllPackages(), hasSize(1));
+        assertThat(store.getAllPackages().iterator().next().getName(), equalTo("package1"));
+    }
+
+    @Test
+    public void testSearchMatchesPartOfName() {
+        store.registerAll(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("angular", "url0"), new BowerPackageDescriptor(
+            "angular-route", "url1"), new BowerPackageDescriptor("jquery", "url2")));
+
+        assertThat(store.search("gular"), hasSize(2));
+        assertThat(store.search("route"), hasSize(1));
+        assertThat(store.search("ar"), hasSize(2));
+        assertThat(store.search("angularx"), hasSize(0));
+        assertThat(store.search(""), hasSize(3));
+        assertThat(new ArrayList<BowerPackage>(store.search("", "angular", 10)).get(0).getName(), equalTo("angular-route"));
+    }
+
+    @Test
+    public void testCompactionKeepsLivePackages() {
+        final List<BowerPackage> packages = new ArrayList<BowerPackage>();
+
+        for (int i = 0; i < 5000; i++) {
+            packages.add(new BowerPackageDescriptor("package" + i, "https://github.com/owner/package" + i + ".git"));
+        }
+
+        store.registerAll(packages);
+
+        for (int i = 0; i < 4000; i++) {
+            store.unregister("package" + i);
+        }
+
+        store.register(new BowerPackageDescriptor("package4500", "changed"));
+        final Collection<BowerPackage> allPackages = store.getAllPackages();
+
+        assertThat(allPackages, hasSize(1000));
+        assertThat(store.size(), equalTo(1000));
+        assertThat(store.getPackage("package4999").getUrl(), equalTo("https://github.com/owner/package4999.git"));
+        assertThat(store.getPackage("package4500").getUrl(), equalTo("changed"));
+        assertThat(store.getPackage("package10"), nullValue(BowerPackage.class));
+        assertThat(store.search("package49"), hasSize(100));
+        assertThat(store.search("package10"), hasSize(0));
+        assertThat(store.search("ckage4500"), hasSize(1));
+    }
+
+    @Test
+    public void testGetPrefixSplitsSchemeAndHost() {
+        assertThat(CompactPackageStore.getPrefix("https://github.com/owner/package.git"), equalTo("https://github.com/"));
+        assertThat(CompactPackageStore.getPrefix("git@github.com:owner/package.git"), equalTo("git@github.com:"));
+        assertThat(CompactPackageStore.getPrefix("package.git"), equalTo(""));
+    }
+}
@@ -0,0 +1,225 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link MappedPackageStore}.
+ *
+ * @author Dirk Weigenand
+ */
+public class MappedPackageStoreTest {
+    /**
+     * Folder for the store file.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * the store file.
+     */
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), "packages.map");
+    }
+
+    @Test
+    public void testReopenedStoreContainsFlushedPackages() throws IOException {
+        final MappedPackageStore store = new MappedPackageStore(file);
+        store.register(new BowerPackageDescriptor("jquery", "git://github.com/jquery/jquery.git"));
+        store.register(new BowerPackageDescriptor("pâté", "git@github.com:user/pâté.git"));
+        store.close();
+
+        final MappedPackageStore reopened = new MappedPackageStore(file);
+
+        assertThat(reopened.size(), equalTo(2));
+        assertThat(reopened.getPackage("jquery").getUrl(), equalTo("git://github.com/jquery/jquery.git"));
+        assertThat(reopened.getPackage("pâté").getUrl(), equalTo("git@github.com:user/pâté.git"));
+        assertThat(reopened.getPackage("unknown"), nullValue(BowerPackage.class));
+    }
+
+    @Test
+    public void testChangesAreMergedWithFlushedPackages() throws IOException {
+        final MappedPackageStore store = new MappedPackageStore(file);
+        store.registerAll(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package0", "url0"), new BowerPackageDescriptor(
+            "package1", "url1"), new BowerPackageDescriptor("package2", "url2")));
+        store.flush();
+
+        store.register(new BowerPackageDescriptor("package1", "changed"));
+        store.register(new BowerPackageDescriptor("package3", "url3"));
+
+        assertThat(store.unregister("package0").getUrl(), equalTo("url0"));
+        assertThat(store.unregister("package0"), nullValue(BowerPackage.class));
+        assertThat(store.getPackage("package0"), nullValue(BowerPackage.class));
+        assertThat(store.getPackage("package1").getUrl(), equalTo("changed"));
+        assertThat(store.size(), equalTo(3));
+        assertThat(names(store.getAllPackages()), equalTo(Arrays.asList("package1", "package2", "package3")));
+
+        store.flush();
+
+        assertThat(store.size(), equalTo(3));
+        assertThat(store.getPackage("package1").getUrl(), equalTo("changed"));
+        assertThat(names(store.getAllPackages()), equalTo(Arrays.asList("package1", "package2", "package3")));
+    }
+
+    @Test
+    public void testSearchPagesFollowCursor() throws IOException {
+        final MappedPackageStore store = new MappedPackageStore(file);
+        store.registerAll(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("angular", "url0"), new BowerPackageDescriptor(
+            "angular-route", "url1"), new BowerPackageDescriptor("jquery", "url2")));
+        store.flush();
+        store.register(new BowerPackageDescriptor("angular-animate", "url3"));
+
+        assertThat(store.search("gular"), hasSize(3));
+        assertThat(names(store.search("gular", "", 2)), equalTo(Arrays.asList("angular", "angular-animate")));
+        assertThat(names(store.search("gular", "angular-animate", 2)), equalTo(Arrays.asList("angular-route")));
+        assertThat(names(store.search("", "angular-route", 10)), equalTo(Arrays.asList("jquery")));
+    }
+
+    @Test
+    public void testAllPackagesAreNotAffectedByLaterChanges() throws IOException {
+        final MappedPackageStore store = new MappedPackageStore(file);
+        store.registerAll(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package0", "url0"), new BowerPackageDescriptor(
+            "package1", "url1"), new BowerPackageDescriptor("package2", "url2")));
+        store.flush();
+        store.unregister("package1");
+        store.register(new BowerPackageDescriptor("package3", "url3"));
+
+        final Collection<BowerPackage> packages = store.getAllPackages();
+        store.unregister("package0");
+        store.register(new BowerPackageDescriptor("package1", "changed"));
+        store.flush();
+
+        assertThat(packages, hasSize(3));
+        assertThat(names(packages), equalTo(Arrays.asList("package0", "package2", "package3")));
+        assertThat(names(store.getAllPackages()), equalTo(Arrays.asList("package1", "package2", "package3")));
+    }
+
+    @Test
+    public void testSearchMatchesEncodedNames() throws IOException {
+        final MappedPackageStore store = new MappedPackageStore(file);
+        store.registerAll(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("pâté", "url0"), new BowerPackageDescriptor(
+            "pâtisserie", "url1"), new BowerPackageDescriptor("pate", "url2")));
+        store.flush();
+        store.unregister("pâtisserie");
+
+        assertThat(names(store.search("pât")), equalTo(Arrays.asList("pâté")));
+        assertThat(names(store.search("té")), equalTo(Arrays.asList("pâté")));
+        assertThat(names(store.search("pa")), equalTo(Arrays.asList("pate")));
+    }
+
+    @Test
+    public void testChangesAreFlushedWhenThresholdIsReached() {
+        final MappedPackageStore store = new MappedPackageStore(file, 100);
+
+        for (int i = 0; i < 250; i++) {
+            store.register(new BowerPackageDescriptor("package" + i, "https://github.com/owner/package" + i + ".git"));
+        }
+
+        assertThat(new MappedPackageStore(file).size(), equalTo(200));
+        assertThat(store.size(), equalTo(250));
+        assertThat(store.getPackage("package249").getUrl(), equalTo("https://github.com/owner/package249.git"));
+    }
+
+    @Test
+    public void testInvalidFileIsIgnored() throws IOException {
+        final FileOutputStream output = new FileOutputStream(new File(folder.getRoot(), file.getName() + ".0"));
+        output.write("not a package store".getBytes("UTF-8"));
+        output.close();
+
+        final MappedPackageStore store = new MappedPackageStore(file);
+
+        assertThat(store.size(), equalTo(0));
+        store.register(new BowerPackageDescriptor("package", "url"));
+        store.close();
+
+        assertThat(new MappedPackageStore(file).getPackage("package").getUrl(), equalTo("url"));
+    }
+
+    @Test
+    public void testNewestValidGenerationIsMappedAndOlderGenerationsAreDeleted() throws IOException {
+        final MappedPackageStore store = new MappedPackageStore(file);
+        store.register(new BowerPackageDescriptor("package0", "url0"));
+        store.flush();
+        store.register(new BowerPackageDescriptor("package1", "url1"));
+        store.flush();
+
+        // a write interrupted before the header has been written
+        final FileOutputStream output = new FileOutputStream(new File(folder.getRoot(), file.getName() + ".5"));
+        output.write(new byte[64]);
+        output.close();
+
+        final MappedPackageStore reopened = new MappedPackageStore(file);
+
+        assertThat(reopened.size(), equalTo(2));
+        assertThat(Arrays.asList(folder.getRoot().list()), equalTo(Arrays.asList(file.getName() + ".1")));
+    }
+
+    @Test
+    public void testSnapshotGenerationIsKeptByLaterWrites() throws IOException {
+        final MappedPackageStore store = new MappedPackageStore(file);
+        store.register(new BowerPackageDescriptor("package0", "url0"));
+        store.setSnapshotGeneration(42);
+        store.register(new BowerPackageDescriptor("package1", "url1"));
+        store.close();
+
+        final MappedPackageStore reopened = new MappedPackageStore(file);
+
+        assertThat(reopened.getSnapshotGeneration(), equalTo(42L));
+        assertThat(reopened.size(), equalTo(2));
+    }
+
+    @Test
+    public void testSnapshotIsSkippedOnStartupWhenStoreContainsItsGeneration() throws IOException {
+        BowerRegistry registry = FileBackedBowerRegistry.create(folder.getRoot(), new MappedPackageStore(file), 1000, 0, 1);
+        registry.register(new BowerPackageDescriptor("package0", "url0"));
+        ((FileBackedBowerRegistry)registry).compact();
+        registry.register(new BowerPackageDescriptor("package1", "url1"));
+        ((FileBackedBowerRegistry)registry).close();
+
+        // damage the packages of the snapshot but not its header
+        final File snapshot = new File(folder.getRoot(), FileBackedBowerRegistry.BOWER_PACKAGES_SNAPSHOT);
+        final RandomAccessFile content = new RandomAccessFile(snapshot, "rw");
+        content.setLength(content.length() - 1);
+        content.close();
+
+        registry = FileBackedBowerRegistry.create(folder.getRoot(), new MappedPackageStore(file), 1000, 0, 1);
+
+        assertThat(registry.getAllPackages(), hasSize(2));
+        ((FileBackedBowerRegistry)registry).close();
+    }
+
+    private List<String> names(final Iterable<BowerPackage> packages) {
+        final List<String> names = new ArrayList<String>();
+
+        for (final BowerPackage bowerPackage : packages) {
+            names.add(bowerPackage.getName());
+        }
+
+        return names;
+    }
+}
@@ -0,0 +1,116 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.notNullValue;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link PackageCache}.
+ *
+ * @author Dirk Weigenand
+ */
+public class PackageCacheTest {
+    /**
+     * Folder for cache files.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void testGetCountsHitsAndMisses() {
+        final PackageCache cache = new PackageCache(10, 60000);
+        cache.put(new BowerPackageDescriptor("package", "url"));
+
+        assertThat(cache.get("package"), notNullValue(BowerPackage.class));
+        assertThat(cache.get("unknown"), nullValue(BowerPackage.class));
+        assertThat(cache.getHits(), equalTo(1L));
+        assertThat(cache.getMisses(), equalTo(1L));
+    }
+
+    @Test
+    public void testPutEvictsLeastRecentlyUsedPackage() {
+        final PackageCache cache = new PackageCache(2, 60000);
+        cache.put(new BowerPackageDescriptor("package0", "url0"));
+        cache.put(new BowerPackageDescriptor("package1", "url1"));
+        cache.get("package0");
+        cache.put(new BowerPackageDescriptor("package2", "url2"));
+
+        assertThat(cache.get("package1"), nullValue(BowerPackage.class));
+        assertThat(cache.get("package0"), notNullValue(BowerPackage.class));
+        assertThat(cache.getEvictions(), equalTo(1L));
+        assertThat(cache.getSize(), equalTo(2));
+    }
+
+    @Test
+    public void testGetDoesNotReturnExpiredPackage() {
+        final PackageCache cache = new PackageCache(10, 0);
+        cache.put(new BowerPackageDescriptor("package", "url"));
+
+        assertThat(cache.get("package"), nullValue(BowerPackage.class));
+        assertThat(cache.getExpirations(), equalTo(1L));
+    }
+
+    @Test
+    public void testLookupReturnsStalePackageUntilHardExpiry() {
+        final PackageCache cache = new PackageCache(10, 0, 60000);
+        cache.put(new BowerPackageDescriptor("package", "url"));
+
+        final PackageCache.CachedPackage cachedPackage = cache.lookup("package");
+
+        assertThat(cachedPackage.getBowerPackage().getUrl(), equalTo("url"));
+        assertThat(cachedPackage.isStale(), equalTo(true));
+        assertThat(cache.getStaleHits(), equalTo(1L));
+    }
+
+    @Test
+    public void testWrittenPackagesAreRestoredAsStale() throws IOException {
+        final File file = new File(folder.getRoot(), "remote.cache");
+        final PackageCache cache = new PackageCache(10, 60000);
+        cache.put(new BowerPackageDescriptor("package0", "url0"));
+        cache.put(new BowerPackageDescriptor("pâté", null));
+
+        assertThat(cache.write(file), equalTo(2));
+
+        final PackageCache restored = new PackageCache(10, 60000);
+        restored.put(new BowerPackageDescriptor("package0", "fetched after restart"));
+
+        assertThat(restored.read(file), equalTo(1));
+        assertThat(restored.getSize(), equalTo(2));
+        assertThat(restored.lookup("package0").getBowerPackage().getUrl(), equalTo("fetched after restart"));
+
+        final PackageCache.CachedPackage cachedPackage = restored.lookup("pâté");
+
+        assertThat(cachedPackage.getBowerPackage().getUrl(), nullValue());
+        assertThat(cachedPackage.isStale(), equalTo(true));
+        assertThat(new PackageCache(10, 60000).read(file), equalTo(2));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadRejectsCorruptFile() throws IOException {
+        final File file = new File(folder.getRoot(), "remote.cache");
+        final PackageCache cache = new PackageCache(10, 60000);
+        cache.put(new BowerPackageDescriptor("package", "url"));
+        cache.write(file);
+
+        final RandomAccessFile content = new RandomAccessFile(file, "rw");
+        content.seek(16);
+        content.write('X');
+        content.close();
+
+        new PackageCache(10, 60000).read(file);
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link PackageJournal}.
+ *
+ * @author Dirk Weigenand
+ */
+public class PackageJournalTest {
+    /**
+     * Folder for snapshot and journal.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Instance under test.
+     */
+    private PackageJournal journal;
+
+    @Before
+    public void setUp() {
+        journal = new PackageJournal(folder.getRoot(), FileBackedBowerRegistry.BOWER_PACKAGES_SNAPSHOT);
+    }
+
+    @After
+    public void tearDown() {
+        journal.close();
+        journal = null;
+    }
+
+    @Test
+    public void testReplayReturnsAppendedPackages() throws IOException {
+        journal.append(new BowerPackageDescriptor("package0", "git://github.com/weigo/package0.git"));
+        journal.append(new BowerPackageDescriptor("package1", "git://github.com/weigo/package1.git"));
+
+        final BowerRegistry registry = replay();
+
+        assertThat(registry.getAllPackages(), hasSize(2));
+        assertThat(registry.getPackage("package0").getUrl(), equalTo("git://github.com/weigo/package0.git"));
+    }
+
+    @Test
+    public void testReplayUsesLastRegistrationOfAPackage() throws IOException {
+        journal.append(new BowerPackageDescriptor("package", "url0"));
+        journal.append(new BowerPackageDescriptor("package", "url1"));
+
+        assertThat(replay().getPackage("package").getUrl(), equalTo("url1"));
+    }
+
+    @Test
+    public void testReplayRestoresEscapedCharacters() throws IOException {
+        journal.append(new BowerPackageDescriptor("a package=ä:#!", " http://example.com/a\\b"));
+
+        assertThat(replay().getPackage("a package=ä:#!").getUrl(), equalTo(" http://example.com/a\\b"));
+    }
+
+    @Test
+    public void testReplayDiscardsIncompleteTrailingEntry() throws IOException {
+        journal.append(new BowerPackageDescriptor("package0", "url0"));
+        journal.close();
+
+        final FileOutputStream stream = new FileOutputStream(new File(folder.getRoot(), PackageJournal.JOURNAL), true);
+        stream.write("package1=ur".getBytes("ISO-8859-1"));
+        stream.close();
+
+        final BowerRegistry registry = replay();
+
+        assertThat(registry.getAllPackages(), hasSize(1));
+        assertThat(registry.getPackage("package1"), nullValue());
+    }
+
+    @Test
+    public void testCompactionMovesJournalIntoSnapshot() throws IOException {
+        final BowerRegistry registry = new BowerPackageMap();
+        registry.register(new BowerPackageDescriptor("package0", "url0"));
+        journal.append(registry.getPackage("package0"));
+
+        assertThat(journal.compact(registry), equalTo(1L));
+        assertThat(journal.compact(registry), equalTo(2L));
+
+        assertThat(journal.getGeneration(), equalTo(2L));
+        assertThat(journal.size(), equalTo(0));
+        assertThat(new File(folder.getRoot(), PackageJournal.JOURNAL).length(), equalTo(0L));
+        assertThat(replay().getAllPackages(), hasSize(1));
+    }
+
+    @Test
+    public void testReplayReadsBackupWhenSnapshotIsMissing() throws IOException {
+        final BowerRegistry registry = new BowerPackageMap();
+        registry.register(new BowerPackageDescriptor("package0", "url0"));
+        journal.compact(registry);
+        journal.append(new BowerPackageDescriptor("package1", "url1"));
+
+        final File snapshot = new File(folder.getRoot(), FileBackedBowerRegistry.BOWER_PACKAGES_SNAPSHOT);
+        assertThat(snapshot.renameTo(new File(folder.getRoot(), FileBackedBowerRegistry.BOWER_PACKAGES_SNAPSHOT + ".bak")),
+            equalTo(true));
+
+        assertThat(replay().getAllPackages(), hasSize(2));
+    }
+
+    @Test(timeout = 5000)
+    public void testRegistrationAppendedWhileCompactingIsKept() throws Exception {
+        final Thread[] registration = new Thread[1];
+        final BowerRegistry registry = new BowerPackageMap() {
+            @Override
+            public Collection<BowerPackage> getAllPackages() {
+                final Collection<BowerPackage> packages = new ArrayList<BowerPackage>(super.getAllPackages());
+                registration[0] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            journal.append(new BowerPackageDescriptor("package1", "url1"));
+                        }
+                        catch (final IOException e) {
+                            throw new IllegalStateException(e);
+                        }
+                    }
+                });
+                registration[0].start();
+
+                try {
+                    registration[0].join(100);
+                }
+                catch (final InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return packages;
+            }
+        };
+        registry.register(new BowerPackageDescriptor("package0", "url0"));
+
+        journal.compact(registry);
+        registration[0].join();
+
+        assertThat(journal.size(), equalTo(1));
+        assertThat(replay().getAllPackages(), hasSize(2));
+    }
+
+    @Test
+    public void testConcurrentGroupCommitsAreAllWritten() throws Exception {
+        final GroupCommitQueue queue = new GroupCommitQueue(journal, 10, 4);
+        final List<Thread> threads = new ArrayList<Thread>();
+
+        for (int i = 0; i < 10; i++) {
+            final BowerPackage bowerPackage = new BowerPackageDescriptor("package" + i, "url" + i);
+            final Thread thread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        queue.commit(Collections.singleton(bowerPackage));
+                    }
+                    catch (final IOException e) {
+                        throw new IllegalStateException(e);
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (final Thread thread : threads) {
+            thread.join();
+        }
+
+        queue.close();
+
+        assertThat(journal.size(), equalTo(10));
+        assertThat(replay().getAllPackages(), hasSize(10));
+    }
+
+    @Test(timeout = 5000)
+    public void testCommitFailsWhenWriterHasBeenInterrupted() throws InterruptedException {
+        final GroupCommitQueue queue = new GroupCommitQueue(journal, 10, 4);
+        queue.getWriter().interrupt();
+        queue.getWriter().join();
+
+        try {
+            queue.commit(Collections.<BowerPackage> singleton(new BowerPackageDescriptor("package", "url")));
+            fail("commit should fail once the writer has stopped");
+        }
+        catch (final IOException e) {
+            // expected
+        }
+
+        queue.close();
+    }
+
+    private BowerRegistry replay() throws IOException {
+        final BowerRegistry registry = new BowerPackageMap();
+        new PackageJournal(folder.getRoot(), FileBackedBowerRegistry.BOWER_PACKAGES_SNAPSHOT).replay(registry);
+
+        return registry;
+    }
+}
@@ -0,0 +1,115 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+
+/**
+ * Compares the time needed for loading the packages of the private registry on startup from a snapshot in {@link Properties} format
+ * with the time needed for loading them from a binary {@link PackageSnapshot}. Both reading the file alone and reading the file and
+ * registering the packages with a {@link BowerPackageMap} are measured.
+ *
+ * Run with <code>java -cp target/classes:target/test-classes:&lt;dependencies&gt; org.arachna.bower.registry.impl.PackageSnapshotBenchmark [packages...]</code>.
+ * The numbers of packages default to 10000, 100000 and 1000000.
+ *
+ * @author Dirk Weigenand
+ */
+public final class PackageSnapshotBenchmark {
+    /**
+     * number of runs per format, the fastest run is reported.
+     */
+    private static final int RUNS = 5;
+
+    private PackageSnapshotBenchmark() {
+    }
+
+    public static void main(final String[] args) throws IOException {
+        final String[] sizes = args.length > 0 ? args : new String[] { "10000", "100000", "1000000" };
+        final File folder = File.createTempFile("snapshot", "");
+
+        if (!folder.delete() || !folder.mkdir()) {
+            throw new IOException(String.format("Could not create folder '%s'.", folder.getAbsolutePath()));
+        }
+
+        for (final String size : sizes) {
+            final List<BowerPackage> packages = createPackages(Integer.parseInt(size));
+            final File properties = new File(folder, FileBackedBowerRegistry.BOWER_PACKAGES);
+            final File snapshot = new File(folder, FileBackedBowerRegistry.BOWER_PACKAGES_SNAPSHOT);
+            final FileOutputStream output = new FileOutputStream(properties);
+
+            try {
+                PackageJournal.export(packages, output);
+            }
+            finally {
+                output.close();
+            }
+
+            PackageSnapshot.write(snapshot, 1, packages);
+
+            long propertiesParseTime = Long.MAX_VALUE;
+            long snapshotParseTime = Long.MAX_VALUE;
+            long propertiesTime = Long.MAX_VALUE;
+            long snapshotTime = Long.MAX_VALUE;
+
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                final Properties parsed = new Properties();
+                final Reader reader = new InputStreamReader(new FileInputStream(properties), "ISO-8859-1");
+
+                try {
+                    parsed.load(reader);
+                }
+                finally {
+                    reader.close();
+                }
+
+                propertiesParseTime = Math.min(propertiesParseTime, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                PackageSnapshot.read(snapshot);
+                snapshotParseTime = Math.min(snapshotParseTime, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                PackageJournal.load(new InputStreamReader(new FileInputStream(properties), "ISO-8859-1"), new BowerPackageMap());
+                propertiesTime = Math.min(propertiesTime, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                PackageSnapshot.read(snapshot, new BowerPackageMap());
+                snapshotTime = Math.min(snapshotTime, System.nanoTime() - start);
+            }
+
+            System.out.println(String.format("%,d packages: properties %,d bytes, read %,d ms, registered %,d ms", packages.size(),
+                properties.length(), propertiesParseTime / 1000000, propertiesTime / 1000000));
+            System.out.println(String.format("%,d packages: snapshot %,d bytes, read %,d ms, registered %,d ms", packages.size(),
+                snapshot.length(), snapshotParseTime / 1000000, snapshotTime / 1000000));
+
+            properties.delete();
+            snapshot.delete();
+        }
+
+        folder.delete();
+    }
+
+    private static List<BowerPackage> createPackages(final int count) {
+        final List<BowerPackage> packages = new ArrayList<BowerPackage>(count);
+
+        for (int i = 0; i < count; i++) {
+            final String name = "package-" + Integer.toString(i, 36);
+            packages.add(new BowerPackageDescriptor(name, "https://git.example.com/owner" + (i % 997) + "/" + name + ".git"));
+        }
+
+        return packages;
+    }
+}
@@ -0,0 +1,145 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Unit tests for {@link PackageSnapshot}.
+ *
+ * @author Dirk Weigenand
+ */
+public class PackageSnapshotTest {
+    /**
+     * Folder for the snapshot.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * the snapshot file.
+     */
+    private File file;
+
+    @Before
+    public void setUp() {
+        file = new File(folder.getRoot(), FileBackedBowerRegistry.BOWER_PACKAGES_SNAPSHOT);
+    }
+
+    @Test
+    public void testReadReturnsWrittenPackages() throws IOException {
+        PackageSnapshot.write(file, 1, Arrays.<BowerPackage> asList(new BowerPackageDescriptor("jquery",
+            "git://github.com/jquery/jquery.git"), new BowerPackageDescriptor("a package=ä:#!", "git@github.com:user/pâté.git"),
+            new BowerPackageDescriptor("no-url", null)));
+
+        final BowerRegistry registry = new BowerPackageMap();
+
+        assertThat(PackageSnapshot.read(file, registry), equalTo(3));
+        assertThat(registry.getPackage("jquery").getUrl(), equalTo("git://github.com/jquery/jquery.git"));
+        assertThat(registry.getPackage("a package=ä:#!").getUrl(), equalTo("git@github.com:user/pâté.git"));
+        assertThat(registry.getPackage("no-url").getUrl(), nullValue());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadRejectsCorruptSnapshot() throws IOException {
+        PackageSnapshot.write(file, 1, Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package", "url")));
+
+        final RandomAccessFile snapshot = new RandomAccessFile(file, "rw");
+        snapshot.seek(16);
+        snapshot.write('X');
+        snapshot.close();
+
+        PackageSnapshot.read(file, new BowerPackageMap());
+    }
+
+    @Test
+    public void testReadGenerationReturnsWrittenGeneration() throws IOException {
+        PackageSnapshot.write(file, 42, Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package", "url")));
+
+        assertThat(PackageSnapshot.readGeneration(file), equalTo(42L));
+        assertThat(PackageSnapshot.read(file), hasSize(1));
+    }
+
+    @Test
+    public void testSnapshotOfFormatVersion1IsReadAsGenerationZero() throws IOException {
+        final ByteBuffer content = ByteBuffer.allocate(12 + 4 + 7 + 4 + 3 + 8);
+        content.putInt(PackageSnapshot.MAGIC).putInt(1).putInt(1).putInt(7).put("package".getBytes("UTF-8")).putInt(3)
+            .put("url".getBytes("UTF-8"));
+        final CRC32 checksum = new CRC32();
+        checksum.update(content.array(), 0, content.position());
+        content.putLong(checksum.getValue());
+        final FileOutputStream output = new FileOutputStream(file);
+        output.write(content.array());
+        output.close();
+
+        assertThat(PackageSnapshot.readGeneration(file), equalTo(0L));
+        assertThat(PackageSnapshot.read(file).get(0).getUrl(), equalTo("url"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadRejectsPropertiesFile() throws IOException {
+        final FileOutputStream output = new FileOutputStream(file);
+        output.write("package=url\n".getBytes("ISO-8859-1"));
+        output.close();
+
+        PackageSnapshot.read(file, new BowerPackageMap());
+    }
+
+    @Test
+    public void testCorruptSnapshotFailsStartupAndIsKept() throws IOException {
+        PackageSnapshot.write(file, 1, Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package", "url")));
+        final RandomAccessFile snapshot = new RandomAccessFile(file, "rw");
+        snapshot.setLength(snapshot.length() - 1);
+        snapshot.close();
+        final long length = file.length();
+
+        try {
+            FileBackedBowerRegistry.create(folder.getRoot(), new BowerPackageMap(), 1000, 0, 1);
+            fail("a corrupt snapshot should fail creating the registry");
+        }
+        catch (final IllegalStateException e) {
+            assertThat(e.getCause() instanceof IOException, equalTo(true));
+        }
+
+        assertThat(file.length(), equalTo(length));
+    }
+
+    @Test
+    public void testPropertiesAreImportedIntoSnapshotAndExported() throws IOException {
+        final FileOutputStream output = new FileOutputStream(new File(folder.getRoot(), FileBackedBowerRegistry.BOWER_PACKAGES));
+        output.write("package0=url0\npackage1=url1\n".getBytes("ISO-8859-1"));
+        output.close();
+
+        final FileBackedBowerRegistry registry =
+            (FileBackedBowerRegistry)FileBackedBowerRegistry.create(folder.getRoot(), new BowerPackageMap(), 1000, 0, 1);
+        final ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        registry.export(exported);
+        registry.close();
+
+        assertThat(file.exists(), equalTo(true));
+        assertThat(PackageSnapshot.read(file), hasSize(2));
+        assertThat(new String(exported.toByteArray(), "ISO-8859-1").split("\n").length, equalTo(2));
+    }
+}
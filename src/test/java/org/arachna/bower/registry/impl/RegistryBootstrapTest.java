@@ -0,0 +1,102 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.Status;
+
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.rest.ReadinessRestService;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Unit tests for {@link RegistryBootstrap} and the {@link ReadinessRestService} reporting its state.
+ *
+ * @author Dirk Weigenand
+ */
+public class RegistryBootstrapTest {
+    /**
+     * builder used by the bootstrap.
+     */
+    private RegistryBuilder builder;
+
+    @Before
+    public void setUp() {
+        builder = mock(RegistryBuilder.class);
+    }
+
+    @After
+    public void tearDown() {
+        RegistryHolder.setBootstrap(null);
+        RegistryHolder.setRegistry(null);
+        RegistryHolder.setRequestExecutor(null);
+    }
+
+    @Test
+    public void testRegistryIsPublishedWhenBuilt() throws InterruptedException {
+        final BowerRegistry registry = mock(BowerRegistry.class);
+        final CountDownLatch building = new CountDownLatch(1);
+        when(builder.build()).thenAnswer(new Answer<BowerRegistry>() {
+            @Override
+            public BowerRegistry answer(final InvocationOnMock invocation) throws InterruptedException {
+                building.await();
+
+                return registry;
+            }
+        });
+
+        final RegistryBootstrap bootstrap = start();
+
+        assertThat(bootstrap.getState(), equalTo(RegistryBootstrap.State.LOADING));
+        assertThat(RegistryHolder.getRegistry(), nullValue());
+        final Response loading = new ReadinessRestService().getReadiness();
+        assertThat(loading.getStatus(), equalTo(Status.SERVICE_UNAVAILABLE.getStatusCode()));
+        assertThat(loading.getHeaderString(HttpHeaders.RETRY_AFTER), equalTo("5"));
+
+        building.countDown();
+
+        assertThat(bootstrap.awaitTermination(5000), equalTo(true));
+        assertThat(bootstrap.getState(), equalTo(RegistryBootstrap.State.READY));
+        assertThat(RegistryHolder.getRegistry(), sameInstance(registry));
+        assertThat(new ReadinessRestService().getReadiness().getStatus(), equalTo(Status.OK.getStatusCode()));
+    }
+
+    @Test
+    public void testFailureIsReported() {
+        when(builder.build()).thenThrow(new IllegalStateException("folder not writable"));
+
+        final RegistryBootstrap bootstrap = start();
+
+        assertThat(bootstrap.awaitTermination(5000), equalTo(true));
+        assertThat(bootstrap.getState(), equalTo(RegistryBootstrap.State.FAILED));
+        assertThat(bootstrap.getFailure().getMessage(), equalTo("folder not writable"));
+        assertThat(RegistryHolder.getRegistry(), nullValue());
+
+        final Response failed = new ReadinessRestService().getReadiness();
+        assertThat(failed.getStatus(), equalTo(Status.SERVICE_UNAVAILABLE.getStatusCode()));
+        assertThat(failed.getHeaderString(HttpHeaders.RETRY_AFTER), nullValue());
+    }
+
+    private RegistryBootstrap start() {
+        final RegistryBootstrap bootstrap = new RegistryBootstrap(builder);
+        RegistryHolder.setBootstrap(bootstrap);
+        bootstrap.start();
+
+        return bootstrap;
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link RegistryMirror}.
+ *
+ * @author Dirk Weigenand
+ */
+public class RegistryMirrorTest {
+    /**
+     * the package index returned by the mirrored registry.
+     */
+    private final Collection<BowerPackage> index = new ArrayList<BowerPackage>();
+
+    /**
+     * Instance under test.
+     */
+    private RegistryMirror mirror;
+
+    @Before
+    public void setUp() {
+        mirror = new RegistryMirror("test", new Callable<Collection<BowerPackage>>() {
+            @Override
+            public Collection<BowerPackage> call() {
+                return index;
+            }
+        });
+    }
+
+    @Test
+    public void testMirrorIsNotReadyBeforeFirstSynchronization() {
+        assertThat(mirror.isReady(), equalTo(false));
+    }
+
+    @Test
+    public void testSynchronizeAppliesDifferences() {
+        index.addAll(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package0", "url0"), new BowerPackageDescriptor(
+            "package1", "url1")));
+        assertThat(mirror.synchronize(), equalTo(true));
+
+        index.clear();
+        index.addAll(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package1", "changed"), new BowerPackageDescriptor(
+            "package2", "url2")));
+        assertThat(mirror.synchronize(), equalTo(true));
+
+        assertThat(mirror.isReady(), equalTo(true));
+        assertThat(mirror.getPackages().getAllPackages(), hasSize(2));
+        assertThat(mirror.getPackages().getPackage("package0"), nullValue(BowerPackage.class));
+        assertThat(mirror.getPackages().getPackage("package1").getUrl(), equalTo("changed"));
+        assertThat(mirror.getPackages().search("package"), hasSize(2));
+    }
+
+    @Test
+    public void testSynchronizationRegistersPackagesAtOnce() {
+        final AtomicInteger registrations = new AtomicInteger();
+        mirror = new RegistryMirror("test", new Callable<Collection<BowerPackage>>() {
+            @Override
+            public Collection<BowerPackage> call() {
+                return index;
+            }
+        }, new CompactPackageStore() {
+            @Override
+            public void register(final BowerPackage bowerPackage) {
+                registrations.incrementAndGet();
+                super.register(bowerPackage);
+            }
+
+            @Override
+            public void registerAll(final Collection<BowerPackage> bowerPackages) {
+                registrations.incrementAndGet();
+                super.registerAll(bowerPackages);
+            }
+        });
+
+        for (int i = 0; i < 1000; i++) {
+            index.add(new BowerPackageDescriptor("package" + i, "url" + i));
+        }
+
+        mirror.synchronize();
+
+        assertThat(registrations.get(), equalTo(1));
+        assertThat(mirror.getPackages().getAllPackages(), hasSize(1000));
+        assertThat(RegistryVersion.toDate(mirror.getPackages().getVersion()).getTime() <= System.currentTimeMillis(), equalTo(true));
+    }
+
+    @Test
+    public void testSynchronizeWithUnchangedIndexReportsNoChanges() {
+        index.add(new BowerPackageDescriptor("package0", "url0"));
+        mirror.synchronize();
+
+        assertThat(mirror.synchronize(), equalTo(false));
+    }
+
+    @Test
+    public void testFailedSynchronizationKeepsMirrorNotReady() {
+        mirror = new RegistryMirror("test", new Callable<Collection<BowerPackage>>() {
+            @Override
+            public Collection<BowerPackage> call() {
+                throw new IllegalStateException("remote registry down");
+            }
+        });
+
+        assertThat(mirror.synchronize(), equalTo(false));
+        assertThat(mirror.isReady(), equalTo(false));
+    }
+}
@@ -0,0 +1,222 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+/**
+ * Unit tests for {@link Registry}.
+ *
+ * @author Dirk Weigenand
+ */
+public class RegistryTest {
+    /**
+     * the private registry.
+     */
+    private BowerRegistry privateRegistry;
+
+    /**
+     * remote registry with highest priority.
+     */
+    private BowerRegistry firstRemote;
+
+    /**
+     * remote registry with lower priority.
+     */
+    private BowerRegistry secondRemote;
+
+    /**
+     * Instance under test.
+     */
+    private Registry registry;
+
+    @Before
+    public void setUp() {
+        privateRegistry = new BowerPackageMap();
+        firstRemote = mock(BowerRegistry.class);
+        secondRemote = mock(BowerRegistry.class);
+        registry = new Registry(privateRegistry, Arrays.asList(firstRemote, secondRemote), new FanOutExecutor(4, 200));
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+        registry = null;
+    }
+
+    @Test
+    public void testGetPackagePrefersPrivateRegistry() {
+        privateRegistry.register(new BowerPackageDescriptor("package", "private"));
+        when(firstRemote.getPackage("package")).thenReturn(new BowerPackageDescriptor("package", "remote"));
+
+        assertThat(registry.getPackage("package").getUrl(), equalTo("private"));
+    }
+
+    @Test
+    public void testGetPackagePrefersRemoteRegistryWithHigherPriority() {
+        when(firstRemote.getPackage("package")).thenAnswer(answerAfter(50, new BowerPackageDescriptor("package", "first")));
+        when(secondRemote.getPackage("package")).thenReturn(new BowerPackageDescriptor("package", "second"));
+
+        assertThat(registry.getPackage("package").getUrl(), equalTo("first"));
+    }
+
+    @Test
+    public void testGetPackageUsesAnswerArrivedBeforeDeadline() {
+        when(firstRemote.getPackage("package")).thenAnswer(answerAfter(1000, new BowerPackageDescriptor("package", "first")));
+        when(secondRemote.getPackage("package")).thenReturn(new BowerPackageDescriptor("package", "second"));
+
+        assertThat(registry.getPackage("package").getUrl(), equalTo("second"));
+    }
+
+    @Test
+    public void testHedgedGetPackageDoesNotQueryNextRemoteRegistryWhenFirstAnswersInTime() {
+        final Registry hedgedRegistry = createHedgedRegistry();
+        when(firstRemote.getPackage("package")).thenReturn(new BowerPackageDescriptor("package", "first"));
+
+        try {
+            assertThat(hedgedRegistry.getPackage("package").getUrl(), equalTo("first"));
+            verify(secondRemote, never()).getPackage("package");
+        }
+        finally {
+            hedgedRegistry.close();
+        }
+    }
+
+    @Test
+    public void testHedgedGetPackageUsesNextRemoteRegistryWhenFirstIsSlow() {
+        final Registry hedgedRegistry = createHedgedRegistry();
+        when(firstRemote.getPackage("package")).thenAnswer(answerAfter(150, new BowerPackageDescriptor("package", "first")));
+        when(secondRemote.getPackage("package")).thenReturn(new BowerPackageDescriptor("package", "second"));
+
+        try {
+            assertThat(hedgedRegistry.getPackage("package").getUrl(), equalTo("second"));
+        }
+        finally {
+            hedgedRegistry.close();
+        }
+    }
+
+    @Test
+    public void testGetPackageAnswersRepeatedMissLocally() {
+        assertThat(registry.getPackage("unknown"), nullValue(BowerPackage.class));
+        assertThat(registry.getPackage("unknown"), nullValue(BowerPackage.class));
+
+        verify(firstRemote, times(1)).getPackage("unknown");
+    }
+
+    @Test
+    public void testRegisterInvalidatesRememberedMiss() {
+        assertThat(registry.getPackage("package"), nullValue(BowerPackage.class));
+        registry.register(new BowerPackageDescriptor("package", "private"));
+
+        assertThat(registry.getPackage("package").getUrl(), equalTo("private"));
+    }
+
+    @Test
+    public void testGetPackagesQueriesRemoteRegistriesOnlyForPackagesMissingLocally() {
+        privateRegistry.register(new BowerPackageDescriptor("package0", "private"));
+        final List<String> missing = Arrays.asList("package1", "package2", "unknown");
+        when(firstRemote.getPackages(missing)).thenReturn(
+            Collections.<BowerPackage> singleton(new BowerPackageDescriptor("package1", "first")));
+        when(secondRemote.getPackages(missing)).thenReturn(
+            Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package1", "second"), new BowerPackageDescriptor("package2",
+                "second")));
+
+        final List<BowerPackage> packages =
+            new ArrayList<BowerPackage>(registry.getPackages(Arrays.asList("package0", "package1", "package2", "unknown")));
+
+        assertThat(packages, hasSize(3));
+        assertThat(packages.get(0).getUrl(), equalTo("private"));
+        assertThat(packages.get(1).getUrl(), equalTo("first"));
+        assertThat(packages.get(2).getUrl(), equalTo("second"));
+        verify(firstRemote, times(1)).getPackages(missing);
+        verify(firstRemote, never()).getPackage("package0");
+    }
+
+    @Test
+    public void testGetPackagesRemembersPackagesNoRemoteRegistryKnows() {
+        assertThat(registry.getPackages(Collections.singleton("unknown")), hasSize(0));
+        assertThat(registry.getPackages(Collections.singleton("unknown")), hasSize(0));
+        assertThat(registry.getPackage("unknown"), nullValue(BowerPackage.class));
+
+        verify(firstRemote, times(1)).getPackages(Arrays.asList("unknown"));
+        verify(firstRemote, never()).getPackage("unknown");
+    }
+
+    @Test
+    public void testSearchIgnoresFailingAndSlowRemoteRegistries() {
+        privateRegistry.register(new BowerPackageDescriptor("package0", "url0"));
+        when(firstRemote.search("package")).thenThrow(new IllegalStateException("remote registry down"));
+        when(secondRemote.search("package")).thenAnswer(
+            answerAfter(1000, Collections.<BowerPackage> singleton(new BowerPackageDescriptor("package1", "url1"))));
+
+        assertThat(registry.search("package"), hasSize(1));
+    }
+
+    @Test
+    public void testSearchMergesAnswersOfAllRegistries() {
+        privateRegistry.register(new BowerPackageDescriptor("package0", "url0"));
+        when(firstRemote.search("package")).thenReturn(
+            Collections.<BowerPackage> singleton(new BowerPackageDescriptor("package1", "url1")));
+        when(secondRemote.search("package")).thenReturn(
+            Collections.<BowerPackage> singleton(new BowerPackageDescriptor("package2", "url2")));
+
+        final Collection<BowerPackage> packages = registry.search("package");
+
+        assertThat(packages, hasSize(3));
+    }
+
+    @Test
+    public void testSearchPageMergesPagesPreferringPrivateRegistry() {
+        privateRegistry.register(new BowerPackageDescriptor("package1", "private"));
+        when(firstRemote.search("package", null, 2)).thenReturn(
+            Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package0", "first"), new BowerPackageDescriptor("package1", "first")));
+        when(secondRemote.search("package", null, 2)).thenReturn(
+            Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package0", "second"), new BowerPackageDescriptor("package2", "second")));
+
+        final List<BowerPackage> page = new ArrayList<BowerPackage>(registry.search("package", null, 2));
+
+        assertThat(page, hasSize(2));
+        assertThat(page.get(0).getUrl(), equalTo("first"));
+        assertThat(page.get(1).getUrl(), equalTo("private"));
+    }
+
+    private Registry createHedgedRegistry() {
+        return new Registry(privateRegistry, Arrays.asList(firstRemote, secondRemote), new FanOutExecutor(4, 1000, 95, 20));
+    }
+
+    private <T> Answer<T> answerAfter(final long delay, final T answer) {
+        return new Answer<T>() {
+            @Override
+            public T answer(final InvocationOnMock invocation) throws InterruptedException {
+                Thread.sleep(delay);
+
+                return answer;
+            }
+        };
+    }
+}
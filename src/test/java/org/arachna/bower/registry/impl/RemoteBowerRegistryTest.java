@@ -0,0 +1,163 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.arachna.bower.registry.BowerPackage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Unit tests for {@link RemoteBowerRegistry} using an embedded HTTP server as remote bower registry.
+ *
+ * @author Dirk Weigenand
+ */
+public class RemoteBowerRegistryTest {
+    /**
+     * response bodies of the remote registry by request path.
+     */
+    private final Map<String, String> responses = new HashMap<String, String>();
+
+    /**
+     * request paths the remote registry fails to answer.
+     */
+    private final Set<String> failures = new HashSet<String>();
+
+    /**
+     * number of requests received by the remote registry.
+     */
+    private final AtomicInteger requests = new AtomicInteger();
+
+    /**
+     * the embedded remote registry.
+     */
+    private HttpServer server;
+
+    /**
+     * Instance under test.
+     */
+    private RemoteBowerRegistry registry;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/packages", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                requests.incrementAndGet();
+                final String body = responses.get(exchange.getRequestURI().getRawPath());
+                exchange.getResponseHeaders().add("Content-Type", "application/json");
+
+                if (failures.contains(exchange.getRequestURI().getRawPath())) {
+                    exchange.sendResponseHeaders(500, -1);
+                }
+                else if (body == null) {
+                    exchange.sendResponseHeaders(404, -1);
+                }
+                else {
+                    final byte[] bytes = body.getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, bytes.length);
+                    final OutputStream output = exchange.getResponseBody();
+                    output.write(bytes);
+                    output.close();
+                }
+
+                exchange.close();
+            }
+        });
+        server.start();
+
+        final RemoteRegistrySettings settings = new RemoteRegistrySettings();
+        settings.setMirrorInterval(0);
+        settings.setBreakerWindowSize(2);
+        settings.setBreakerOpenDuration(60000);
+        registry = new RemoteBowerRegistry("http://127.0.0.1:" + server.getAddress().getPort() + "/packages", null, settings);
+    }
+
+    @After
+    public void tearDown() {
+        registry.close();
+        server.stop(0);
+    }
+
+    @Test
+    public void testGetPackageQueriesRemoteRegistryOnce() {
+        responses.put("/packages/jquery", "{\"name\":\"jquery\",\"url\":\"git://github.com/jquery/jquery.git\"}");
+
+        assertThat(registry.getPackage("jquery").getUrl(), equalTo("git://github.com/jquery/jquery.git"));
+        assertThat(registry.getPackage("jquery").getUrl(), equalTo("git://github.com/jquery/jquery.git"));
+        assertThat(requests.get(), equalTo(1));
+    }
+
+    @Test
+    public void testOnlyRemoteCallsRecordLatencies() {
+        responses.put("/packages/jquery", "{\"name\":\"jquery\",\"url\":\"git://github.com/jquery/jquery.git\"}");
+
+        registry.getPackage("jquery");
+        registry.getPackage("jquery");
+
+        assertThat(registry.getLatencies().getCount(), equalTo(1L));
+    }
+
+    @Test
+    public void testGetPackageEncodesPackageName() {
+        responses.put("/packages/a%7Bb%7D", "{\"name\":\"a{b}\",\"url\":\"url\"}");
+
+        assertThat(registry.getPackage("a{b}").getName(), equalTo("a{b}"));
+    }
+
+    @Test
+    public void testGetUnknownPackageReturnsNull() {
+        assertThat(registry.getPackage("unknown"), nullValue(BowerPackage.class));
+    }
+
+    @Test
+    public void testSearch() {
+        responses.put("/packages/search/query", "[{\"name\":\"jquery\",\"url\":\"url0\"},{\"name\":\"jquery-ui\",\"url\":\"url1\"}]");
+
+        assertThat(registry.search("query"), hasSize(2));
+    }
+
+    @Test
+    public void testOpenCircuitServesCachedPackagesAndSkipsQueries() {
+        responses.put("/packages/jquery", "{\"name\":\"jquery\",\"url\":\"url\"}");
+        registry.getPackage("jquery");
+        failures.add("/packages/broken");
+
+        for (int i = 0; i < 2; i++) {
+            try {
+                registry.getPackage("broken");
+            }
+            catch (final RuntimeException e) {
+                // expected
+            }
+        }
+
+        final int requestsBeforeOpen = requests.get();
+
+        assertThat(registry.getCircuitBreaker().getState(), equalTo("OPEN"));
+        assertThat(registry.getPackage("jquery").getUrl(), equalTo("url"));
+        assertThat(registry.getPackage("unknown"), nullValue(BowerPackage.class));
+        assertThat(registry.search("unknown"), hasSize(0));
+        assertThat(requests.get(), equalTo(requestsBeforeOpen));
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.impl;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link SingleFlight}.
+ *
+ * @author Dirk Weigenand
+ */
+public class SingleFlightTest {
+    /**
+     * Instance under test.
+     */
+    private SingleFlight<String> singleFlight;
+
+    /**
+     * executor for concurrent callers.
+     */
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        singleFlight = new SingleFlight<String>();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void testConcurrentCallersShareOneExecution() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger executions = new AtomicInteger();
+        final Callable<String> request = new Callable<String>() {
+            @Override
+            public String call() throws InterruptedException {
+                executions.incrementAndGet();
+                release.await();
+
+                return "answer";
+            }
+        };
+
+        final Future<String> first = executor.submit(caller("key", request));
+        waitForRequestInFlight();
+        final Future<String> second = executor.submit(caller("key", request));
+        Thread.sleep(50);
+        release.countDown();
+
+        assertThat(first.get(1, TimeUnit.SECONDS), equalTo("answer"));
+        assertThat(second.get(1, TimeUnit.SECONDS), equalTo("answer"));
+        assertThat(executions.get(), equalTo(1));
+        assertThat(singleFlight.size(), equalTo(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFailureIsPassedToCaller() {
+        singleFlight.execute("key", new Callable<String>() {
+            @Override
+            public String call() {
+                throw new IllegalArgumentException("failed");
+            }
+        });
+    }
+
+    @Test
+    public void testRequestIsExecutedAgainAfterCompletion() {
+        final AtomicInteger executions = new AtomicInteger();
+        final Callable<String> request = new Callable<String>() {
+            @Override
+            public String call() {
+                return String.valueOf(executions.incrementAndGet());
+            }
+        };
+
+        singleFlight.execute("key", request);
+
+        assertThat(singleFlight.execute("key", request), equalTo("2"));
+    }
+
+    private Callable<String> caller(final String key, final Callable<String> request) {
+        return new Callable<String>() {
+            @Override
+            public String call() {
+                return singleFlight.execute(key, request);
+            }
+        };
+    }
+
+    private void waitForRequestInFlight() throws InterruptedException {
+        while (singleFlight.size() == 0) {
+            Thread.sleep(5);
+        }
+    }
+}
@@ -3,23 +3,60 @@
  */
 package org.arachna.bower.registry.rest;
 
+import static org.hamcrest.CoreMatchers.equalTo;
 import static org.hamcrest.CoreMatchers.notNullValue;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.xml.parsers.DocumentBuilderFactory;
 
 import org.arachna.bower.registry.BowerPackage;
 import org.arachna.bower.registry.BowerRegistry;
+import org.arachna.bower.registry.impl.RegistryHolder;
+import org.arachna.bower.registry.impl.RegistryVersion;
 import org.arachna.bower.registry.model.BowerPackageDescriptor;
+import org.glassfish.jersey.internal.MapPropertiesDelegate;
+import org.glassfish.jersey.server.ApplicationHandler;
+import org.glassfish.jersey.server.ContainerRequest;
+import org.glassfish.jersey.server.ContainerResponse;
+import org.glassfish.jersey.server.ResourceConfig;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Unit tests for {@link BowerRegistryRestService}.
@@ -58,7 +95,7 @@ public class BowerRegistryRestServiceTest {
      * A pristine instance of {@link BowerRegistryRestService} should return an empty list in the entity.
      */
     @Test
-    public final void assertGetAllPackagesReturnsEmptyCollectionOfPackages() {
+    public final void assertGetAllPackagesReturnsEmptyCollectionOfPackages() throws IOException {
         assertReturnedPackageSize(new ArrayList<BowerPackage>());
     }
 
@@ -66,7 +103,7 @@ public class BowerRegistryRestServiceTest {
      * An instance of {@link BowerRegistryRestService} with one registered package should return a list with one entry in the entity.
      */
     @Test
-    public final void assertGetAllPackagesReturnsCollectionOfPackagesWithOneElement() {
+    public final void assertGetAllPackagesReturnsCollectionOfPackagesWithOneElement() throws IOException {
         final ArrayList<BowerPackage> packages = new ArrayList<BowerPackage>();
         packages.add(new BowerPackage() {
 
@@ -86,14 +123,344 @@ public class BowerRegistryRestServiceTest {
         assertReturnedPackageSize(packages);
     }
 
-    private void assertReturnedPackageSize(final Collection<BowerPackage> packages) {
+    private void assertReturnedPackageSize(final Collection<BowerPackage> packages) throws IOException {
         when(registry.getAllPackages()).thenReturn(packages);
-        final Response response = service.getAllPackages();
+        final Response response = service.getAllPackages(null, null, null, null);
 
         assertThat(response, notNullValue(Response.class));
-        final Collection<BowerPackageDescriptor> descriptors = (Collection<BowerPackageDescriptor>)response.getEntity();
+        final List<BowerPackageDescriptor> descriptors =
+            new ObjectMapper().readValue(getBody(response), new TypeReference<List<BowerPackageDescriptor>>() {
+            });
 
         assertThat(descriptors, hasSize(packages.size()));
 
     }
+
+    /**
+     * A full page should announce the cursor for requesting the next page.
+     */
+    @Test
+    public final void assertFullPageContainsNextCursor() {
+        final ArrayList<BowerPackage> packages = new ArrayList<BowerPackage>();
+        packages.add(new BowerPackageDescriptor("package0", "url0"));
+        packages.add(new BowerPackageDescriptor("package1", "url1"));
+        when(registry.search(null, null, 2)).thenReturn(packages);
+
+        final Response response = service.getAllPackages(null, null, null, 2);
+
+        assertThat(response.getHeaderString(BowerRegistryRestService.NEXT_CURSOR_HEADER), equalTo("package1"));
+    }
+
+    /**
+     * Looking up many packages should answer all packages found with one response.
+     */
+    @Test
+    public final void assertLookupReturnsPackagesFound() throws IOException {
+        final List<String> names = Arrays.asList("package0", "unknown");
+        when(registry.getPackages(names)).thenReturn(
+            Collections.<BowerPackage> singletonList(new BowerPackageDescriptor("package0", "url0")));
+
+        final List<BowerPackageDescriptor> descriptors =
+            new ObjectMapper().readValue(getBody(service.lookupPackages(null, names)), new TypeReference<List<BowerPackageDescriptor>>() {
+            });
+
+        assertThat(descriptors, hasSize(1));
+    }
+
+    /**
+     * Looking up too many packages at once should be rejected.
+     */
+    @Test
+    public final void assertOversizedLookupIsRejected() {
+        final List<String> names = Collections.nCopies(BowerRegistryRestService.MAX_LOOKUP_SIZE + 1, "package");
+
+        assertThat(service.lookupPackages(null, names).getStatus(), equalTo(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
+    /**
+     * Looking up no packages should be rejected.
+     */
+    @Test
+    public final void assertEmptyLookupIsRejected() {
+        assertThat(service.lookupPackages(null, Collections.<String> emptyList()).getStatus(),
+            equalTo(Response.Status.BAD_REQUEST.getStatusCode()));
+        verify(registry, never()).getPackages(Mockito.anyCollectionOf(String.class));
+    }
+
+    /**
+     * Looking up packages with missing or blank names should be rejected.
+     */
+    @Test
+    public final void assertLookupOfNullOrBlankNamesIsRejected() {
+        assertThat(service.lookupPackages(null, Arrays.asList("package", null)).getStatus(),
+            equalTo(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(service.lookupPackages(null, Arrays.asList("package", " ")).getStatus(),
+            equalTo(Response.Status.BAD_REQUEST.getStatusCode()));
+        verify(registry, never()).getPackages(Mockito.anyCollectionOf(String.class));
+    }
+
+    /**
+     * Importing a JSON array should register the valid packages and count the invalid entries.
+     */
+    @Test
+    public final void assertImportOfJsonArrayReportsAcceptedAndRejectedEntries() {
+        final Response response =
+            service.importPackages(asStream("[{\"name\":\"package0\",\"url\":\"url0\"},{\"name\":\"package1\"},42,"
+                + "{\"name\":\"package2\",\"url\":\"url2\",\"extra\":{\"a\":[1]}}]"));
+
+        assertThat(response.getStatus(), equalTo(Response.Status.OK.getStatusCode()));
+        assertThat(((Map<?, ?>)response.getEntity()).get("accepted"), equalTo((Object)2));
+        assertThat(((Map<?, ?>)response.getEntity()).get("rejected"), equalTo((Object)2));
+        verify(registry, times(1)).registerAll(Mockito.<Collection<BowerPackage>> any());
+    }
+
+    /**
+     * A batch that could not be persisted should be counted as rejected.
+     */
+    @Test
+    public final void assertImportCountsBatchThatCouldNotBePersistedAsRejected() {
+        Mockito.doThrow(new IllegalStateException("journal")).when(registry).registerAll(Mockito.<Collection<BowerPackage>> any());
+
+        final Response response = service.importPackages(asStream("[{\"name\":\"package0\",\"url\":\"url0\"}]"));
+
+        assertThat(((Map<?, ?>)response.getEntity()).get("accepted"), equalTo((Object)0));
+        assertThat(((Map<?, ?>)response.getEntity()).get("rejected"), equalTo((Object)1));
+    }
+
+    /**
+     * A package that could not be persisted should not be reported as created.
+     */
+    @Test
+    public final void assertRegistrationThatCouldNotBePersistedFails() throws Exception {
+        Mockito.doThrow(new IllegalStateException("journal")).when(registry).register(Mockito.<BowerPackage> any());
+
+        assertThat(service.addPackage("package", "url").getStatus(), equalTo(Response.Status.INTERNAL_SERVER_ERROR.getStatusCode()));
+    }
+
+    /**
+     * Importing newline delimited JSON should register all packages.
+     */
+    @Test
+    public final void assertImportOfNewlineDelimitedJson() {
+        final Response response =
+            service.importPackages(asStream("{\"name\":\"package0\",\"url\":\"url0\"}\n{\"name\":\"package1\",\"url\":\"url1\"}\n"));
+
+        assertThat(((Map<?, ?>)response.getEntity()).get("accepted"), equalTo((Object)2));
+    }
+
+    /**
+     * Importing malformed JSON should be rejected after importing the packages read before the error.
+     */
+    @Test
+    public final void assertImportOfMalformedJsonIsRejected() {
+        final Response response = service.importPackages(asStream("[{\"name\":\"package0\",\"url\":\"url0\"}, {\"name\": ]"));
+
+        assertThat(response.getStatus(), equalTo(Response.Status.BAD_REQUEST.getStatusCode()));
+        assertThat(((Map<?, ?>)response.getEntity()).get("accepted"), equalTo((Object)1));
+    }
+
+    /**
+     * Page sizes less than one should be rejected.
+     */
+    @Test
+    public final void assertInvalidLimitIsRejected() {
+        assertThat(service.searchPackages(null, null, "package", null, 0).getStatus(), equalTo(Response.Status.BAD_REQUEST.getStatusCode()));
+    }
+
+    /**
+     * A conditional request for an unchanged registry should be answered without reading the registry.
+     */
+    @Test
+    public final void assertUnchangedRegistryIsNotModified() {
+        final Request request = mock(Request.class);
+        when(registry.getVersion()).thenReturn(42L);
+        when(request.evaluatePreconditions(RegistryVersion.toDate(42L), new EntityTag("42"))).thenReturn(Response.notModified());
+
+        final Response response = service.getAllPackages(request, null, null, null);
+
+        assertThat(response.getStatus(), equalTo(Response.Status.NOT_MODIFIED.getStatusCode()));
+        verify(registry, never()).getAllPackages();
+    }
+
+    /**
+     * Responses should carry an entity tag derived from the registry version.
+     */
+    @Test
+    public final void assertResponseContainsEntityTagAndLastModified() {
+        when(registry.getVersion()).thenReturn(42L);
+        when(registry.getAllPackages()).thenReturn(new ArrayList<BowerPackage>());
+
+        final Response response = service.getAllPackages(mock(Request.class), null, null, null);
+
+        assertThat(response.getEntityTag(), equalTo(new EntityTag("42")));
+        assertThat(response.getLastModified(), equalTo(RegistryVersion.toDate(42L)));
+    }
+
+    /**
+     * Compressed representations should carry their own entity tags and responses should vary by the accepted content codings.
+     */
+    @Test
+    public final void assertCompressedRepresentationsHaveDifferentEntityTags() {
+        when(registry.getVersion()).thenReturn(42L);
+        when(registry.getAllPackages()).thenReturn(new ArrayList<BowerPackage>());
+
+        final Response gzipped = service.getAllPackages(null, "gzip", null, null);
+        final Response deflated = service.getAllPackages(null, "deflate", null, null);
+        final Response streamed = service.searchPackages(null, "gzip", "package", null, null);
+
+        assertThat(gzipped.getEntityTag(), equalTo(new EntityTag("42-gzip")));
+        assertThat(deflated.getEntityTag(), equalTo(new EntityTag("42-deflate")));
+        assertThat(streamed.getEntityTag(), equalTo(new EntityTag("42-gzip")));
+        assertThat(gzipped.getHeaderString(HttpHeaders.VARY), equalTo(HttpHeaders.ACCEPT_ENCODING));
+        assertThat(streamed.getHeaderString(HttpHeaders.VARY), equalTo(HttpHeaders.ACCEPT_ENCODING));
+    }
+
+    /**
+     * Conditional requests should be evaluated against the entity tag of the representation the client would get.
+     */
+    @Test
+    public final void assertConditionalRequestUsesEntityTagOfAcceptedContentCoding() {
+        final Request request = mock(Request.class);
+        when(registry.getVersion()).thenReturn(42L);
+        when(request.evaluatePreconditions(RegistryVersion.toDate(42L), new EntityTag("42-gzip"))).thenReturn(Response.notModified());
+
+        final Response response = service.getAllPackages(request, "gzip", null, null);
+
+        assertThat(response.getStatus(), equalTo(Response.Status.NOT_MODIFIED.getStatusCode()));
+        assertThat(response.getEntityTag(), equalTo(new EntityTag("42-gzip")));
+        verify(registry, never()).getAllPackages();
+    }
+
+    /**
+     * Repeated requests for an unchanged registry should be answered from the serialized response body.
+     */
+    @Test
+    public final void assertUnchangedRegistryIsAnsweredFromCachedBody() throws IOException {
+        when(registry.getVersion()).thenReturn(42L);
+        when(registry.getAllPackages()).thenReturn(Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package", "url")));
+
+        service.getAllPackages(null, null, null, null);
+        final Response response = service.getAllPackages(null, "gzip, deflate", null, null);
+
+        verify(registry, times(1)).getAllPackages();
+        assertThat(response.getHeaderString(HttpHeaders.CONTENT_ENCODING), equalTo("gzip"));
+        final List<BowerPackageDescriptor> descriptors =
+            new ObjectMapper().readValue(new GZIPInputStream(new ByteArrayInputStream((byte[])response.getEntity())),
+                new TypeReference<List<BowerPackageDescriptor>>() {
+                });
+        assertThat(descriptors.get(0).getUrl(), equalTo("url"));
+    }
+
+    /**
+     * A changed registry should invalidate serialized response bodies.
+     */
+    @Test
+    public final void assertChangedRegistryInvalidatesCachedBody() {
+        when(registry.getVersion()).thenReturn(42L, 43L);
+        when(registry.getAllPackages()).thenReturn(new ArrayList<BowerPackage>());
+
+        service.getAllPackages(null, null, null, null);
+        service.getAllPackages(null, null, null, null);
+
+        verify(registry, times(2)).getAllPackages();
+    }
+
+    /**
+     * Only accepted content codings should be used.
+     */
+    @Test
+    public final void assertAcceptsHonorsQualityValues() {
+        assertThat(BowerRegistryRestService.accepts("deflate, gzip;q=0.5", "gzip"), equalTo(true));
+        assertThat(BowerRegistryRestService.accepts("gzip;q=0", "gzip"), equalTo(false));
+        assertThat(BowerRegistryRestService.accepts("x-gzip", "gzip"), equalTo(true));
+        assertThat(BowerRegistryRestService.accepts("identity", "deflate"), equalTo(false));
+        assertThat(BowerRegistryRestService.accepts(null, "gzip"), equalTo(false));
+    }
+
+    /**
+     * Clients accepting only deflate should get the precompressed deflate variant.
+     */
+    @Test
+    public final void assertDeflateIsUsedWhenGzipIsNotAccepted() throws IOException {
+        when(registry.getVersion()).thenReturn(42L);
+        when(registry.getAllPackages()).thenReturn(new ArrayList<BowerPackage>());
+
+        final Response response = service.getAllPackages(null, "deflate", null, null);
+
+        assertThat(response.getHeaderString(HttpHeaders.CONTENT_ENCODING), equalTo("deflate"));
+        final InputStream body = new InflaterInputStream(new ByteArrayInputStream((byte[])response.getEntity()));
+        final List<BowerPackageDescriptor> descriptors =
+            new ObjectMapper().readValue(body, new TypeReference<List<BowerPackageDescriptor>>() {
+            });
+        assertThat(descriptors, hasSize(0));
+    }
+
+    /**
+     * Responses going through the Jersey stack configured in <code>web.xml</code> should be compressed exactly once, whether they are
+     * answered from a serialized body or streamed.
+     */
+    @Test
+    public final void assertGzipResponsesFromJerseyStackAreCompressedOnce() throws Exception {
+        final List<BowerPackage> packages = Arrays.<BowerPackage> asList(new BowerPackageDescriptor("package", "url"));
+        when(registry.getVersion()).thenReturn(42L);
+        when(registry.getAllPackages()).thenReturn(packages);
+        when(registry.search(null, null, 10)).thenReturn(packages);
+        RegistryHolder.setRegistry(registry);
+
+        try {
+            final ApplicationHandler handler = new ApplicationHandler(new ResourceConfig().addProperties(getServletParameters()));
+
+            for (final String uri : new String[] { "packages", "packages?limit=10" }) {
+                final ContainerRequest request =
+                    new ContainerRequest(URI.create("http://localhost/api/"), URI.create("http://localhost/api/" + uri), "GET", null,
+                        new MapPropertiesDelegate());
+                request.header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate");
+                final ByteArrayOutputStream body = new ByteArrayOutputStream();
+                final ContainerResponse response = handler.apply(request, body).get();
+
+                assertThat(response.getStatus(), equalTo(Response.Status.OK.getStatusCode()));
+                assertThat(response.getHeaderString(HttpHeaders.CONTENT_ENCODING), equalTo("gzip"));
+                final List<BowerPackageDescriptor> descriptors =
+                    new ObjectMapper().readValue(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray())),
+                        new TypeReference<List<BowerPackageDescriptor>>() {
+                        });
+                assertThat(descriptors, hasSize(1));
+                assertThat(descriptors.get(0).getName(), equalTo("package"));
+            }
+        }
+        finally {
+            RegistryHolder.setRegistry(null);
+        }
+    }
+
+    private Map<String, Object> getServletParameters() throws Exception {
+        final DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+        factory.setNamespaceAware(true);
+        final Document webXml = factory.newDocumentBuilder().parse(new File("src/main/webapp/WEB-INF/web.xml"));
+        final NodeList parameters = webXml.getElementsByTagNameNS("*", "init-param");
+        final Map<String, Object> properties = new HashMap<String, Object>();
+
+        for (int i = 0; i < parameters.getLength(); i++) {
+            final Element parameter = (Element)parameters.item(i);
+            properties.put(parameter.getElementsByTagNameNS("*", "param-name").item(0).getTextContent().trim(), parameter
+                .getElementsByTagNameNS("*", "param-value").item(0).getTextContent().trim());
+        }
+
+        return properties;
+    }
+
+    private InputStream asStream(final String content) {
+        return new ByteArrayInputStream(content.getBytes(Charset.forName("UTF-8")));
+    }
+
+    private byte[] getBody(final Response response) throws IOException {
+        if (response.getEntity() instanceof byte[]) {
+            return (byte[])response.getEntity();
+        }
+
+        final ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ((StreamingOutput)response.getEntity()).write(output);
+
+        return output.toByteArray();
+    }
 }
@@ -0,0 +1,125 @@
+/**
+ *
+ */
+package org.arachna.bower.registry.rest;
+
+import static org.hamcrest.CoreMatchers.equalTo;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.core.StreamingOutput;
+
+import org.arachna.bower.registry.rest.ResponseBodyCache.CachedBody;
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link ResponseBodyCache}.
+ *
+ * @author Dirk Weigenand
+ */
+public class ResponseBodyCacheTest {
+    @Test
+    public void testLeastRecentlyUsedBodiesAreEvictedWhenCacheExceedsMaximumBytes() throws IOException {
+        final ResponseBodyCache cache = new ResponseBodyCache(100);
+        final CountingOutput first = new CountingOutput(60);
+        final CountingOutput second = new CountingOutput(60);
+
+        cache.get("first", 1, first);
+        cache.get("second", 1, second);
+        cache.get("first", 1, first);
+
+        assertThat(first.writes.get(), equalTo(2));
+        assertThat(second.writes.get(), equalTo(1));
+        assertThat(cache.getSize(), equalTo(60L));
+    }
+
+    @Test
+    public void testBodiesLargerThanCacheAreNotCached() throws IOException {
+        final ResponseBodyCache cache = new ResponseBodyCache(10);
+        final CountingOutput output = new CountingOutput(20);
+
+        assertThat(cache.get("body", 1, output), nullValue());
+        assertThat(cache.get("body", 1, output), nullValue());
+        assertThat(output.writes.get(), equalTo(1));
+        assertThat(cache.getSize(), equalTo(0L));
+    }
+
+    @Test(timeout = 5000)
+    public void testConcurrentRequestsSerializeBodyOnce() throws Exception {
+        final ResponseBodyCache cache = new ResponseBodyCache(ResponseBodyCache.DEFAULT_MAX_BYTES);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final CountingOutput output = new CountingOutput(10) {
+            @Override
+            public void write(final OutputStream stream) throws IOException {
+                started.countDown();
+
+                try {
+                    release.await();
+                }
+                catch (final InterruptedException e) {
+                    throw new IOException(e);
+                }
+
+                super.write(stream);
+            }
+        };
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            final Callable<CachedBody> request = new Callable<CachedBody>() {
+                @Override
+                public CachedBody call() throws IOException {
+                    return cache.get("body", 1, output);
+                }
+            };
+            final Future<CachedBody> first = executor.submit(request);
+            started.await();
+            final Future<CachedBody> second = executor.submit(request);
+            TimeUnit.MILLISECONDS.sleep(100);
+            release.countDown();
+
+            assertThat(second.get(), sameInstance(first.get()));
+            assertThat(output.writes.get(), equalTo(1));
+        }
+        finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes a body of fixed length and counts how often it was written.
+     */
+    private static class CountingOutput implements StreamingOutput {
+        /**
+         * number of times the body was written.
+         */
+        final AtomicInteger writes = new AtomicInteger();
+
+        /**
+         * length of the body.
+         */
+        private final int length;
+
+        CountingOutput(final int length) {
+            this.length = length;
+        }
+
+        @Override
+        public void write(final OutputStream stream) throws IOException {
+            writes.incrementAndGet();
+            stream.write(new byte[length]);
+        }
+    }
+}